@@ -0,0 +1,15 @@
+package com.example.minesweeper;
+
+// The part of GameView that draws cells; BoardView implements it on its own
+public interface BoardSurface {
+    void updateCell(int r, int c, Cell cell);
+    // Batched path: indices are Board.index values, state is read from the board when drawn
+    void updateCells(Board board, int[] cells, int count);
+    void setBoardEnabled(boolean enabled);
+    // Mine probability per Board.index drawn over hidden cells; null hides the heatmap
+    void showProbabilities(float[] probabilities);
+
+    default void updateCell(Board board, int r, int c) {
+        updateCells(board, new int[]{board.index(r, c)}, 1);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,307 @@
+package com.example.minesweeper;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Looper;
+import android.util.AttributeSet;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+
+import java.util.Arrays;
+
+// Draws the whole board on one Canvas instead of a Button per cell. Touches are
+// mapped to cells arithmetically. A change invalidates the whole view (dirty rectangles
+// are ignored under hardware acceleration), which stays cheap because only the cells
+// inside the visible window are drawn. The board can be pinch-zoomed and panned, and
+// when cells get smaller than a few pixels a one-pixel-per-cell overview bitmap is
+// scaled up instead, so huge boards pan as cheaply as small ones.
+public class BoardView extends View implements BoardSurface {
+
+    public interface OnCellTouchListener {
+        void onCellClick(int r, int c);
+        void onCellLongClick(int r, int c);
+    }
+
+    // Visual state per cell: 0..8 are opened numbers
+    static final byte STATE_HIDDEN = 9;
+    static final byte STATE_FLAGGED = 10;
+    static final byte STATE_MINE = 11;
+    static final byte STATE_EXPLODED = 12;
+
+    private static final int MAX_CELL_PX = 100;
+    private static final float MAX_ZOOM_CELL_PX = 160f;
+    // Below this cell size the overview bitmap is drawn instead of individual cells
+    private static final float LOD_CELL_PX = 10f;
+
+    private int size;
+    private byte[] states = new byte[0];
+    private float fitCellPx;
+    private float cellPx;
+    private float originX;
+    private float originY;
+    private Bitmap overview;
+
+    private TileAtlas atlas;
+    private final Paint tilePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final RectF tileDst = new RectF();
+    private final Paint overviewPaint = new Paint();
+    private final Paint heatPaint = new Paint();
+    private float[] probabilities;
+    private final Rect clip = new Rect();
+    private final Rect overviewSrc = new Rect();
+    private final RectF overviewDst = new RectF();
+
+    private final GestureDetector gestures;
+    private final ScaleGestureDetector scaleGestures;
+    private OnCellTouchListener touchListener;
+
+    public BoardView(Context context) {
+        this(context, null);
+    }
+
+    public BoardView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+
+        gestures = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) {
+                return true;
+            }
+
+            @Override
+            public boolean onSingleTapUp(MotionEvent e) {
+                int idx = hitTest(e.getX(), e.getY());
+                if (idx >= 0 && touchListener != null) touchListener.onCellClick(idx / size, idx % size);
+                return idx >= 0;
+            }
+
+            @Override
+            public void onLongPress(MotionEvent e) {
+                if (scaleGestures.isInProgress()) return;
+                int idx = hitTest(e.getX(), e.getY());
+                if (idx >= 0 && touchListener != null) touchListener.onCellLongClick(idx / size, idx % size);
+            }
+
+            @Override
+            public boolean onScroll(MotionEvent e1, MotionEvent e2, float dx, float dy) {
+                panBy(-dx, -dy);
+                return true;
+            }
+        });
+
+        scaleGestures = new ScaleGestureDetector(context, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScale(ScaleGestureDetector detector) {
+                zoomBy(detector.getScaleFactor(), detector.getFocusX(), detector.getFocusY());
+                return true;
+            }
+        });
+    }
+
+    public void setBoardSize(int size) {
+        this.size = size;
+        states = new byte[size * size];
+        Arrays.fill(states, STATE_HIDDEN);
+        overview = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        overview.eraseColor(overviewColor(STATE_HIDDEN));
+        cellPx = 0;
+        layoutCells(getWidth(), getHeight());
+        invalidate();
+    }
+
+    public void setOnCellTouchListener(OnCellTouchListener listener) {
+        this.touchListener = listener;
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        layoutCells(w, h);
+    }
+
+    // Fits the board to the view; keeps the current zoom if there already is one
+    private void layoutCells(int w, int h) {
+        if (size == 0 || w == 0 || h == 0) return;
+        fitCellPx = Math.min(MAX_CELL_PX, (float) Math.min(w, h) / size);
+        if (cellPx < fitCellPx) cellPx = fitCellPx;
+        clampOrigin();
+    }
+
+    private void zoomBy(float factor, float focusX, float focusY) {
+        float next = Math.max(fitCellPx, Math.min(MAX_ZOOM_CELL_PX, cellPx * factor));
+        if (next == cellPx) return;
+        // Keep the board point under the fingers fixed while zooming
+        originX = focusX - (focusX - originX) * next / cellPx;
+        originY = focusY - (focusY - originY) * next / cellPx;
+        cellPx = next;
+        clampOrigin();
+        invalidate();
+    }
+
+    private void panBy(float dx, float dy) {
+        originX += dx;
+        originY += dy;
+        clampOrigin();
+        invalidate();
+    }
+
+    // A board smaller than the view is centred, a larger one may not be dragged off screen
+    private void clampOrigin() {
+        float boardPx = cellPx * size;
+        originX = clampAxis(originX, boardPx, getWidth());
+        originY = clampAxis(originY, boardPx, getHeight());
+    }
+
+    private static float clampAxis(float origin, float boardPx, int viewPx) {
+        if (boardPx <= viewPx) return (viewPx - boardPx) / 2;
+        return Math.max(viewPx - boardPx, Math.min(0, origin));
+    }
+
+    private int hitTest(float x, float y) {
+        if (size == 0 || cellPx == 0) return -1;
+        int c = (int) Math.floor((x - originX) / cellPx);
+        int r = (int) Math.floor((y - originY) / cellPx);
+        if (r < 0 || c < 0 || r >= size || c >= size) return -1;
+        return r * size + c;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        boolean handled = scaleGestures.onTouchEvent(event);
+        if (!scaleGestures.isInProgress()) handled |= gestures.onTouchEvent(event);
+        return handled || super.onTouchEvent(event);
+    }
+
+    // --- BoardSurface ---
+
+    @Override
+    public void updateCell(int r, int c, Cell cell) {
+        byte state;
+        if (cell.isRevealed()) {
+            state = cell.getHasMine() ? STATE_MINE : (byte) cell.getNeighborMines();
+        } else {
+            state = cell.isFlagged() ? STATE_FLAGGED : STATE_HIDDEN;
+        }
+        runOnMain(() -> {
+            setState(r * size + c, state);
+            invalidate();
+        });
+    }
+
+    @Override
+    public void updateCells(Board board, int[] cells, int count) {
+        int[] copy = Arrays.copyOf(cells, count);
+        runOnMain(() -> applyCells(board, copy, count));
+    }
+
+    @Override
+    public void setBoardEnabled(boolean enabled) {
+        runOnMain(() -> setAlpha(enabled ? 1.0f : 0.5f));
+    }
+
+    @Override
+    public void showProbabilities(float[] probabilities) {
+        runOnMain(() -> {
+            this.probabilities = probabilities != null && probabilities.length == states.length
+                    ? probabilities : null;
+            invalidate();
+        });
+    }
+
+    // Main thread only: copy the cells' state out of the board and repaint
+    public void applyCells(Board board, int[] cells, int count) {
+        if (board.size() != size) return;
+        for (int i = 0; i < count; i++) {
+            int idx = cells[i];
+            int r = board.row(idx);
+            int c = board.col(idx);
+            byte state;
+            if (board.isRevealed(r, c)) {
+                if (!board.isMine(r, c)) state = (byte) board.getNeighbors(r, c);
+                else state = board.getExploded() == idx ? STATE_EXPLODED : STATE_MINE;
+            } else {
+                state = board.isFlagged(r, c) ? STATE_FLAGGED : STATE_HIDDEN;
+            }
+            setState(idx, state);
+        }
+        invalidate();
+    }
+
+    private void setState(int idx, byte state) {
+        states[idx] = state;
+        overview.setPixel(idx % size, idx / size, overviewColor(state));
+    }
+
+    private void runOnMain(Runnable action) {
+        if (Looper.myLooper() == Looper.getMainLooper()) action.run();
+        else post(action);
+    }
+
+    // --- Drawing ---
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (size == 0 || cellPx == 0) return;
+        if (!canvas.getClipBounds(clip)) return;
+
+        // Only the cells that intersect the visible window
+        int c0 = Math.max(0, (int) Math.floor((clip.left - originX) / cellPx));
+        int c1 = Math.min(size - 1, (int) Math.floor((clip.right - originX) / cellPx));
+        int r0 = Math.max(0, (int) Math.floor((clip.top - originY) / cellPx));
+        int r1 = Math.min(size - 1, (int) Math.floor((clip.bottom - originY) / cellPx));
+        if (c0 > c1 || r0 > r1) return;
+
+        if (cellPx < LOD_CELL_PX) {
+            overviewSrc.set(c0, r0, c1 + 1, r1 + 1);
+            overviewDst.set(originX + c0 * cellPx, originY + r0 * cellPx,
+                    originX + (c1 + 1) * cellPx, originY + (r1 + 1) * cellPx);
+            canvas.drawBitmap(overview, overviewSrc, overviewDst, overviewPaint);
+            return;
+        }
+
+        // The atlas is picked lazily: only a zoom bucket or day/night change swaps it
+        boolean night = (getResources().getConfiguration().uiMode
+                & Configuration.UI_MODE_NIGHT_MASK) == Configuration.UI_MODE_NIGHT_YES;
+        int tilePx = TileAtlas.bucketFor(cellPx);
+        if (atlas == null || atlas.getTilePx() != tilePx || atlas.isNight() != night) {
+            atlas = TileAtlas.get(tilePx, night);
+        }
+
+        for (int r = r0; r <= r1; r++) {
+            float top = originY + r * cellPx;
+            for (int c = c0; c <= c1; c++) {
+                float left = originX + c * cellPx;
+                tileDst.set(left, top, left + cellPx, top + cellPx);
+                int idx = r * size + c;
+                atlas.draw(canvas, states[idx], tileDst, tilePaint);
+                if (probabilities != null && states[idx] == STATE_HIDDEN && !Float.isNaN(probabilities[idx])) {
+                    heatPaint.setColor(heatColor(probabilities[idx]));
+                    canvas.drawRect(tileDst, heatPaint);
+                }
+            }
+        }
+    }
+
+    // Green (safe) through yellow to red (mine), translucent so the tile still shows
+    private static int heatColor(float p) {
+        int red = (int) Math.min(255, 510 * p);
+        int green = (int) Math.min(255, 510 * (1 - p));
+        return Color.argb(0x90, red, green, 0);
+    }
+
+    private static int overviewColor(byte state) {
+        if (state == STATE_HIDDEN) return 0xFFBDBDBD;
+        if (state == STATE_FLAGGED) return 0xFFFF9800;
+        if (state == STATE_MINE || state == STATE_EXPLODED) return Color.RED;
+        return state == 0 ? Color.WHITE : 0xFFE3F2FD;
+    }
+}
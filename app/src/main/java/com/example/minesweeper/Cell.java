@@ -15,6 +15,14 @@ public class Cell {
         this.isFlagged = false;
     }
 
+    // תמונת מצב של משבצת מתוך הלוח הדחוס, עבור ה-View
+    public static Cell from(Board board, int r, int c) {
+        Cell cell = new Cell(board.isMine(r, c), board.getNeighbors(r, c));
+        cell.isRevealed = board.isRevealed(r, c);
+        cell.isFlagged = board.isFlagged(r, c);
+        return cell;
+    }
+
     public boolean getHasMine() { return hasMine; }
     public void setHasMine(boolean hasMine) { this.hasMine = hasMine; }
 
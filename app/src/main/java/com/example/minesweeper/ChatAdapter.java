@@ -0,0 +1,46 @@
+package com.example.minesweeper;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+// שורות הצ'אט נבנות רק כשהן מוצגות; GameActivity מודיע על כל הוספה והסרה בנפרד
+public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder> {
+
+    private final ChatBuffer messages;
+
+    public ChatAdapter(ChatBuffer messages) {
+        this.messages = messages;
+    }
+
+    @NonNull
+    @Override
+    public ChatViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(android.R.layout.simple_list_item_1, parent, false);
+        return new ChatViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ChatViewHolder holder, int position) {
+        ChatBuffer.Entry entry = messages.get(position);
+        holder.tvLine.setText(entry.sender + ": " + entry.text);
+    }
+
+    @Override
+    public int getItemCount() {
+        return messages.size();
+    }
+
+    public static class ChatViewHolder extends RecyclerView.ViewHolder {
+        TextView tvLine;
+
+        public ChatViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvLine = itemView.findViewById(android.R.id.text1);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.minesweeper;
+
+import android.util.Log;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// שני השחקנים משחקים יחד על אותו לוח, בלי תורות.
+// Each player keeps a CoopBoard replica; every reveal or flag is one entry under
+// games/<id>/ops, written under the player's own key so the two never collide. Ops
+// are merged in whatever order they arrive, our own included, and both replicas end
+// up the same. The team wins when the last safe cell opens and loses on any mine.
+// Room codes are reused, so games/<id> may still hold an earlier game's board. The host
+// tags the board it deals with a nonce and then writes the nonce into the room; the
+// guest takes only the board with that nonce, so it never plays a stale board nor
+// writes ops that the host's new game would wipe.
+public class CoopGameController implements GameController {
+    private static final String OPS = "ops";
+    private static final String NONCE = "coopNonce";
+    private static final int PLAYERS = 2;
+
+    private final GameView view;
+    private final int size;
+    private final int replica;
+    private final DatabaseReference gameRef;
+    private final DatabaseReference nonceRef;
+    private String nonce;
+    private ValueEventListener nonceListener;
+    private ValueEventListener boardListener;
+    private ChildEventListener opsListener;
+
+    private CoopBoard coop;
+    private boolean isGameOver = false;
+    private int opsSent = 0;
+    private int opsMerged = 0;
+
+    // replica: 0 for the host, who deals the board, 1 for the guest
+    public CoopGameController(GameView view, int size, String gameId, int replica) {
+        this.view = view;
+        this.size = size;
+        this.replica = replica;
+        this.gameRef = FirebaseDatabase.getInstance().getReference("games").child(gameId);
+        this.nonceRef = FirebaseDatabase.getInstance().getReference(Matchmaker.ROOMS).child(gameId).child(NONCE);
+
+        view.setBoardEnabled(false);
+        view.updateStatus("Co-op: waiting for the board...");
+        if (replica == 0) {
+            // Replaces the node, so ops of an earlier game in this room go too. The
+            // nonce goes out after the board, on the same connection, so the guest
+            // that reads it finds this board already there
+            nonce = gameRef.push().getKey();
+            Map<String, Object> board = BoardCodec.newGame(BoardGenerator.randomSeed(), size,
+                    BoardGenerator.defaultMineCount(size));
+            board.put(NONCE, nonce);
+            Map<String, Object> game = new HashMap<>();
+            game.put("board", board);
+            gameRef.setValue(game);
+            nonceRef.setValue(nonce);
+            listenForBoard();
+        } else {
+            listenForNonce();
+        }
+    }
+
+    private void listenForNonce() {
+        nonceListener = nonceRef.addValueEventListener(new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot nonceSnap) {
+                String value = nonceSnap.getValue(String.class);
+                if (value == null || nonce != null) return;
+                nonce = value;
+                nonceRef.removeEventListener(this);
+                nonceListener = null;
+                listenForBoard();
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                view.showMessage("Connection error");
+            }
+        });
+    }
+
+    private void listenForBoard() {
+        boardListener = gameRef.child("board").addValueEventListener(new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot boardSnap) {
+                if (!boardSnap.exists() || coop != null) return;
+                if (!nonce.equals(boardSnap.child(NONCE).getValue(String.class))) return;
+                String seed = boardSnap.child(BoardCodec.SEED).getValue(String.class);
+                Integer mineCount = boardSnap.child(BoardCodec.MINE_COUNT).getValue(Integer.class);
+                if (seed == null || mineCount == null) return;
+
+                Board board = new Board(size);
+                BoardGenerator.placeMines(board, BoardCodec.decodeSeed(seed), mineCount);
+                coop = new CoopBoard(board, replica, PLAYERS);
+                int[] all = new int[board.cellCount()];
+                for (int i = 0; i < all.length; i++) all[i] = i;
+                view.updateCells(board, all, all.length);
+                view.setBoardEnabled(true);
+                showProgress();
+
+                gameRef.child("board").removeEventListener(this);
+                boardListener = null;
+                listenForOps();
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                view.showMessage("Connection error");
+            }
+        });
+    }
+
+    private void listenForOps() {
+        opsListener = gameRef.child(OPS).addChildEventListener(new ChildEventListener() {
+            @Override
+            public void onChildAdded(DataSnapshot entry, String previousChildName) {
+                if (isGameOver) return;
+                CoopOp op = CoopOp.fromMap((Map<?, ?>) entry.getValue());
+                if (op == null) return;
+                opsMerged++;
+                if (coop.merge(op) > 0) onChanged();
+            }
+
+            @Override
+            public void onChildChanged(DataSnapshot entry, String previousChildName) {}
+
+            @Override
+            public void onChildRemoved(DataSnapshot entry) {}
+
+            @Override
+            public void onChildMoved(DataSnapshot entry, String previousChildName) {}
+
+            @Override
+            public void onCancelled(DatabaseError error) {}
+        });
+    }
+
+    @Override
+    public void onCellClicked(int r, int c) {
+        if (isGameOver || coop == null) return;
+        send(coop.reveal(r, c));
+    }
+
+    @Override
+    public void onCellLongClicked(int r, int c) {
+        if (isGameOver || coop == null) return;
+        send(coop.flag(r, c));
+    }
+
+    // The op is already on our board; the write only tells the other player
+    private void send(CoopOp op) {
+        if (op == null) return;
+        opsSent++;
+        gameRef.child(OPS).child(op.key()).setValue(op.toMap());
+        onChanged();
+    }
+
+    private void onChanged() {
+        Board board = coop.getBoard();
+        view.updateCells(board, coop.getChanged(), coop.getChangedCount());
+        if (board.getExploded() >= 0) {
+            endGame(false);
+        } else if (board.isCleared()) {
+            endGame(true);
+        } else {
+            showProgress();
+        }
+    }
+
+    private void showProgress() {
+        view.updateStatus("Co-op: " + coop.getBoard().getSafeLeft() + " safe cells left");
+    }
+
+    private void endGame(boolean won) {
+        isGameOver = true;
+        view.setBoardEnabled(false);
+        view.showGameOver(won);
+        view.updateStatus(won ? "Board cleared together! 🎉" : "Boom! The team lost 💥");
+        detach();
+    }
+
+    private void detach() {
+        if (nonceListener != null) nonceRef.removeEventListener(nonceListener);
+        nonceListener = null;
+        if (boardListener != null) gameRef.child("board").removeEventListener(boardListener);
+        if (opsListener != null) gameRef.child(OPS).removeEventListener(opsListener);
+        if (boardListener == null && opsListener == null) return;
+        boardListener = null;
+        opsListener = null;
+        Log.d("CoopGame", opsSent + " ops sent, " + opsMerged + " merged"
+                + (coop != null ? ", " + coop.getConflicts() + " flag tie-breaks" : ""));
+    }
+
+    @Override
+    public void onDestroy() {
+        detach();
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.minesweeper;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.Transaction;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// MatchStore on the Realtime Database root. transact is runTransaction: its update runs
+// on a database thread, first on the cached node, and again whenever the server had a
+// different one. findWaiting needs ".indexOn": "status" on the collection in the
+// database rules, or the server sends the whole collection for the client to filter.
+// Callbacks run on the main thread.
+public class FirebaseMatchStore implements MatchStore {
+    private final DatabaseReference root = FirebaseDatabase.getInstance().getReference();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    @Override
+    public String newKey(String collection) {
+        return root.child(collection).push().getKey();
+    }
+
+    @Override
+    public void transact(String path, Update update, Done done) {
+        root.child(path).runTransaction(new Transaction.Handler() {
+            @NonNull
+            @Override
+            public Transaction.Result doTransaction(@NonNull MutableData data) {
+                Map<String, Object> value = update.apply(asMap(data.getValue()));
+                if (value == ABORT) return Transaction.abort();
+                data.setValue(value);
+                return Transaction.success(data);
+            }
+
+            @Override
+            public void onComplete(DatabaseError error, boolean committed, DataSnapshot snapshot) {
+                done.onDone(error == null && committed, snapshot != null ? asMap(snapshot.getValue()) : null);
+            }
+        });
+    }
+
+    @Override
+    public void set(String path, Map<String, Object> value) {
+        root.child(path).setValue(value);
+    }
+
+    @Override
+    public void remove(String path) {
+        root.child(path).removeValue();
+    }
+
+    @Override
+    public void removeOnDisconnect(String path) {
+        root.child(path).onDisconnect().removeValue();
+    }
+
+    @Override
+    public void findWaiting(String collection, int limit, Found found) {
+        root.child(collection).orderByChild("status").equalTo("waiting").limitToFirst(limit)
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot snapshot) {
+                        List<String> keys = new ArrayList<>();
+                        List<Map<String, Object>> values = new ArrayList<>();
+                        for (DataSnapshot child : snapshot.getChildren()) {
+                            Map<String, Object> value = asMap(child.getValue());
+                            if (value == null) continue;
+                            keys.add(child.getKey());
+                            values.add(value);
+                        }
+                        found.onFound(keys, values);
+                    }
+
+                    // Seen as an empty queue: the caller queues its own ticket
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError error) {
+                        found.onFound(new ArrayList<>(), new ArrayList<>());
+                    }
+                });
+    }
+
+    @Override
+    public Runnable watch(String path, Watcher watcher) {
+        DatabaseReference ref = root.child(path);
+        ValueEventListener listener = ref.addValueEventListener(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                watcher.onValue(asMap(snapshot.getValue()));
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+            }
+        });
+        return () -> ref.removeEventListener(listener);
+    }
+
+    @Override
+    public void schedule(Runnable task, long delayMs) {
+        mainHandler.postDelayed(task, delayMs);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) {
+        return value instanceof Map ? (Map<String, Object>) value : null;
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.minesweeper;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// games/<id> on the Realtime Database:
+//   board   the board header, read once
+//   moves   the move log; child events hand over one new entry at a time, so nothing
+//           already applied is decoded again
+//   state   turn and strikes, a small subtree of its own
+//   chat    push() keys to ChatMessage
+//   sync    push() keys to repair messages; listeners start at a fresh push key, so
+//           they skip whatever earlier games and exchanges left behind
+// Listeners run on the main thread. Every snapshot handed over is counted in stats.
+public class FirebaseTransport implements GameTransport {
+    static final String BOARD = "board";
+    static final String MOVES = "moves";
+    static final String STATE = "state";
+    static final String CHAT = "chat";
+    static final String SYNC = "sync";
+
+    private final DatabaseReference gameRef;
+    private final SyncStats stats;
+    private final List<Query> queries = new ArrayList<>();
+    private final List<Object> listeners = new ArrayList<>();
+
+    public FirebaseTransport(String gameId, SyncStats stats) {
+        this.gameRef = FirebaseDatabase.getInstance().getReference("games").child(gameId);
+        this.stats = stats;
+    }
+
+    @Override
+    public void createGame(Map<String, Object> board, Map<String, Object> state) {
+        Map<String, Object> game = new HashMap<>();
+        game.put(BOARD, board);
+        game.put(STATE, withServerTime(state));
+        gameRef.setValue(game);
+    }
+
+    @Override
+    public void publishMove(Move move, Map<String, Object> stateUpdates) {
+        Map<String, Object> updates = statePaths(stateUpdates);
+        updates.put(MOVES + "/" + Move.key(move.seq), move.toMap(ServerValue.TIMESTAMP));
+        gameRef.updateChildren(updates);
+    }
+
+    @Override
+    public void updateState(Map<String, Object> updates) {
+        gameRef.updateChildren(statePaths(updates));
+    }
+
+    @Override
+    public void sendChat(String sender, String text) {
+        gameRef.child(CHAT).push().setValue(new ChatMessage(sender, text));
+    }
+
+    @Override
+    public void sendSync(Map<String, Object> message) {
+        gameRef.child(SYNC).push().setValue(message);
+    }
+
+    @Override
+    public void subscribeGame(GameListener listener) {
+        watch(gameRef.child(BOARD), new ValueEventListener() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public void onDataChange(DataSnapshot snapshot) {
+                Object value = snapshot.getValue();
+                stats.onBytesReceived(PayloadSize.jsonBytes(value));
+                if (value instanceof Map) listener.onGame((Map<String, Object>) value);
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {}
+        });
+    }
+
+    @Override
+    public void subscribeMoves(MoveListener listener) {
+        watch(gameRef.child(MOVES), new ChildAdded() {
+            @Override
+            public void onChildAdded(DataSnapshot entry, String previousChildName) {
+                Object value = entry.getValue();
+                stats.onBytesReceived(PayloadSize.jsonBytes(value));
+                stats.onEntryDecoded();
+                Move move = Move.fromMap((Map<?, ?>) value);
+                if (move != null) listener.onMove(move);
+            }
+        });
+    }
+
+    @Override
+    public void subscribeState(StateListener listener) {
+        watch(gameRef.child(STATE), new ValueEventListener() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public void onDataChange(DataSnapshot snapshot) {
+                Object value = snapshot.getValue();
+                stats.onBytesReceived(PayloadSize.jsonBytes(value));
+                if (value instanceof Map) listener.onState((Map<String, Object>) value);
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {}
+        });
+    }
+
+    @Override
+    public void subscribeChat(ChatListener listener) {
+        watch(gameRef.child(CHAT), new ChildAdded() {
+            @Override
+            public void onChildAdded(DataSnapshot entry, String previousChildName) {
+                ChatMessage message = entry.getValue(ChatMessage.class);
+                if (message != null) listener.onChat(message.getSender(), message.getText());
+            }
+        });
+    }
+
+    // push() keys start with the (server-corrected) time, so keys after a new one are messages still to come
+    @Override
+    public void subscribeSync(SyncListener listener) {
+        DatabaseReference sync = gameRef.child(SYNC);
+        watch(sync.orderByKey().startAt(sync.push().getKey()), new ChildAdded() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public void onChildAdded(DataSnapshot entry, String previousChildName) {
+                Object value = entry.getValue();
+                stats.onBytesReceived(PayloadSize.jsonBytes(value));
+                if (value instanceof Map) listener.onSync((Map<String, Object>) value);
+            }
+        });
+    }
+
+    // Firebase measures the server clock against ours and keeps the offset up to date
+    @Override
+    public void subscribeServerOffset(OffsetListener listener) {
+        watch(FirebaseDatabase.getInstance().getReference(".info/serverTimeOffset"), new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot snapshot) {
+                Double offset = snapshot.getValue(Double.class);
+                if (offset != null) listener.onServerOffset(offset.longValue());
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {}
+        });
+    }
+
+    @Override
+    public void close() {
+        for (int i = 0; i < queries.size(); i++) {
+            Object listener = listeners.get(i);
+            if (listener instanceof ValueEventListener) queries.get(i).removeEventListener((ValueEventListener) listener);
+            else queries.get(i).removeEventListener((ChildEventListener) listener);
+        }
+        queries.clear();
+        listeners.clear();
+    }
+
+    private void watch(Query query, ValueEventListener listener) {
+        query.addValueEventListener(listener);
+        queries.add(query);
+        listeners.add(listener);
+    }
+
+    private void watch(Query query, ChildEventListener listener) {
+        query.addChildEventListener(listener);
+        queries.add(query);
+        listeners.add(listener);
+    }
+
+    private static Map<String, Object> statePaths(Map<String, Object> stateUpdates) {
+        Map<String, Object> updates = new HashMap<>();
+        for (Map.Entry<String, Object> entry : withServerTime(stateUpdates).entrySet()) {
+            updates.put(STATE + "/" + entry.getKey(), entry.getValue());
+        }
+        return updates;
+    }
+
+    private static Map<String, Object> withServerTime(Map<String, Object> values) {
+        Map<String, Object> out = new HashMap<>(values);
+        for (Map.Entry<String, Object> entry : out.entrySet()) {
+            if (entry.getValue() == SERVER_TIME) entry.setValue(ServerValue.TIMESTAMP);
+        }
+        return out;
+    }
+
+    // Log entries, chat and sync messages are never rewritten or removed
+    private abstract static class ChildAdded implements ChildEventListener {
+        @Override
+        public void onChildChanged(DataSnapshot entry, String previousChildName) {}
+
+        @Override
+        public void onChildRemoved(DataSnapshot entry) {}
+
+        @Override
+        public void onChildMoved(DataSnapshot entry, String previousChildName) {}
+
+        @Override
+        public void onCancelled(DatabaseError error) {}
+    }
+}
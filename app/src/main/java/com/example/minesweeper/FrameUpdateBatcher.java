@@ -0,0 +1,144 @@
+package com.example.minesweeper;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.Arrays;
+
+// Collects cell and status changes and hands them to the UI once per Choreographer
+// frame, so a flood fill of hundreds of cells costs one main-thread pass, not hundreds.
+// Cells of a tap can carry its timestamp: the tap-to-visual time is recorded once the
+// frame that shows them has been drawn.
+public class FrameUpdateBatcher implements Choreographer.FrameCallback {
+
+    public interface Sink {
+        void applyCells(int[] cells, int count);
+        void applyStatus(String status);
+    }
+
+    private final Sink sink;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable scheduleOnMain = this::scheduleFrame;
+
+    private int[] pending = new int[64];
+    private int pendingCount;
+    private int[] draining = new int[64];
+    private String pendingStatus;
+    // System.nanoTime() of the taps whose cells are in pending
+    private long[] pendingTaps = new long[4];
+    private int pendingTapCount;
+    private Histogram tapToVisual;
+    private boolean scheduled;
+    private boolean released;
+
+    // Counters: every requested change vs. the frames that actually touched the UI
+    private long requestedUpdates;
+    private long appliedFrames;
+
+    public FrameUpdateBatcher(Sink sink) {
+        this.sink = sink;
+    }
+
+    public void postCells(int[] cells, int count) {
+        synchronized (this) {
+            if (pendingCount + count > pending.length) {
+                int[] bigger = new int[Math.max(pending.length * 2, pendingCount + count)];
+                System.arraycopy(pending, 0, bigger, 0, pendingCount);
+                pending = bigger;
+            }
+            System.arraycopy(cells, 0, pending, pendingCount, count);
+            pendingCount += count;
+            requestedUpdates += count;
+        }
+        requestFrame();
+    }
+
+    public void postCells(int[] cells, int count, long tapNanos, Histogram tapToVisual) {
+        synchronized (this) {
+            if (pendingTapCount == pendingTaps.length) pendingTaps = Arrays.copyOf(pendingTaps, pendingTapCount * 2);
+            pendingTaps[pendingTapCount++] = tapNanos;
+            this.tapToVisual = tapToVisual;
+        }
+        postCells(cells, count);
+    }
+
+    public void postStatus(String status) {
+        synchronized (this) {
+            pendingStatus = status;
+            requestedUpdates++;
+        }
+        requestFrame();
+    }
+
+    private void requestFrame() {
+        synchronized (this) {
+            if (scheduled || released) return;
+            scheduled = true;
+        }
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            scheduleFrame();
+        } else {
+            mainHandler.post(scheduleOnMain);
+        }
+    }
+
+    private void scheduleFrame() {
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        int count;
+        String status;
+        long[] taps = null;
+        Histogram histogram = null;
+        synchronized (this) {
+            scheduled = false;
+            if (released) return;
+            // Swap buffers so producers can keep posting while we apply
+            int[] tmp = draining;
+            draining = pending;
+            pending = tmp;
+            count = pendingCount;
+            pendingCount = 0;
+            status = pendingStatus;
+            pendingStatus = null;
+            if (pendingTapCount > 0) {
+                taps = Arrays.copyOf(pendingTaps, pendingTapCount);
+                histogram = tapToVisual;
+                pendingTapCount = 0;
+            }
+            appliedFrames++;
+        }
+        if (count > 0) sink.applyCells(draining, count);
+        if (status != null) sink.applyStatus(status);
+        if (taps != null) recordWhenDrawn(taps, histogram);
+    }
+
+    // invalidate() from applyCells puts a barrier on the main queue until this frame's
+    // traversal has drawn, so a message posted now runs only after the draw
+    private void recordWhenDrawn(long[] taps, Histogram histogram) {
+        mainHandler.post(() -> {
+            long now = System.nanoTime();
+            for (long tap : taps) histogram.record((now - tap) / 1000);
+        });
+    }
+
+    public synchronized long getRequestedUpdates() { return requestedUpdates; }
+    public synchronized long getAppliedFrames() { return appliedFrames; }
+
+    // How many individual UI posts were saved by folding them into frames
+    public synchronized long getCoalescedUpdates() { return requestedUpdates - appliedFrames; }
+
+    public void release() {
+        synchronized (this) {
+            released = true;
+            pendingCount = 0;
+            pendingTapCount = 0;
+            pendingStatus = null;
+        }
+        mainHandler.removeCallbacks(scheduleOnMain);
+        Choreographer.getInstance().removeFrameCallback(this);
+    }
+}
@@ -3,45 +3,60 @@ package com.example.minesweeper;
 import android.content.Intent;
 import android.graphics.Color;
 import android.os.Bundle;
+import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
-import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.LinearLayout;
-import android.widget.ListView;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
+import com.google.firebase.database.ChildEventListener;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
 import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
 import java.util.List;
 
-public class GameActivity extends AppCompatActivity implements GameView {
+public class GameActivity extends AppCompatActivity implements GameView, FrameUpdateBatcher.Sink {
+
+    // The chat listens to the last CHAT_LIVE messages, pages older ones in CHAT_PAGE at a
+    // time when scrolled near the top, and never holds more than CHAT_CAPACITY
+    private static final int CHAT_LIVE = 50;
+    private static final int CHAT_PAGE = 30;
+    private static final int CHAT_CAPACITY = 200;
+    private static final int CHAT_PREFETCH = 5;
 
     private TextView statusText;
-    private LinearLayout boardContainer;
+    private BoardView boardView;
     private View overlay;
     private TextView overlayTitle;
     private Button btnHome;
 
     // --- רכיבי הצ'אט החדשים ---
     private LinearLayout chatContainer;
-    private ListView chatListView;
+    private RecyclerView chatRecyclerView;
+    private LinearLayoutManager chatLayout;
     private EditText etChatMessage;
     private Button btnSendChat;
 
     private GameController controller;
-    private Button[][] buttons;
+    private Board shownBoard; // הלוח שממנו נקרא מצב המשבצות בעדכון המקובץ
+    private FrameUpdateBatcher uiBatcher;
     private int size;
     private boolean isOnline;
+    private boolean noGuess;
     private boolean gameStarted = false;
 
     private DatabaseReference roomRef;
@@ -50,10 +65,12 @@ public class GameActivity extends AppCompatActivity implements GameView {
     private String otherPlayer;
     private String roomId;
 
-    private List<String> chatMessagesList = new ArrayList<>();
-    private ArrayAdapter<String> chatAdapter;
-    private ValueEventListener chatListener;
+    private final ChatBuffer chatMessages = new ChatBuffer(CHAT_CAPACITY);
+    private ChatAdapter chatAdapter;
+    private Query chatQuery;
+    private ChildEventListener chatListener;
     private boolean chatListenerAdded = false;
+    private boolean loadingOlderChat = false;
     private ValueEventListener roomListener;
 
     @Override
@@ -63,6 +80,7 @@ public class GameActivity extends AppCompatActivity implements GameView {
 
         bindViews();
         readIntent();
+        uiBatcher = new FrameUpdateBatcher(this);
 
         if (isOnline) {
             initOnlineGame();
@@ -76,6 +94,10 @@ public class GameActivity extends AppCompatActivity implements GameView {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        Log.d("GameActivity", "UI updates: " + uiBatcher.getRequestedUpdates()
+                + " requested, " + uiBatcher.getAppliedFrames() + " frames, "
+                + uiBatcher.getCoalescedUpdates() + " coalesced");
+        uiBatcher.release();
         if (roomRef != null && roomListener != null) {
             roomRef.removeEventListener(roomListener);
         }
@@ -87,16 +109,42 @@ public class GameActivity extends AppCompatActivity implements GameView {
         removePlayerFromRoom();
     }
 
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        if (isOnline) return false;
+        getMenuInflater().inflate(R.menu.game_menu, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        int id = item.getItemId();
+
+        if (id == R.id.action_hint) {
+            if (controller != null) controller.onHintRequested();
+            return true;
+        } else if (id == R.id.action_auto_flag) {
+            if (controller != null) controller.onAutoFlagRequested();
+            return true;
+        } else if (id == R.id.action_heatmap) {
+            boolean newState = !item.isChecked();
+            item.setChecked(newState);
+            if (controller != null) controller.onHeatmapToggled(newState);
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
     private void bindViews() {
         statusText     = findViewById(R.id.statusText);
-        boardContainer = findViewById(R.id.boardContainer);
+        boardView      = findViewById(R.id.boardView);
         overlay        = findViewById(R.id.overlay);
         overlayTitle   = findViewById(R.id.overlayTitle);
         btnHome        = findViewById(R.id.btnHome);
 
         // קישור רכיבי הצ'אט מה-XML
         chatContainer  = findViewById(R.id.chatContainer);
-        chatListView   = findViewById(R.id.chatListView);
+        chatRecyclerView = findViewById(R.id.chatRecyclerView);
         etChatMessage  = findViewById(R.id.etChatMessage);
         btnSendChat    = findViewById(R.id.btnSendChat);
     }
@@ -107,6 +155,7 @@ public class GameActivity extends AppCompatActivity implements GameView {
         isOnline    = intent.getBooleanExtra("isOnline", false);
         roomId      = intent.getStringExtra("gameId");
         currentUser = intent.getStringExtra("currentUser");
+        noGuess     = intent.getBooleanExtra("noGuess", false);
     }
 
     private void initOfflineGame() {
@@ -114,7 +163,7 @@ public class GameActivity extends AppCompatActivity implements GameView {
         if (chatContainer != null) {
             chatContainer.setVisibility(View.GONE);
         }
-        controller = new OfflineGameController(this, size, currentUser);
+        controller = new OfflineGameController(this, size, currentUser, noGuess);
         createBoardUI();
     }
 
@@ -167,9 +216,14 @@ public class GameActivity extends AppCompatActivity implements GameView {
                     gameStarted = true;
                     otherPlayer = currentUser.equals(player1) ? player2 : player1;
 
+                    boolean coop = "coop".equals(snapshot.child("mode").getValue(String.class));
+                    int replica = currentUser.equals(player1) ? 0 : 1;
+
                     runOnUiThread(() -> {
-                        statusText.setText("Game started vs " + otherPlayer);
-                        controller = new OnlineGameController(GameActivity.this, size, roomId, currentUser, otherPlayer);
+                        statusText.setText((coop ? "Co-op with " : "Game started vs ") + otherPlayer);
+                        controller = coop
+                                ? new CoopGameController(GameActivity.this, size, roomId, replica)
+                                : new OnlineGameController(GameActivity.this, size, roomId, currentUser, otherPlayer);
                         createBoardUI();
                     });
                 }
@@ -180,57 +234,61 @@ public class GameActivity extends AppCompatActivity implements GameView {
     }
 
     private void createBoardUI() {
-        buttons = new Button[size][size];
-        boardContainer.removeAllViews();
-
-        for (int i = 0; i < size; i++) {
-            LinearLayout row = new LinearLayout(this);
-            row.setOrientation(LinearLayout.HORIZONTAL);
-            for (int j = 0; j < size; j++) {
-                Button btn = new Button(this);
-                btn.setLayoutParams(new LinearLayout.LayoutParams(100, 100));
-
-                final int r = i, c = j;
-                btn.setOnClickListener(v -> { if (controller != null) controller.onCellClicked(r, c); });
-                btn.setOnLongClickListener(v -> {
-                    if (controller != null) controller.onCellLongClicked(r, c);
-                    return true;
-                });
-                buttons[i][j] = btn;
-                row.addView(btn);
+        boardView.setBoardSize(size);
+        boardView.setOnCellTouchListener(new BoardView.OnCellTouchListener() {
+            @Override
+            public void onCellClick(int r, int c) {
+                if (controller != null) controller.onCellClicked(r, c);
             }
-            boardContainer.addView(row);
-        }
+
+            @Override
+            public void onCellLongClick(int r, int c) {
+                if (controller != null) controller.onCellLongClicked(r, c);
+            }
+        });
     }
 
     @Override
     public void updateStatus(String status) {
-        runOnUiThread(() -> statusText.setText(status));
+        uiBatcher.postStatus(status);
     }
 
     @Override
     public void updateCell(int r, int c, Cell cell) {
-        runOnUiThread(() -> {
-            Button btn = buttons[r][c];
-            if (cell.isRevealed()) {
-                btn.setEnabled(false);
-                if (cell.getHasMine()) {
-                    btn.setText("💣");
-                    btn.setBackgroundColor(Color.RED);
-                } else {
-                    btn.setBackgroundColor(Color.WHITE);
-                    int n = cell.getNeighborMines();
-                    btn.setText(n > 0 ? String.valueOf(n) : "");
-                }
-            } else {
-                btn.setText(cell.isFlagged() ? "🚩" : "");
-            }
-        });
+        boardView.updateCell(r, c, cell);
+    }
+
+    @Override
+    public void updateCells(Board board, int[] cells, int count) {
+        shownBoard = board;
+        uiBatcher.postCells(cells, count);
+    }
+
+    @Override
+    public void updateCells(Board board, int[] cells, int count, long tapNanos, Histogram tapToVisual) {
+        shownBoard = board;
+        uiBatcher.postCells(cells, count, tapNanos, tapToVisual);
+    }
+
+    // נקרא פעם אחת לכל פריים עם כל המשבצות שהשתנו מאז הפריים הקודם
+    @Override
+    public void applyCells(int[] cells, int count) {
+        if (shownBoard != null) boardView.applyCells(shownBoard, cells, count);
+    }
+
+    @Override
+    public void applyStatus(String status) {
+        statusText.setText(status);
     }
 
     @Override
     public void setBoardEnabled(boolean enabled) {
-        runOnUiThread(() -> boardContainer.setAlpha(enabled ? 1.0f : 0.5f));
+        boardView.setBoardEnabled(enabled);
+    }
+
+    @Override
+    public void showProbabilities(float[] probabilities) {
+        boardView.showProbabilities(probabilities);
     }
 
     @Override
@@ -266,36 +324,55 @@ public class GameActivity extends AppCompatActivity implements GameView {
     }
 
     private void detachChatListener() {
-        if (chatRef != null && chatListener != null && chatListenerAdded) {
-            chatRef.removeEventListener(chatListener);
+        if (chatQuery != null && chatListener != null && chatListenerAdded) {
+            chatQuery.removeEventListener(chatListener);
             chatListenerAdded = false;
         }
     }
 
     // --- לוגיקת הצ'אט החדשה המשולבת במסך ---
+    // כל הודעה מגיעה פעם אחת ונכנסת לרשימה לבד, בלי להוריד מחדש את כל הצ'אט
     private void setupChat() {
         if (chatAdapter == null) {
-            chatAdapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, chatMessagesList);
+            chatAdapter = new ChatAdapter(chatMessages);
+            chatLayout = new LinearLayoutManager(this);
+            chatLayout.setStackFromEnd(true);
         }
-        chatListView.setAdapter(chatAdapter);
+        chatRecyclerView.setLayoutManager(chatLayout);
+        chatRecyclerView.setAdapter(chatAdapter);
+        chatRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy < 0 && chatLayout.findFirstVisibleItemPosition() <= CHAT_PREFETCH) loadOlderChat();
+            }
+        });
 
         if (!chatListenerAdded) {
             chatListenerAdded = true;
-            chatListener = new ValueEventListener() {
+            // push() keys sort by time, so the last keys are the newest messages
+            chatQuery = chatRef.orderByKey().limitToLast(CHAT_LIVE);
+            chatListener = new ChildEventListener() {
                 @Override
-                public void onDataChange(@NonNull DataSnapshot snapshot) {
-                    chatMessagesList.clear();
-                    for (DataSnapshot doc : snapshot.getChildren()) {
-                        ChatMessage msg = doc.getValue(ChatMessage.class);
-                        if (msg != null) chatMessagesList.add(msg.getSender() + ": " + msg.getText());
+                public void onChildAdded(@NonNull DataSnapshot snapshot, String previousChildName) {
+                    ChatMessage msg = snapshot.getValue(ChatMessage.class);
+                    if (msg == null) return;
+                    // Follow new messages only if the player is looking at the bottom
+                    boolean atBottom = chatLayout.findLastVisibleItemPosition() >= chatMessages.size() - 2;
+                    if (!chatMessages.add(snapshot.getKey(), msg.getSender(), msg.getText())) return;
+                    chatAdapter.notifyItemInserted(chatMessages.getInsertedAt());
+                    if (chatMessages.getRemovedCount() > 0) {
+                        chatAdapter.notifyItemRangeRemoved(0, chatMessages.getRemovedCount());
                     }
-                    chatAdapter.notifyDataSetChanged();
-                    // גלילה אוטומטית להודעה האחרונה
-                    if (!chatMessagesList.isEmpty()) chatListView.setSelection(chatMessagesList.size() - 1);
+                    if (atBottom) chatRecyclerView.scrollToPosition(chatMessages.size() - 1);
                 }
+
+                // A message leaving the live window is still history on screen
+                @Override public void onChildRemoved(@NonNull DataSnapshot snapshot) {}
+                @Override public void onChildChanged(@NonNull DataSnapshot snapshot, String previousChildName) {}
+                @Override public void onChildMoved(@NonNull DataSnapshot snapshot, String previousChildName) {}
                 @Override public void onCancelled(@NonNull DatabaseError error) {}
             };
-            chatRef.addValueEventListener(chatListener);
+            chatQuery.addChildEventListener(chatListener);
         }
 
         btnSendChat.setOnClickListener(v -> {
@@ -306,4 +383,30 @@ public class GameActivity extends AppCompatActivity implements GameView {
             }
         });
     }
+
+    // One page of the messages before the oldest one held
+    private void loadOlderChat() {
+        String oldest = chatMessages.getOldestKey();
+        if (loadingOlderChat || oldest == null || !chatMessages.canLoadOlder()) return;
+        loadingOlderChat = true;
+        chatRef.orderByKey().endBefore(oldest).limitToLast(CHAT_PAGE)
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot snapshot) {
+                        loadingOlderChat = false;
+                        List<ChatBuffer.Entry> page = new ArrayList<>();
+                        for (DataSnapshot doc : snapshot.getChildren()) {
+                            ChatMessage msg = doc.getValue(ChatMessage.class);
+                            if (msg != null) page.add(new ChatBuffer.Entry(doc.getKey(), msg.getSender(), msg.getText()));
+                        }
+                        int added = chatMessages.addOlder(page, snapshot.getChildrenCount() < CHAT_PAGE);
+                        if (added > 0) chatAdapter.notifyItemRangeInserted(0, added);
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError error) {
+                        loadingOlderChat = false;
+                    }
+                });
+    }
 }
\ No newline at end of file
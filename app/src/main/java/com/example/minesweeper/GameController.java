@@ -4,4 +4,9 @@ public interface GameController {
     void onCellClicked(int r, int c);
     void onCellLongClicked(int r, int c);
     void onDestroy();
+
+    // Solver-backed helpers, offline only
+    default void onHintRequested() {}
+    default void onAutoFlagRequested() {}
+    default void onHeatmapToggled(boolean on) {}
 }
\ No newline at end of file
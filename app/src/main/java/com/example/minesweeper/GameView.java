@@ -1,9 +1,10 @@
 package com.example.minesweeper;
 
-public interface GameView {
-    void updateCell(int r, int c, Cell cell);
+public interface GameView extends BoardSurface {
     void updateStatus(String statusText);
-    void setBoardEnabled(boolean enabled);
+    // updateCells for a local move: tapToVisual gets the time from tapNanos (System.nanoTime()
+    // at the tap) until the frame with the cells has been drawn
+    void updateCells(Board board, int[] cells, int count, long tapNanos, Histogram tapToVisual);
     void showGameOver(boolean win);
     void showMessage(String message);
 }
\ No newline at end of file
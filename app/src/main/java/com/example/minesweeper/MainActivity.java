@@ -13,6 +13,7 @@ import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
@@ -22,35 +23,35 @@ import android.widget.Toast;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
 import com.journeyapps.barcodescanner.BarcodeEncoder;
 import com.journeyapps.barcodescanner.ScanContract;
 import com.journeyapps.barcodescanner.ScanOptions;
 import com.google.zxing.BarcodeFormat;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Random;
 
 public class MainActivity extends AppCompatActivity {
 
+    // גדלי לוח לפי מיקום הסליידר: 5..20 כמו קודם, ואחריהם לוחות גדולים עם זום
+    private static final int[] BOARD_SIZES = {
+            5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20,
+            25, 30, 40, 50, 75, 100, 150, 200, 300, 500, 750, 1000
+    };
+
     private SeekBar difficultySeek;
     private TextView difficultyLabel;
+    private CheckBox noGuessCheck;
     private TextView tvWelcome;
     private Button startBtn;
     private Button startOnlineBtn;
     private SharedPreferences prefs;
     private FirebaseAuth mAuth;
+    private Matchmaker matchmaker;
 
     // ActivityResultLauncher for Settings screen
     private final ActivityResultLauncher<Intent> settingsLauncher =
@@ -101,13 +102,14 @@ public class MainActivity extends AppCompatActivity {
         // View bindings
         difficultySeek = findViewById(R.id.difficultySeek);
         difficultyLabel = findViewById(R.id.difficultyLabel);
+        noGuessCheck = findViewById(R.id.noGuessCheck);
         tvWelcome = findViewById(R.id.tvWelcome);
         startBtn = findViewById(R.id.startBtn);
         startOnlineBtn = findViewById(R.id.btnOnlineMatch);
 
         // --- Difficulty Logic ---
         int savedDifficulty = prefs.getInt("difficulty", 5);
-        difficultySeek.setMax(15);
+        difficultySeek.setMax(BOARD_SIZES.length - 1);
         difficultySeek.setProgress(savedDifficulty);
         updateDifficultyLabel(savedDifficulty);
 
@@ -124,14 +126,19 @@ public class MainActivity extends AppCompatActivity {
             }
         });
 
+        noGuessCheck.setChecked(prefs.getBoolean("no_guess", false));
+        noGuessCheck.setOnCheckedChangeListener((button, checked) ->
+                prefs.edit().putBoolean("no_guess", checked).apply());
+
         // --- Buttons ---
 
         // 1. כפתור משחק רגיל (Offline)
         startBtn.setOnClickListener(v -> {
-            int size = difficultySeek.getProgress() + 5;
+            int size = boardSizeFor(difficultySeek.getProgress());
             Intent intent = new Intent(MainActivity.this, GameActivity.class);
             intent.putExtra("size", size);
             intent.putExtra("isOnline", false);
+            intent.putExtra("noGuess", noGuessCheck.isChecked());
             intent.putExtra("currentUser", getPlayerName());
             startActivity(intent);
         });
@@ -185,29 +192,40 @@ public class MainActivity extends AppCompatActivity {
     private void showMultiplayerDialog() {
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle("Online Multiplayer");
-        builder.setMessage("Do you want to create a new room or join an existing one?");
-
-        builder.setPositiveButton("Create Room", (dialog, which) -> generateRoomAndShowQR());
-        builder.setNegativeButton("Join Room", (dialog, which) -> showJoinDialog());
-
+        String[] options = {"Quick Match", "Create Room", "Co-op Room", "Join Room"};
+        builder.setItems(options, (dialog, which) -> {
+            if (which == 0) startQuickMatch();
+            else if (which == 1) generateRoomAndShowQR(false);
+            else if (which == 2) generateRoomAndShowQR(true);
+            else showJoinDialog();
+        });
         builder.show();
     }
 
-    private void generateRoomAndShowQR() {
-        String roomId = String.format("%04d", new Random().nextInt(10000));
-
-        DatabaseReference roomRef = FirebaseDatabase.getInstance()
-                .getReference("rooms")
-                .child(roomId);
+    // Each search gets its own Matchmaker; cancelling the last one is enough
+    private Matchmaker newMatchmaker() {
+        if (matchmaker != null) matchmaker.cancel();
+        matchmaker = new Matchmaker(new FirebaseMatchStore(), getPlayerName(), new Random());
+        return matchmaker;
+    }
 
-        // יצירת מבנה חדר
-        Map<String, Object> roomData = new HashMap<>();
-        roomData.put("status", "waiting");
-        roomData.put("host", getPlayerName());
+    // coop: both players reveal at once instead of taking turns; the guest reads the mode from the room
+    private void generateRoomAndShowQR(boolean coop) {
+        // הקוד נתפס בטרנזקציה, כך ששני מארחים לא יקבלו אותו חדר
+        newMatchmaker().createRoom(coop ? "coop" : "turns", new Matchmaker.Listener() {
+            @Override
+            public void onRoom(String roomId, boolean host) {
+                showRoomQR(roomId);
+            }
 
-        roomRef.setValue(roomData);
-        roomRef.child("players").child("player1").setValue(getPlayerName());
+            @Override
+            public void onFailed(String reason) {
+                Toast.makeText(MainActivity.this, reason, Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
 
+    private void showRoomQR(String roomId) {
         ImageView qrImageView = new ImageView(this);
         try {
             BarcodeEncoder barcodeEncoder = new BarcodeEncoder();
@@ -222,60 +240,52 @@ public class MainActivity extends AppCompatActivity {
         builder.setMessage("Ask your friend to scan this QR code or enter the number " + roomId + ".");
         builder.setView(qrImageView);
 
-        builder.setPositiveButton("Start Game", (dialog, which) -> {
-            Intent intent = new Intent(MainActivity.this, GameActivity.class);
-            intent.putExtra("isOnline", true);
-            intent.putExtra("size", 10);
-            intent.putExtra("gameId", roomId);
-            intent.putExtra("currentUser", getPlayerName());
-            startActivity(intent);
-        });
+        builder.setPositiveButton("Start Game", (dialog, which) -> startOnlineGame(roomId));
 
         builder.show();
     }
 
+    // The seat is taken in a transaction: of two guests joining at once, one gets in
     private void checkRoomAndJoin(String roomId) {
-        DatabaseReference roomRef = FirebaseDatabase.getInstance().getReference("rooms").child(roomId);
-
-        roomRef.addListenerForSingleValueEvent(new ValueEventListener() {
+        newMatchmaker().joinRoom(roomId, new Matchmaker.Listener() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                if (snapshot.exists()) {
-                    String status = snapshot.child("status").getValue(String.class);
-                    // שולפים את שם יוצר החדר (המארח) מתוך הנתונים
-                    String host = snapshot.child("host").getValue(String.class);
-                    String currentPlayerName = getPlayerName();
-
-                    if ("waiting".equals(status)) {
-                        // מוודאים שהשחקן לא מנסה להיכנס לחדר של עצמו
-                        if (currentPlayerName.equals(host)) {
-                            Toast.makeText(MainActivity.this, "You cannot play against yourself!, try offline game instead", Toast.LENGTH_SHORT).show();
-                        } else {
-                            startGameAsJoiner(roomId); // הכל תקין, אפשר להיכנס
-                        }
-                    } else {
-                        Toast.makeText(MainActivity.this, "Room is already full or playing", Toast.LENGTH_SHORT).show();
-                    }
-                } else {
-                    Toast.makeText(MainActivity.this, "Room not found! Please check the code.", Toast.LENGTH_SHORT).show();
-                }
+            public void onRoom(String roomId, boolean host) {
+                startOnlineGame(roomId); // הכל תקין, אפשר להיכנס
             }
 
             @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                Toast.makeText(MainActivity.this, "Database error: " + error.getMessage(), Toast.LENGTH_SHORT).show();
+            public void onFailed(String reason) {
+                Toast.makeText(MainActivity.this, reason, Toast.LENGTH_SHORT).show();
             }
         });
     }
 
-    private void startGameAsJoiner(String roomId) {
-        DatabaseReference roomRef = FirebaseDatabase.getInstance()
-                .getReference("rooms")
-                .child(roomId);
+    // Pairs with whoever else is looking; the room is made for both of us
+    private void startQuickMatch() {
+        Matchmaker search = newMatchmaker();
+        AlertDialog searching = new AlertDialog.Builder(this)
+                .setTitle("Quick Match")
+                .setMessage("Looking for an opponent...")
+                .setNegativeButton("Cancel", (dialog, which) -> search.cancel())
+                .setCancelable(false)
+                .show();
+
+        search.quickMatch(new Matchmaker.Listener() {
+            @Override
+            public void onRoom(String roomId, boolean host) {
+                searching.dismiss();
+                startOnlineGame(roomId);
+            }
 
-        roomRef.child("players").child("player2").setValue(getPlayerName());
-        roomRef.child("status").setValue("playing");
+            @Override
+            public void onFailed(String reason) {
+                searching.dismiss();
+                Toast.makeText(MainActivity.this, reason, Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
 
+    private void startOnlineGame(String roomId) {
         Intent intent = new Intent(MainActivity.this, GameActivity.class);
         intent.putExtra("isOnline", true);
         intent.putExtra("size", 10);
@@ -287,7 +297,7 @@ public class MainActivity extends AppCompatActivity {
     private void showJoinDialog() {
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle("Join Room");
-        builder.setMessage("Enter the 4-digit room code or scan the QR.");
+        builder.setMessage("Enter the room code or scan the QR.");
 
         final EditText input = new EditText(this);
         input.setInputType(InputType.TYPE_CLASS_NUMBER);
@@ -338,14 +348,19 @@ public class MainActivity extends AppCompatActivity {
         tvWelcome.setText("Welcome, " + displayInternal + "!");
     }
 
+    private static int boardSizeFor(int progress) {
+        return BOARD_SIZES[Math.max(0, Math.min(BOARD_SIZES.length - 1, progress))];
+    }
+
     private void updateDifficultyLabel(int progress) {
-        int size = progress + 5;
+        int size = boardSizeFor(progress);
         difficultyLabel.setText("Board Size: " + size + " x " + size);
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        if (matchmaker != null) matchmaker.cancel();
         try {
             unregisterReceiver(networkReceiver);
         } catch (IllegalArgumentException e) {
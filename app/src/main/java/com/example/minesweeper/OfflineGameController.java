@@ -9,61 +9,82 @@ import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
-import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
 public class OfflineGameController implements GameController {
     private final GameView view;
     private final int size;
     private final String currentUser; // נשמור את שם השחקן ללידרבורד
-    private Cell[][] board;
+    private final Board board;
+    private final RevealEngine revealer;
+    private IncrementalSolver solver; // מתעדכן בכל מהלך, בשביל רמז וסימון אוטומטי
+    private final boolean noGuess;
     private boolean isGameOver = false;
-    private int revealedCount = 0;
-    private int totalMines = 0;
+
+    // המוקשים מונחים רק בלחיצה הראשונה, כדי שהיא תמיד תפתח אזור בטוח
+    private static final long NO_GUESS_BUDGET_MS = 1500;
+    private boolean minesPlaced = false;
+    private boolean generating = false;
+
+    // מפת הסתברויות: מחושבת ברקע על עותק של הלוח, תוצאה ישנה נזרקת
+    private static final long HEATMAP_BUDGET_MS = 250;
+    private final ProbabilityEngine probabilityEngine = new ProbabilityEngine();
+    private ExecutorService heatmapExecutor;
+    private boolean heatmapOn = false;
+    private volatile int heatmapRequest = 0;
 
     // משתני טיימר לאופליין
     private int secondsElapsed = 0;
     private Handler timerHandler = new Handler(Looper.getMainLooper());
     private Runnable timerRunnable;
 
-    public OfflineGameController(GameView view, int size, String currentUser) {
+    public OfflineGameController(GameView view, int size, String currentUser, boolean noGuess) {
         this.view = view;
         this.size = size;
         this.currentUser = currentUser;
-        this.board = new Cell[size][size];
-        initBoard();
+        this.noGuess = noGuess;
+        this.board = new Board(size);
+        this.revealer = new RevealEngine(board);
         startTimer(); // הפעלת השעון
         view.setBoardEnabled(true);
     }
 
-    private void initBoard() {
-        Random r = new Random();
-        boolean[][] tempMines = new boolean[size][size];
-        totalMines = 0;
-
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                boolean isMine = r.nextInt(100) < 15;
-                tempMines[i][j] = isMine;
-                if (isMine) totalMines++;
-            }
+    private void placeMinesAndReveal(int r, int c) {
+        int mineCount = BoardGenerator.defaultMineCount(size);
+        if (!noGuess) {
+            BoardGenerator.placeMinesSafeAt(board, BoardGenerator.randomSeed(), mineCount, r, c);
+            onMinesPlaced();
+            onCellClicked(r, c);
+            return;
         }
 
-        int[] dx = {-1, -1, -1, 0, 0, 1, 1, 1};
-        int[] dy = {-1, 0, 1, -1, 1, -1, 0, 1};
-
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                int count = 0;
-                for (int k = 0; k < 8; k++) {
-                    int ni = i + dx[k];
-                    int nj = j + dy[k];
-                    if (ni >= 0 && nj >= 0 && ni < size && nj < size && tempMines[ni][nj]) {
-                        count++;
-                    }
-                }
-                board[i][j] = new Cell(tempMines[i][j], count);
-            }
-        }
+        // חיפוש לוח שאפשר לפתור בלי ניחוש רץ ברקע, והתוצאה חוזרת ל-main thread
+        generating = true;
+        view.setBoardEnabled(false);
+        view.updateStatus("Generating board...");
+        long seed = BoardGenerator.randomSeed();
+        new Thread(() -> {
+            NoGuessGenerator.Result result = NoGuessGenerator.find(size, mineCount, r, c, seed,
+                    NO_GUESS_BUDGET_MS, ForkJoinPool.commonPool());
+            timerHandler.post(() -> {
+                generating = false;
+                if (isGameOver) return;
+                BoardGenerator.placeMinesSafeAt(board, result.seed, mineCount, r, c);
+                onMinesPlaced();
+                view.setBoardEnabled(true);
+                view.showMessage(result.noGuess
+                        ? "No-guess board (" + result.tried + " tried, " + result.rejected + " rejected)"
+                        : "No no-guess board in time, safe start only (" + result.tried + " tried)");
+                onCellClicked(r, c);
+            });
+        }, "board-generator").start();
+    }
+
+    private void onMinesPlaced() {
+        minesPlaced = true;
+        solver = new IncrementalSolver(board);
     }
 
     private void startTimer() {
@@ -82,52 +103,109 @@ public class OfflineGameController implements GameController {
 
     @Override
     public void onCellClicked(int r, int c) {
-        if (isGameOver || board[r][c].isRevealed() || board[r][c].isFlagged()) return;
+        if (isGameOver || generating || board.isRevealed(r, c) || board.isFlagged(r, c)) return;
+
+        if (!minesPlaced) {
+            placeMinesAndReveal(r, c);
+            return;
+        }
 
-        if (board[r][c].getHasMine()) {
+        if (board.isMine(r, c)) {
+            board.setExploded(r, c);
             endGame(false);
             return;
         }
 
         floodFill(r, c);
         checkWin();
+        requestHeatmap();
     }
 
     private void floodFill(int r, int c) {
-        if (r < 0 || c < 0 || r >= size || c >= size) return;
-        Cell cell = board[r][c];
-        if (cell.isRevealed() || cell.isFlagged()) return;
-
-        cell.setRevealed(true);
-        revealedCount++;
-        view.updateCell(r, c, cell);
-
-        if (cell.getNeighborMines() == 0 && !cell.getHasMine()) {
-            int[] dx = {-1, -1, -1, 0, 0, 1, 1, 1};
-            int[] dy = {-1, 0, 1, -1, 1, -1, 0, 1};
-            for (int k = 0; k < 8; k++) {
-                floodFill(r + dx[k], c + dy[k]);
-            }
+        RevealResult opened = revealer.reveal(r, c);
+        solver.onRevealed(opened);
+        view.updateCells(board, opened.getCells(), opened.getCount());
+    }
+
+    // Opens one cell the solver has proven safe
+    @Override
+    public void onHintRequested() {
+        if (isGameOver || generating || !minesPlaced) return;
+        int cell = solver.peekSafe();
+        if (cell < 0) {
+            view.showMessage("No safe move, you have to guess");
+            return;
+        }
+        int r = board.row(cell);
+        int c = board.col(cell);
+        if (board.isFlagged(r, c)) {
+            board.setFlagged(r, c, false); // דגל שגוי של השחקן
         }
+        onCellClicked(r, c);
+    }
+
+    // Flags every mine the solver has proven so far
+    @Override
+    public void onAutoFlagRequested() {
+        if (isGameOver || generating || !minesPlaced) return;
+        int flagged = 0;
+        int cell;
+        while ((cell = solver.pollMine()) >= 0) {
+            int r = board.row(cell);
+            int c = board.col(cell);
+            if (board.isFlagged(r, c)) continue;
+            board.setFlagged(r, c, true);
+            view.updateCell(board, r, c);
+            flagged++;
+        }
+        view.showMessage("Flagged " + flagged + " mines");
     }
 
     @Override
     public void onCellLongClicked(int r, int c) {
-        if (isGameOver || board[r][c].isRevealed()) return;
+        if (isGameOver || generating || board.isRevealed(r, c)) return;
 
-        Cell cell = board[r][c];
-        cell.setFlagged(!cell.isFlagged());
-        view.updateCell(r, c, cell);
+        board.toggleFlag(r, c);
+        view.updateCell(board, r, c);
+    }
+
+    @Override
+    public void onHeatmapToggled(boolean on) {
+        heatmapOn = on;
+        if (on) {
+            requestHeatmap();
+        } else {
+            heatmapRequest++;
+            view.showProbabilities(null);
+        }
+    }
+
+    private void requestHeatmap() {
+        if (!heatmapOn || !minesPlaced || isGameOver) return;
+        if (heatmapExecutor == null) heatmapExecutor = Executors.newSingleThreadExecutor();
+
+        int request = ++heatmapRequest;
+        Board snapshot = board.copy();
+        solver.copyProvenMinesTo(snapshot);
+        heatmapExecutor.execute(() -> {
+            if (request != heatmapRequest) return; // another move came in while queued
+            ProbabilityEngine.Result result = probabilityEngine.compute(snapshot, HEATMAP_BUDGET_MS);
+            timerHandler.post(() -> {
+                if (request != heatmapRequest || isGameOver) return;
+                view.showProbabilities(result.probabilities);
+            });
+        });
     }
 
     private void checkWin() {
-        if (revealedCount == (size * size) - totalMines) {
+        if (board.isCleared()) {
             endGame(true);
         }
     }
 
     private void endGame(boolean didIWin) {
         isGameOver = true;
+        if (heatmapOn) view.showProbabilities(null);
         timerHandler.removeCallbacks(timerRunnable); // עוצר את הטיימר
 
         if (didIWin) {
@@ -135,14 +213,16 @@ public class OfflineGameController implements GameController {
             saveOfflineStatsToLeaderboard(secondsElapsed);
         } else {
             // אם הפסדנו, נחשוף את כל המוקשים כדי שהשחקן יראה איפה הם היו
+            int[] mines = new int[board.getMineCount()];
+            int count = 0;
             for (int i = 0; i < size; i++) {
                 for (int j = 0; j < size; j++) {
-                    if (board[i][j].getHasMine()) {
-                        board[i][j].setRevealed(true);
-                        view.updateCell(i, j, board[i][j]);
+                    if (board.isMine(i, j) && board.reveal(i, j)) {
+                        mines[count++] = board.index(i, j);
                     }
                 }
             }
+            view.updateCells(board, mines, count);
         }
         view.showGameOver(didIWin);
     }
@@ -179,5 +259,8 @@ public class OfflineGameController implements GameController {
         if (timerHandler != null) {
             timerHandler.removeCallbacks(timerRunnable);
         }
+        if (heatmapExecutor != null) {
+            heatmapExecutor.shutdownNow();
+        }
     }
 }
\ No newline at end of file
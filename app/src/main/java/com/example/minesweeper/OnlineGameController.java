@@ -1,183 +1,227 @@
 package com.example.minesweeper;
 
-import android.os.CountDownTimer;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 
 import com.google.firebase.database.*;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Random;
 
 public class OnlineGameController implements GameController {
     private final GameView view;
     private final int size;
-    private DatabaseReference gameRef;
+    // Firebase by default; LAN play hands in its own
+    private final GameTransport transport;
+    private boolean transportClosed = false;
 
-    // הפרדנו את המאזינים כדי שהצ'אט לא יפריע למהלכים
-    private ValueEventListener stateListener;
-    private ValueEventListener boardListener;
-
-    private final String gameId;
     private final String currentUser;
     private final String otherPlayer;
     private String currentTurn;
 
-    private CountDownTimer turnTimer;
+    // שעון התור לפי זמן השרת: ה-Runnable אחד מעדכן את התצוגה וגם מפעיל את ה-timeout
+    private final TurnClock turnClock = new TurnClock();
+    private final Handler turnHandler = new Handler(Looper.getMainLooper());
+    private final Runnable turnTick = this::onTurnTick;
+    private boolean turnIsMine;
     private boolean isGameOver = false;
     private long myCurrentMisses = 0;
 
-    private Cell[][] localBoard;
-
-    private final int[] dx = {-1, -1, -1, 0, 0, 1, 1, 1};
-    private final int[] dy = {-1, 0, 1, -1, 1, -1, 0, 1};
+    // localBoard follows the move log; the player sees moves.getBoard(), which adds our pending moves
+    private final Board localBoard;
+    private OptimisticMoveLog moves;
+    // Hashes the board into every move we publish and repairs ours when the other player's hash disagrees
+    private MerkleSync merkle;
+    private boolean boardLoaded = false;
+    private final SyncStats syncStats = new SyncStats();
+    private final Histogram tapToVisual = new Histogram("tap to visual", "us");
+    private final Histogram tapToEcho = new Histogram("tap to echo", "us");
 
     public OnlineGameController(GameView view, int size, String gameId, String currentUser, String otherPlayer) {
+        this(view, size, currentUser, otherPlayer, null, gameId);
+    }
+
+    // The transport's listeners must run on the main thread
+    public OnlineGameController(GameView view, int size, String currentUser, String otherPlayer,
+                                GameTransport transport) {
+        this(view, size, currentUser, otherPlayer, transport, null);
+    }
+
+    private OnlineGameController(GameView view, int size, String currentUser, String otherPlayer,
+                                 GameTransport transport, String gameId) {
         this.view = view;
         this.size = size;
-        this.gameId = gameId;
         this.currentUser = currentUser;
         this.otherPlayer = otherPlayer;
-        this.gameRef = FirebaseDatabase.getInstance()
-                .getReference("games")
-                .child(gameId);
-        this.localBoard = new Cell[size][size];
+        this.transport = transport != null ? transport : new FirebaseTransport(gameId, syncStats);
+        this.localBoard = new Board(size);
 
-        listenToFirebase();
+        listen();
     }
 
-    private void listenToFirebase() {
+    private void listen() {
         if (currentUser.equals("player1")) {
             createNewGame();
         }
 
-        // מאזין למצב המשחק (תור, סטרייקים, ומוודא שהיה שינוי אמיתי במשחק)
-        stateListener = gameRef.addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot snapshot) {
-                if (!snapshot.exists() || isGameOver) return;
-
-                // מושך רק את הנתונים שאכפת לנו מהם
-                Long myMisses = snapshot.child(currentUser + "_misses").getValue(Long.class);
-                Long otherMisses = snapshot.child(otherPlayer + "_misses").getValue(Long.class);
-                String newTurn = snapshot.child("playerTurn").getValue(String.class);
-                Long lastUpdate = snapshot.child("lastMoveTimestamp").getValue(Long.class);
-
-                if (myMisses != null) myCurrentMisses = myMisses;
-
-                // בדיקת ניצחון/הפסד
-                if (myMisses != null && myMisses >= 3) {
-                    endGame(false);
-                    return;
-                }
-                if (otherMisses != null && otherMisses >= 3) {
-                    endGame(true);
-                    return;
-                }
-
-                // בדיקה אם באמת התור עבר או שהמשחק התחיל
-                if (newTurn != null && (!newTurn.equals(currentTurn) || currentTurn == null)) {
-                    currentTurn = newTurn;
-                    boolean isMyTurn = currentUser.equals(currentTurn);
-                    view.setBoardEnabled(isMyTurn);
-                    startTurnTimer(isMyTurn);
-                }
-            }
+        transport.subscribeServerOffset(turnClock::setServerOffset);
 
-            @Override
-            public void onCancelled(DatabaseError error) {
-                view.showMessage("Connection error");
-            }
+        // מאזין למצב המשחק (תור, סטרייקים, ומוודא שהיה שינוי אמיתי במשחק)
+        // הפרדנו את המאזינים כדי שהצ'אט לא יפריע למהלכים
+        transport.subscribeState(this::onState);
+
+        // מאזין ללוח בנפרד: הלוח עצמו לא משתנה, אז אחרי הטעינה עוברים למאזין מהלכים
+        transport.subscribeGame(board -> {
+            if (isGameOver || boardLoaded) return;
+
+            // רק seed ומספר מוקשים עוברים ברשת; כל לקוח בונה את הלוח בעצמו
+            Object seed = board.get(BoardCodec.SEED);
+            Long mineCount = asLong(board.get(BoardCodec.MINE_COUNT));
+            if (!(seed instanceof String) || mineCount == null) return;
+
+            BoardGenerator.placeMines(localBoard, BoardCodec.decodeSeed((String) seed), mineCount.intValue());
+            moves = new OptimisticMoveLog(localBoard, tapToEcho);
+            merkle = new MerkleSync(currentUser, transport, moves, syncStats);
+            int[] all = new int[localBoard.cellCount()];
+            for (int i = 0; i < all.length; i++) all[i] = i;
+            view.updateCells(moves.getBoard(), all, all.length);
+            boardLoaded = true;
+
+            listenToMoves();
+            transport.subscribeSync(this::onSync);
         });
+    }
 
-        // מאזין ללוח בנפרד
-        boardListener = gameRef.child("board").addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot boardSnap) {
-                if (!boardSnap.exists() || isGameOver) return;
+    private void onState(Map<String, Object> state) {
+        if (isGameOver) return;
 
-                for (int i = 0; i < size; i++) {
-                    for (int j = 0; j < size; j++) {
-                        String key = i + "_" + j;
-                        DataSnapshot cellSnap = boardSnap.child(key);
+        // מושך רק את הנתונים שאכפת לנו מהם
+        Long myMisses = asLong(state.get(currentUser + "_misses"));
+        Long otherMisses = asLong(state.get(otherPlayer + "_misses"));
+        Object turn = state.get("playerTurn");
+        String newTurn = turn instanceof String ? (String) turn : null;
+        Long lastUpdate = asLong(state.get("lastMoveTimestamp"));
 
-                        if (cellSnap.exists()) {
-                            Cell cell = new Cell();
-                            cell.setRevealed(Boolean.TRUE.equals(cellSnap.child("revealed").getValue(Boolean.class)));
-                            cell.setHasMine(Boolean.TRUE.equals(cellSnap.child("hasMine").getValue(Boolean.class)));
+        if (myMisses != null) myCurrentMisses = myMisses;
 
-                            Long n = cellSnap.child("neighborMines").getValue(Long.class);
-                            cell.setNeighborMines(n == null ? 0 : n.intValue());
+        // בדיקת ניצחון/הפסד
+        if (myMisses != null && myMisses >= 3) {
+            endGame(false);
+            return;
+        }
+        if (otherMisses != null && otherMisses >= 3) {
+            endGame(true);
+            return;
+        }
 
-                            cell.setFlagged(Boolean.TRUE.equals(cellSnap.child("flagged").getValue(Boolean.class)));
+        // בדיקה אם באמת התור עבר או שהמשחק התחיל
+        if (newTurn != null && (!newTurn.equals(currentTurn) || currentTurn == null)) {
+            currentTurn = newTurn;
+            syncStats.onTurn();
+            boolean isMyTurn = currentUser.equals(currentTurn);
+            view.setBoardEnabled(isMyTurn);
+            // The turn started when the server stamped the move, not when we heard of it
+            long now = System.currentTimeMillis();
+            startTurnTimer(isMyTurn, lastUpdate != null ? lastUpdate : turnClock.serverNow(now));
+        }
+    }
 
-                            localBoard[i][j] = cell;
-                            view.updateCell(i, j, cell);
-                        }
-                    }
-                }
-            }
+    // Firebase hands numbers back as Long, the LAN frames as Integer or Long
+    private static Long asLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : null;
+    }
 
-            @Override
-            public void onCancelled(DatabaseError error) {}
+    // כל מהלך נשמר פעם אחת; כל לקוח מריץ אותו על הלוח שלו לפי הסדר.
+    // Echoes of our own moves only confirm them; a conflicting entry rolls the visible board back.
+    private void listenToMoves() {
+        transport.subscribeMoves(move -> {
+            if (isGameOver) return;
+            int before = moves.getConfirmedSeq();
+            int count = moves.onRemote(move);
+            syncStats.onMovesApplied(moves.getConfirmedSeq() - before, count);
+            if (count > 0) view.updateCells(moves.getBoard(), moves.getChanged(), count);
+            // Our pending moves lost their seqs; send them again under the new ones, each
+            // with the turn change it was first sent with
+            for (OptimisticMoveLog.Pending again : moves.getResend()) {
+                transport.publishMove(again.move, again.stateUpdates);
+            }
+            merkle.onConfirmed(move);
         });
     }
 
-    private void createNewGame() {
-        Map<String, Object> boardMap = new HashMap<>();
-        boolean[][] tempMines = new boolean[size][size];
-        Random r = new Random();
-
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                tempMines[i][j] = r.nextInt(100) < 15;
-            }
+    // בקשות ותשובות של תיקון הלוח; רק שורות שונות עוברות ברשת
+    private void onSync(Map<String, Object> message) {
+        if (isGameOver) return;
+        int count = merkle.onSync(message);
+        if (count == 0) return;
+        view.updateCells(moves.getBoard(), moves.getChanged(), count);
+        for (OptimisticMoveLog.Pending again : moves.getResend()) {
+            transport.publishMove(again.move, again.stateUpdates);
         }
+    }
 
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                int count = 0;
-                for (int k = 0; k < 8; k++) {
-                    int ni = i + dx[k];
-                    int nj = j + dy[k];
-                    if (ni >= 0 && nj >= 0 && ni < size && nj < size && tempMines[ni][nj]) count++;
-                }
-                Cell cell = new Cell(tempMines[i][j], count);
-                boardMap.put(i + "_" + j, cell);
-            }
-        }
+    private void closeTransport() {
+        if (transportClosed) return;
+        transportClosed = true;
+        transport.close();
+        Log.d("OnlineGame", "Board sync: " + syncStats.summary()
+                + (moves != null ? ", " + moves.getRollbacks() + " rollbacks" : ""));
+        Log.d("OnlineGame", tapToVisual.summary());
+        Log.d("OnlineGame", tapToEcho.summary());
+        Log.d("OnlineGame", turnClock.getSkew().summary());
+        Log.d("OnlineGame", turnClock.getStartLag().summary());
+        Log.d("OnlineGame", turnClock.getDeadlineError().summary());
+    }
 
-        Map<String, Object> game = new HashMap<>();
-        game.put("playerTurn", "player1");
-        game.put("board", boardMap);
-        game.put("status", "ACTIVE");
-        game.put(currentUser + "_misses", 0);
-        game.put(otherPlayer + "_misses", 0);
-        game.put("lastMoveTimestamp", ServerValue.TIMESTAMP); // חותמת זמן התחלתית
+    public Histogram getTapToVisual() { return tapToVisual; }
+    public Histogram getTapToEcho() { return tapToEcho; }
 
-        gameRef.setValue(game);
+    private void createNewGame() {
+        // The board itself is built from the seed by both clients when the listener fires
+        Map<String, Object> state = new HashMap<>();
+        state.put("playerTurn", "player1");
+        state.put("status", "ACTIVE");
+        state.put(currentUser + "_misses", 0);
+        state.put(otherPlayer + "_misses", 0);
+        state.put("lastMoveTimestamp", GameTransport.SERVER_TIME); // חותמת זמן התחלתית
+
+        transport.createGame(BoardCodec.newGame(BoardGenerator.randomSeed(), size,
+                BoardGenerator.defaultMineCount(size)), state);
     }
 
-    private void startTurnTimer(boolean isMyTurn) {
-        if (turnTimer != null) turnTimer.cancel();
+    private void startTurnTimer(boolean isMyTurn, long serverStart) {
+        turnHandler.removeCallbacks(turnTick);
+        turnIsMine = isMyTurn;
+        turnClock.startTurn(serverStart, isMyTurn, System.currentTimeMillis());
+        onTurnTick();
+    }
 
-        long timeLimit = isMyTurn ? 5000 : 6000;
+    private void stopTurnTimer() {
+        turnHandler.removeCallbacks(turnTick);
+        turnClock.stop();
+    }
 
-        turnTimer = new CountDownTimer(timeLimit, 1000) {
-            @Override
-            public void onTick(long millisUntilFinished) {
-                int secondsLeft = (int) (millisUntilFinished / 1000);
-                if (isMyTurn) {
-                    view.updateStatus("Your Turn! (" + secondsLeft + "s)");
-                } else {
-                    view.updateStatus("Opponent's Turn... (" + Math.min(secondsLeft, 5) + "s)");
-                }
-            }
+    // Runs on every whole second left and once more at the deadline itself
+    private void onTurnTick() {
+        if (merkle != null) merkle.expire();
+        if (!turnClock.isRunning()) return;
+        long now = System.currentTimeMillis();
+        long remaining = turnClock.remainingMs(now);
+        if (remaining == 0) {
+            turnClock.onTimeout(now);
+            handleTimeout(turnIsMine);
+            return;
+        }
 
-            @Override
-            public void onFinish() {
-                handleTimeout(isMyTurn);
-            }
-        }.start();
+        int secondsLeft = (int) ((remaining + 999) / 1000);
+        if (turnIsMine) {
+            view.updateStatus("Your Turn! (" + secondsLeft + "s)");
+        } else {
+            view.updateStatus("Opponent's Turn... (" + Math.min(secondsLeft, 5) + "s)");
+        }
+        long untilNextSecond = remaining % 1000;
+        turnHandler.postDelayed(turnTick, untilNextSecond == 0 ? 1000 : untilNextSecond);
     }
 
     private void handleTimeout(boolean isMyTurn) {
@@ -190,18 +234,17 @@ public class OnlineGameController implements GameController {
         Map<String, Object> updates = new HashMap<>();
         updates.put(currentUser + "_misses", newMisses);
         updates.put("playerTurn", otherPlayer);
-        updates.put("lastMoveTimestamp", ServerValue.TIMESTAMP);
+        updates.put("lastMoveTimestamp", GameTransport.SERVER_TIME);
 
-        gameRef.updateChildren(updates);
+        transport.updateState(updates);
     }
 
     private void endGame(boolean didIWin) {
         isGameOver = true;
-        if (turnTimer != null) turnTimer.cancel();
+        stopTurnTimer();
 
         // עצירת ההאזנה ללוח ולמצב, כדי שלא ירענן בטעות כשהמשחק נגמר
-        if (stateListener != null) gameRef.removeEventListener(stateListener);
-        if (boardListener != null) gameRef.child("board").removeEventListener(boardListener);
+        closeTransport();
 
         view.showGameOver(didIWin);
         view.updateStatus(didIWin ? "You Won! 🎉" : "You Lost! 💥");
@@ -230,69 +273,52 @@ public class OnlineGameController implements GameController {
             return;
         }
 
-        if (localBoard[r][c] == null) return;
-        Cell cell = localBoard[r][c];
-        if (cell.isRevealed() || cell.isFlagged()) return;
+        if (!boardLoaded) return;
+        merkle.expire();
+        if (merkle.isRepairing()) {
+            view.showMessage("Syncing the board...");
+            return;
+        }
+        if (!moves.changes(Move.REVEAL, r, c)) return;
 
-        if (turnTimer != null) turnTimer.cancel();
+        long tap = System.nanoTime();
+        stopTurnTimer();
 
         Map<String, Object> updates = new HashMap<>();
-
-        if (cell.getHasMine()) {
-            updates.put("board/" + r + "_" + c + "/revealed", true);
+        if (moves.getBoard().isMine(r, c)) {
             updates.put(currentUser + "_misses", 3);
-            updates.put("lastMoveTimestamp", ServerValue.TIMESTAMP);
-            gameRef.updateChildren(updates);
-            return;
+        } else {
+            updates.put("playerTurn", otherPlayer);
+            updates.put(currentUser + "_misses", 0);
         }
+        updates.put("lastMoveTimestamp", GameTransport.SERVER_TIME);
 
-        floodFill(r, c, updates);
-
-        updates.put("playerTurn", otherPlayer);
-        updates.put(currentUser + "_misses", 0);
-        updates.put("lastMoveTimestamp", ServerValue.TIMESTAMP);
-
-        gameRef.updateChildren(updates);
+        transport.publishMove(playLocal(Move.REVEAL, r, c, tap, updates), updates);
     }
 
-    private void floodFill(int r, int c, Map<String, Object> updates) {
-        if (r < 0 || c < 0 || r >= size || c >= size) return;
-
-        Cell cell = localBoard[r][c];
-        if (cell.isRevealed() || cell.isFlagged()) return;
-
-        cell.setRevealed(true);
-        updates.put("board/" + r + "_" + c + "/revealed", true);
-
-        if (cell.getNeighborMines() == 0 && !cell.getHasMine()) {
-            for (int k = 0; k < 8; k++) {
-                floodFill(r + dx[k], c + dy[k], updates);
-            }
-        }
+    // One log entry per move, whatever it opens. The move shows at once; the echo from
+    // the log later confirms it (or rolls it back)
+    private Move playLocal(int type, int r, int c, long tap, Map<String, Object> updates) {
+        Move move = moves.applyLocal(type, r, c, currentUser, updates);
+        view.updateCells(moves.getBoard(), moves.getChanged(), moves.getChangedCount(), tap, tapToVisual);
+        return merkle.stamp(move);
     }
 
     @Override
     public void onCellLongClicked(int r, int c) {
-        if (!currentUser.equals(currentTurn) || isGameOver) return;
-
-        boolean currentFlag = localBoard[r][c].isFlagged();
+        if (!currentUser.equals(currentTurn) || isGameOver || !boardLoaded) return;
+        merkle.expire();
+        if (merkle.isRepairing() || !moves.changes(Move.FLAG, r, c)) return;
 
         Map<String, Object> updates = new HashMap<>();
-        updates.put("board/" + r + "_" + c + "/flagged", !currentFlag);
-        updates.put("lastMoveTimestamp", ServerValue.TIMESTAMP);
+        updates.put("lastMoveTimestamp", GameTransport.SERVER_TIME);
 
-        gameRef.updateChildren(updates);
+        transport.publishMove(playLocal(Move.FLAG, r, c, System.nanoTime(), updates), updates);
     }
 
     @Override
     public void onDestroy() {
-        if (gameRef != null) {
-            if (stateListener != null) gameRef.removeEventListener(stateListener);
-            if (boardListener != null) gameRef.child("board").removeEventListener(boardListener);
-        }
-
-        if (turnTimer != null) {
-            turnTimer.cancel();
-        }
+        closeTransport();
+        stopTurnTimer();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,114 @@
+package com.example.minesweeper;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.util.LruCache;
+
+// One bitmap strip holding a pre-drawn tile for every cell state, so the board is
+// drawn with bitmap blits and never shapes text or looks up emoji fonts per cell.
+// Atlases are built for a few fixed tile sizes and kept across games.
+public class TileAtlas {
+
+    // Tile order matches BoardView states: 0..8 opened numbers, then these
+    static final int TILE_HIDDEN = 9;
+    static final int TILE_FLAGGED = 10;
+    static final int TILE_MINE = 11;
+    static final int TILE_EXPLODED = 12;
+    static final int TILE_COUNT = 13;
+
+    // Tiles are drawn at the smallest bucket that is not smaller than the cell
+    private static final int[] BUCKETS = {12, 16, 24, 32, 48, 64, 96, 128, 160};
+
+    private static final LruCache<String, TileAtlas> CACHE = new LruCache<>(6);
+
+    private static final int[] NUMBER_COLORS = {
+            Color.TRANSPARENT, 0xFF1976D2, 0xFF388E3C, 0xFFD32F2F, 0xFF7B1FA2,
+            0xFFFF8F00, 0xFF0097A7, 0xFF424242, 0xFF9E9E9E
+    };
+    private static final int[] NUMBER_COLORS_NIGHT = {
+            Color.TRANSPARENT, 0xFF64B5F6, 0xFF81C784, 0xFFE57373, 0xFFBA68C8,
+            0xFFFFB74D, 0xFF4DD0E1, 0xFFE0E0E0, 0xFFBDBDBD
+    };
+
+    private final Bitmap bitmap;
+    private final int tilePx;
+    private final boolean night;
+    private final Rect src = new Rect();
+
+    public static int bucketFor(float cellPx) {
+        for (int bucket : BUCKETS) {
+            if (bucket >= cellPx) return bucket;
+        }
+        return BUCKETS[BUCKETS.length - 1];
+    }
+
+    public static TileAtlas get(int tilePx, boolean night) {
+        String key = tilePx + (night ? "n" : "d");
+        TileAtlas atlas = CACHE.get(key);
+        if (atlas == null) {
+            atlas = new TileAtlas(tilePx, night);
+            CACHE.put(key, atlas);
+        }
+        return atlas;
+    }
+
+    private TileAtlas(int tilePx, boolean night) {
+        this.tilePx = tilePx;
+        this.night = night;
+        bitmap = Bitmap.createBitmap(tilePx * TILE_COUNT, tilePx, Bitmap.Config.ARGB_8888);
+        render(new Canvas(bitmap));
+    }
+
+    public int getTilePx() { return tilePx; }
+    public boolean isNight() { return night; }
+
+    public void draw(Canvas canvas, int tile, RectF dst, Paint paint) {
+        src.set(tile * tilePx, 0, (tile + 1) * tilePx, tilePx);
+        canvas.drawBitmap(bitmap, src, dst, paint);
+    }
+
+    private void render(Canvas canvas) {
+        Paint fill = new Paint();
+        Paint border = new Paint();
+        border.setStyle(Paint.Style.STROKE);
+        border.setColor(night ? 0xFF616161 : 0xFF9E9E9E);
+        Paint text = new Paint(Paint.ANTI_ALIAS_FLAG);
+        text.setTextAlign(Paint.Align.CENTER);
+        text.setFakeBoldText(true);
+        text.setTextSize(tilePx * 0.6f);
+        float baseline = tilePx / 2f - (text.descent() + text.ascent()) / 2;
+
+        int openColor = night ? 0xFF303030 : Color.WHITE;
+        int hiddenColor = night ? 0xFF616161 : 0xFFBDBDBD;
+        int[] numberColors = night ? NUMBER_COLORS_NIGHT : NUMBER_COLORS;
+
+        for (int tile = 0; tile < TILE_COUNT; tile++) {
+            int left = tile * tilePx;
+            float cx = left + tilePx / 2f;
+            String glyph = null;
+
+            if (tile <= 8) {
+                fill.setColor(openColor);
+                if (tile > 0) {
+                    glyph = String.valueOf(tile);
+                    text.setColor(numberColors[tile]);
+                }
+            } else if (tile == TILE_HIDDEN || tile == TILE_FLAGGED) {
+                fill.setColor(hiddenColor);
+                if (tile == TILE_FLAGGED) glyph = "🚩";
+            } else {
+                fill.setColor(tile == TILE_EXPLODED ? Color.RED : (night ? 0xFF8E2020 : 0xFFEF9A9A));
+                glyph = "💣";
+            }
+
+            canvas.drawRect(left, 0, left + tilePx, tilePx, fill);
+            if (glyph != null) canvas.drawText(glyph, cx, baseline, text);
+            canvas.drawRect(left + 0.5f, 0.5f, left + tilePx - 0.5f, tilePx - 0.5f, border);
+            text.setColor(Color.BLACK);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.minesweeper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BoardBenchmark {
+
+    @Param({"8", "64", "512", "4096"})
+    public int size;
+
+    private long seed;
+    private Board board;
+    private byte[] rowCounts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        board = BoardGenerator.generate(1, size, BoardGenerator.defaultMineCount(size));
+        rowCounts = new byte[size];
+    }
+
+    @Benchmark
+    public Board generate() {
+        return BoardGenerator.generate(seed++, size, BoardGenerator.defaultMineCount(size));
+    }
+
+    @Benchmark
+    public Board generateDense() {
+        return BoardGenerator.generate(seed++, size, size * size * 9 / 10);
+    }
+
+    // Word-level: whole rows through the bit-sliced adder
+    @Benchmark
+    public void neighborCountsByRow(Blackhole bh) {
+        for (int r = 0; r < size; r++) {
+            board.neighborCountsRow(r, rowCounts);
+            bh.consume(rowCounts);
+        }
+    }
+
+    // Per-cell: three bitCount windows per cell
+    @Benchmark
+    public int neighborCountsByCell() {
+        int sum = 0;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) sum += board.getNeighbors(r, c);
+        }
+        return sum;
+    }
+
+    // A sparse board for flood fill, generated once per iteration. A reveal is one-shot,
+    // so every call gets a fresh Board.copy() of it: a few array copies, where generating
+    // a 4096x4096 board again took far longer than the fill being measured
+    @State(Scope.Thread)
+    public static class SparseBoard {
+        @Param({"8", "64", "512", "4096"})
+        public int size;
+
+        Board pristine;
+        Board board;
+        RevealEngine engine;
+        int startR;
+        int startC;
+
+        @Setup(Level.Iteration)
+        public void generate() {
+            pristine = BoardGenerator.generate(size, size, Math.max(1, size * size / 200));
+            for (int idx = 0; idx < pristine.cellCount(); idx++) {
+                startR = pristine.row(idx);
+                startC = pristine.col(idx);
+                if (pristine.isQuiet(startR, startC)) return;
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void restore() {
+            board = pristine.copy();
+            engine = new RevealEngine(board);
+        }
+    }
+
+    @Benchmark
+    public int floodFill(SparseBoard sparse) {
+        return sparse.engine.reveal(sparse.startR, sparse.startC).getCount();
+    }
+
+    @Benchmark
+    public boolean winCheck() {
+        return board.isCleared();
+    }
+
+    @Benchmark
+    public int winCheckFullScan() {
+        return board.countHiddenSafe();
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.minesweeper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+// What a long match's chat costs one client, the old way against ChatBuffer:
+//   java -cp core/build/libs/core-jmh.jar com.example.minesweeper.ChatStream [messages]
+// Old: a value listener on the whole chat node, so every message re-downloads and
+// re-decodes everything and rebuilds every row's string. New: a child listener on the
+// last 50 (joining mid-match hands over the last 50 there are, then one entry per
+// message) into a buffer of 200, after scrolling back through history in pages of 30.
+// Bytes are JSON as the Realtime Database would send it. The new rows are only built
+// by the adapter for what is on screen.
+public final class ChatStream {
+
+    private static final int LIVE = 50;
+    private static final int PAGE = 30;
+    private static final int CAPACITY = 200;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        SplittableRandom rng = new SplittableRandom(9);
+        List<String> keys = new ArrayList<>();
+        List<Map<String, Object>> node = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> message = new HashMap<>();
+            message.put("sender", i % 2 == 0 ? "player1" : "player2");
+            message.put("text", words(rng));
+            keys.add(String.format("-N%08d", i)); // push() keys sort in send order
+            node.add(message);
+        }
+
+        // Old: each message hands over the whole node again
+        long oldBytes = 0, oldRows = 0, oldNanos = 0, entryBytes = 0;
+        for (int i = 0; i < count; i++) entryBytes += PayloadSize.jsonBytes(node.get(i)) + keys.get(i).length() + 3;
+        long nodeBytes = 0;
+        for (int n = 1; n <= count; n++) {
+            nodeBytes += PayloadSize.jsonBytes(node.get(n - 1)) + keys.get(n - 1).length() + 3;
+            oldBytes += nodeBytes;
+            long start = System.nanoTime();
+            List<String> rows = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                Map<String, Object> m = node.get(i);
+                rows.add(m.get("sender") + ": " + m.get("text"));
+            }
+            oldNanos += System.nanoTime() - start;
+            oldRows += rows.size();
+        }
+
+        // New: join mid-match, after half the messages, and get the last LIVE of them
+        ChatBuffer buffer = new ChatBuffer(CAPACITY);
+        Histogram add = new Histogram("buffer add", "ns");
+        int joined = count / 2;
+        long newBytes = 0, removed = 0;
+        for (int i = Math.max(0, joined - LIVE); i < joined; i++) newBytes += deliver(buffer, keys, node, i, add);
+
+        // Scroll all the way up: pages before the oldest held until the buffer is full
+        int pages = 0;
+        long pageBytes = 0;
+        while (buffer.canLoadOlder()) {
+            int end = keys.indexOf(buffer.getOldestKey());
+            List<ChatBuffer.Entry> page = new ArrayList<>();
+            for (int i = Math.max(0, end - PAGE); i < end; i++) {
+                Map<String, Object> m = node.get(i);
+                pageBytes += PayloadSize.jsonBytes(m) + keys.get(i).length() + 3;
+                page.add(new ChatBuffer.Entry(keys.get(i), (String) m.get("sender"), (String) m.get("text")));
+            }
+            buffer.addOlder(page, page.size() < PAGE);
+            pages++;
+        }
+        int history = buffer.size();
+
+        // Then the rest of the match arrives one message at a time
+        for (int i = joined; i < count; i++) {
+            newBytes += deliver(buffer, keys, node, i, add);
+            removed += buffer.getRemovedCount();
+        }
+        int live = count - Math.max(0, joined - LIVE);
+
+        System.out.printf("%d messages, %.0f bytes each%n", count, (double) entryBytes / count);
+        System.out.printf("old: %.1f MB downloaded, %d rows rebuilt, %.0f us per message%n",
+                oldBytes / 1e6, oldRows, oldNanos / 1000.0 / count);
+        System.out.printf("new: %.1f KB downloaded for %d live messages, %d trimmed from the top%n",
+                newBytes / 1e3, live, removed);
+        System.out.println(add.summary());
+        System.out.printf("history: %d pages, %.1f KB, %d messages held after scrolling up; %d held at the end (cap %d)%n",
+                pages, pageBytes / 1e3, history, buffer.size(), buffer.getCapacity());
+        boolean ordered = true;
+        for (int i = 1; i < buffer.size(); i++) ordered &= buffer.get(i - 1).key.compareTo(buffer.get(i).key) < 0;
+        boolean newest = buffer.size() > 0 && buffer.get(buffer.size() - 1).key.equals(keys.get(count - 1));
+        System.out.println("buffer " + (ordered && newest && buffer.size() <= CAPACITY ? "in order and capped" : "BROKEN"));
+        System.exit(ordered && newest ? 0 : 1);
+    }
+
+    // One child event: the entry's bytes, decoded into the buffer
+    private static int deliver(ChatBuffer buffer, List<String> keys, List<Map<String, Object>> node, int i,
+                               Histogram add) {
+        Map<String, Object> m = node.get(i);
+        long start = System.nanoTime();
+        buffer.add(keys.get(i), (String) m.get("sender"), (String) m.get("text"));
+        add.record(System.nanoTime() - start);
+        return PayloadSize.jsonBytes(m) + keys.get(i).length() + 3;
+    }
+
+    private static String words(SplittableRandom rng) {
+        String[] words = {"gg", "nice", "that was close", "your turn", "wow", "lucky", "again?", "ok"};
+        StringBuilder s = new StringBuilder(words[rng.nextInt(words.length)]);
+        for (int i = rng.nextInt(3); i > 0; i--) s.append(' ').append(words[rng.nextInt(words.length)]);
+        return s.toString();
+    }
+}
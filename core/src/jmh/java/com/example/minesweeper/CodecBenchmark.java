@@ -0,0 +1,122 @@
+package com.example.minesweeper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Packed board format (BoardCodec) against the old "i_j" -> Cell map. The packed
+// format carries the seed, not the mines, so decoding includes rebuilding the board.
+// Payload sizes: java -cp core/build/libs/core-jmh.jar com.example.minesweeper.CodecBenchmark
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CodecBenchmark {
+
+    static final long SEED = 7;
+
+    @Param({"10", "30", "50", "100"})
+    public int size;
+
+    private Board board;
+    private Map<String, Object> packed;
+    private int[] changed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        board = midGame(size);
+        packed = BoardCodec.encode(SEED, board);
+        changed = new int[board.cellCount()];
+    }
+
+    @Benchmark
+    public Map<String, Object> encodePacked() {
+        return BoardCodec.encode(SEED, board);
+    }
+
+    @Benchmark
+    public Map<String, Object> encodeNewGame() {
+        return BoardCodec.newGame(SEED, size, BoardGenerator.defaultMineCount(size));
+    }
+
+    @Benchmark
+    public Map<String, Object> encodeCellMap() {
+        return cellMap(board);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public int decodePacked() {
+        Board target = new Board(size);
+        BoardGenerator.placeMines(target, BoardCodec.decodeSeed((String) packed.get(BoardCodec.SEED)),
+                (Integer) packed.get(BoardCodec.MINE_COUNT));
+        Map<String, Object> revealed = (Map<String, Object>) packed.get(BoardCodec.REVEALED);
+        int count = 0;
+        for (int r = 0; r < size; r++) {
+            count = BoardCodec.applyRevealedRow(target, r, (String) revealed.get(BoardCodec.rowKey(r)), changed, count);
+        }
+        return count;
+    }
+
+    // A board a few moves in: default density, the first quiet cell opened, some flags
+    static Board midGame(int size) {
+        Board board = BoardGenerator.generate(SEED, size, BoardGenerator.defaultMineCount(size));
+        for (int i = 0; i < board.cellCount(); i++) {
+            int r = board.row(i), c = board.col(i);
+            if (!board.isMine(r, c) && board.getNeighbors(r, c) == 0) {
+                new RevealEngine(board).reveal(r, c);
+                break;
+            }
+        }
+        for (int i = 0; i < board.cellCount(); i += 7) {
+            if (board.isMine(board.row(i), board.col(i))) board.setFlagged(board.row(i), board.col(i), true);
+        }
+        return board;
+    }
+
+    // The old layout: every cell as a Cell bean, which Firebase stores as four named fields
+    static Map<String, Object> cellMap(Board board) {
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < board.size(); i++) {
+            for (int j = 0; j < board.size(); j++) {
+                Map<String, Object> cell = new HashMap<>();
+                cell.put("hasMine", board.isMine(i, j));
+                cell.put("neighborMines", board.getNeighbors(i, j));
+                cell.put("revealed", board.isRevealed(i, j));
+                cell.put("flagged", board.isFlagged(i, j));
+                map.put(i + "_" + j, cell);
+            }
+        }
+        return map;
+    }
+
+    public static void main(String[] args) {
+        System.out.println("size   cell map (nodes / bytes)   packed (nodes / bytes)   ratio   new game (bytes)");
+        for (int size : new int[]{10, 20, 30, 50, 75, 100}) {
+            Board board = midGame(size);
+            Map<String, Object> cells = cellMap(board);
+            Map<String, Object> packed = BoardCodec.encode(SEED, board);
+            int oldBytes = PayloadSize.jsonBytes(cells);
+            int newBytes = PayloadSize.jsonBytes(packed);
+            int newGame = PayloadSize.jsonBytes(BoardCodec.newGame(SEED, size, board.getMineCount()));
+            System.out.printf("%4d   %8d / %9d   %8d / %7d   %5.1fx   %8d%n", size, nodes(cells), oldBytes,
+                    nodes(packed), newBytes, (double) oldBytes / newBytes, newGame);
+        }
+    }
+
+    private static int nodes(Object value) {
+        if (!(value instanceof Map)) return 1;
+        int count = 1;
+        for (Object child : ((Map<?, ?>) value).values()) count += nodes(child);
+        return count;
+    }
+}
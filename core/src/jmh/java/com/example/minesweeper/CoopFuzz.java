@@ -0,0 +1,126 @@
+package com.example.minesweeper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Fuzzes the delivery order of the co-op CRDT:
+//   java -cp core/build/libs/core-jmh.jar com.example.minesweeper.CoopFuzz [trials] [replicas] [opsPerTrial]
+// In each trial the players act on their own replica while the network delivers ops
+// to the others in random order, sometimes twice, and sometimes not until the end.
+// Once everything is delivered every replica must be in the same state. Then all the
+// ops are replayed onto fresh replicas in shuffled orders with duplicates, and those
+// must land on that state too. Exits with status 1 on any difference. CoopBoardTest
+// runs the same fuzz at a small size under :core:check.
+public final class CoopFuzz {
+
+    private static final int SIZE = 12;
+    private static final int REPLAYS = 4;
+
+    public static void main(String[] args) {
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int replicas = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int opsPerTrial = args.length > 2 ? Integer.parseInt(args[2]) : 80;
+
+        int mismatches = 0;
+        long ops = 0, deliveries = 0, duplicates = 0, conflicts = 0, mergeNanos = 0;
+        for (int trial = 0; trial < trials; trial++) {
+            SplittableRandom rng = new SplittableRandom(trial);
+            Board mines = BoardGenerator.generate(trial, SIZE, BoardGenerator.defaultMineCount(SIZE));
+            CoopBoard[] players = new CoopBoard[replicas];
+            for (int p = 0; p < replicas; p++) players[p] = new CoopBoard(mines.copy(), p, replicas);
+
+            // In flight: op and the replica it is going to
+            List<CoopOp> inFlight = new ArrayList<>();
+            List<Integer> targets = new ArrayList<>();
+            List<CoopOp> all = new ArrayList<>();
+            int made = 0;
+            while (made < opsPerTrial || !inFlight.isEmpty()) {
+                if (made < opsPerTrial && (inFlight.isEmpty() || rng.nextInt(3) == 0)) {
+                    int p = rng.nextInt(replicas);
+                    CoopOp op = act(players[p], rng);
+                    made++;
+                    if (op == null) continue;
+                    all.add(op);
+                    for (int q = 0; q < replicas; q++) {
+                        if (q == p) continue;
+                        inFlight.add(op);
+                        targets.add(q);
+                    }
+                    continue;
+                }
+                int i = rng.nextInt(inFlight.size());
+                CoopOp op = inFlight.get(i);
+                int target = targets.get(i);
+                long start = System.nanoTime();
+                players[target].merge(op);
+                mergeNanos += System.nanoTime() - start;
+                deliveries++;
+                if (rng.nextInt(5) == 0) {
+                    duplicates++; // stays in flight for a second delivery
+                } else {
+                    int last = inFlight.size() - 1;
+                    inFlight.set(i, inFlight.get(last));
+                    targets.set(i, targets.get(last));
+                    inFlight.remove(last);
+                    targets.remove(last);
+                }
+            }
+            ops += all.size();
+            for (CoopBoard player : players) conflicts += player.getConflicts();
+
+            boolean same = true;
+            for (int p = 1; p < replicas; p++) same &= agree(players[0], players[p]);
+            for (int replay = 0; replay < REPLAYS; replay++) {
+                CoopBoard fresh = new CoopBoard(mines.copy(), replicas - 1, replicas);
+                List<CoopOp> order = new ArrayList<>(all);
+                for (int i = 0; i < all.size() / 4; i++) order.add(all.get(rng.nextInt(all.size())));
+                for (int i = order.size() - 1; i > 0; i--) {
+                    int j = rng.nextInt(i + 1);
+                    CoopOp t = order.get(i);
+                    order.set(i, order.get(j));
+                    order.set(j, t);
+                }
+                for (CoopOp op : order) fresh.merge(op);
+                same &= agree(players[0], fresh);
+            }
+            if (!same) {
+                mismatches++;
+                if (mismatches <= 5) System.out.println("trial " + trial + ": replicas differ");
+            }
+        }
+
+        System.out.printf("%d trials, %d replicas, %d ops, %d deliveries (%d duplicated), %d concurrent flag tie-breaks%n",
+                trials, replicas, ops, deliveries, duplicates, conflicts);
+        System.out.printf("%.0f ns per merge, %d trials with replicas that differ%n",
+                deliveries == 0 ? 0.0 : (double) mergeNanos / deliveries, mismatches);
+        System.exit(mismatches == 0 ? 0 : 1);
+    }
+
+    // Mostly reveals of hidden cells, some flag toggles, and now and then a mine
+    private static CoopOp act(CoopBoard player, SplittableRandom rng) {
+        Board board = player.getBoard();
+        for (int attempt = 0; attempt < 20; attempt++) {
+            int r = rng.nextInt(SIZE), c = rng.nextInt(SIZE);
+            int roll = rng.nextInt(10);
+            if (roll < 4) {
+                CoopOp op = player.flag(r, c);
+                if (op != null) return op;
+            } else if (!board.isMine(r, c) || roll == 9) {
+                CoopOp op = player.reveal(r, c);
+                if (op != null) return op;
+            }
+        }
+        return null;
+    }
+
+    private static boolean agree(CoopBoard a, CoopBoard b) {
+        if (!a.getBoard().sameState(b.getBoard())) return false;
+        for (int r = 0; r < SIZE; r++) {
+            for (int c = 0; c < SIZE; c++) {
+                if (a.isFlagSet(r, c) != b.isFlagSet(r, c)) return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.minesweeper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Games of two clients over delayed LoopbackHubs, with desyncs planted now and then:
+//   java -cp core/build/libs/core-jmh.jar com.example.minesweeper.DesyncDrill [games] [size] [delayMs] [jitterMs] [thinkMs] [syncLoss]
+// Players alternate. Before every INJECT_EVERY-th turn the player about to receive the
+// move gets a stray change on its boards (an extra cell opened, or a flag), as a client
+// bug would make. The hash on the next move has to catch it and MerkleSync repair it;
+// a player whose board is being repaired waits for the repair before tapping.
+// syncLoss (default 0.02) is the share of sync messages the hubs drop; a repair that
+// lost one times out (MerkleSync.expire) and the next move starts another.
+// Prints the desyncs caught and repaired, the rounds and bytes a repair took against
+// sending the whole board (BoardCodec.encode), and exits with status 1 if any game ends
+// with the clients apart. MerkleSyncTest runs a small drill under :core:check.
+public final class DesyncDrill {
+
+    private static final int TURNS = 60;
+    private static final int INJECT_EVERY = 6;
+
+    private final int size;
+    private final ScheduledExecutorService main = Executors.newSingleThreadScheduledExecutor();
+    private final Histogram rootHash = new Histogram("root hash per move", "ns");
+    private int planted;
+    private long snapshotBytes;
+
+    private final class Client {
+        final String name;
+        final OptimisticMoveLog moves;
+        final GameTransport transport;
+        final MerkleSync merkle;
+        final SyncStats stats = new SyncStats();
+
+        Client(String name, LoopbackHub hub, long seed) {
+            this.name = name;
+            this.moves = new OptimisticMoveLog(BoardGenerator.generate(seed, size,
+                    BoardGenerator.defaultMineCount(size)), null);
+            this.transport = hub.client(main);
+            this.merkle = new MerkleSync(name, transport, moves, stats);
+            transport.subscribeMoves(move -> {
+                moves.onRemote(move);
+                for (OptimisticMoveLog.Pending again : moves.getResend()) {
+                    transport.publishMove(again.move, again.stateUpdates);
+                }
+                merkle.onConfirmed(move);
+            });
+            transport.subscribeSync(message -> {
+                if (merkle.onSync(message) == 0) return;
+                for (OptimisticMoveLog.Pending again : moves.getResend()) {
+                    transport.publishMove(again.move, again.stateUpdates);
+                }
+            });
+        }
+
+        // A random safe cell that is still hidden, once the board is not being repaired
+        void tap(SplittableRandom rng) {
+            merkle.expire();
+            if (merkle.isRepairing()) {
+                main.schedule(() -> tap(rng), 5, TimeUnit.MILLISECONDS);
+                return;
+            }
+            Board board = moves.getBoard();
+            if (board.getSafeLeft() == 0) return;
+            int r, c;
+            do {
+                r = rng.nextInt(size);
+                c = rng.nextInt(size);
+            } while (board.isMine(r, c) || !moves.changes(Move.REVEAL, r, c));
+            Move move = moves.applyLocal(Move.REVEAL, r, c, name, new HashMap<>());
+            long start = System.nanoTime();
+            move = merkle.stamp(move);
+            rootHash.record(System.nanoTime() - start);
+            transport.publishMove(move, new HashMap<>());
+        }
+
+        // Opens a hidden safe cell or flags one, on the confirmed and the visible board alike
+        void corrupt(SplittableRandom rng, long seed) {
+            Board confirmed = moves.getConfirmedBoard();
+            if (confirmed.getSafeLeft() == 0) return;
+            int r, c;
+            do {
+                r = rng.nextInt(size);
+                c = rng.nextInt(size);
+            } while (confirmed.isMine(r, c) || confirmed.isRevealed(r, c) || confirmed.isFlagged(r, c));
+            planted++;
+            snapshotBytes += PayloadSize.jsonBytes(BoardCodec.encode(seed, confirmed));
+            boolean open = rng.nextBoolean();
+            for (Board board : new Board[]{confirmed, moves.getBoard()}) {
+                if (open) board.reveal(r, c);
+                else board.setFlagged(r, c, true);
+            }
+        }
+    }
+
+    private DesyncDrill(int size) {
+        this.size = size;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        long delayMs = args.length > 2 ? Long.parseLong(args[2]) : 20;
+        long jitterMs = args.length > 3 ? Long.parseLong(args[3]) : 10;
+        long thinkMs = args.length > 4 ? Long.parseLong(args[4]) : 300;
+        double syncLoss = args.length > 5 ? Double.parseDouble(args[5]) : 0.02;
+        System.exit(new DesyncDrill(size).run(games, delayMs, jitterMs, thinkMs, syncLoss) ? 0 : 1);
+    }
+
+    boolean run(int games, long delayMs, long jitterMs, long thinkMs, double syncLoss) throws Exception {
+        List<LoopbackHub> hubs = new ArrayList<>();
+        List<Client[]> clients = new ArrayList<>();
+        main.submit(() -> {
+            for (int g = 0; g < games; g++) {
+                LoopbackHub hub = new LoopbackHub(main, delayMs * 1000, jitterMs * 1000, g);
+                hub.setSyncLoss(syncLoss);
+                long seed = CodecBenchmark.SEED + g;
+                hubs.add(hub);
+                clients.add(new Client[]{new Client("player1", hub, seed), new Client("player2", hub, seed)});
+            }
+        }).get();
+
+        for (int g = 0; g < games; g++) {
+            Client[] pair = clients.get(g);
+            long seed = CodecBenchmark.SEED + g;
+            SplittableRandom rng = new SplittableRandom(g);
+            for (int turn = 0; turn < TURNS; turn++) {
+                int t = turn;
+                main.schedule(() -> {
+                    if (t % INJECT_EVERY == INJECT_EVERY - 1 && t < TURNS - INJECT_EVERY) {
+                        pair[(t + 1) % 2].corrupt(rng, seed);
+                    }
+                    pair[t % 2].tap(rng);
+                }, t * thinkMs + g * thinkMs / games, TimeUnit.MILLISECONDS);
+            }
+        }
+        Thread.sleep(TURNS * thinkMs + 20 * (delayMs + jitterMs) + 200
+                + (syncLoss > 0 ? 2 * MerkleSync.REPAIR_TIMEOUT_MS : 0));
+
+        boolean[] ok = new boolean[1];
+        main.submit(() -> {
+            int apart = 0, checks = 0, desyncs = 0, resyncs = 0, timeouts = 0, rounds = 0, rows = 0;
+            long bytes = 0, dropped = 0;
+            for (int g = 0; g < games; g++) {
+                Client a = clients.get(g)[0], b = clients.get(g)[1];
+                boolean same = a.moves.getConfirmedBoard().sameState(b.moves.getConfirmedBoard())
+                        && a.moves.getBoard().sameState(a.moves.getConfirmedBoard())
+                        && b.moves.getBoard().sameState(b.moves.getConfirmedBoard())
+                        && a.moves.getConfirmedSeq() == hubs.get(g).moveCount()
+                        && b.moves.getConfirmedSeq() == hubs.get(g).moveCount();
+                if (!same) apart++;
+                dropped += hubs.get(g).getSyncDropped();
+                for (Client client : clients.get(g)) {
+                    checks += client.stats.getHashChecks();
+                    desyncs += client.stats.getDesyncs();
+                    resyncs += client.stats.getResyncs();
+                    timeouts += client.stats.getResyncTimeouts();
+                    rounds += client.stats.getResyncRounds();
+                    rows += client.stats.getRowsRepaired();
+                    bytes += client.stats.getResyncBytes();
+                }
+            }
+            System.out.printf("%d games, %d desyncs planted, %d hash checks, %d desyncs caught, %d resynced%n",
+                    games, planted, checks, desyncs, resyncs);
+            System.out.printf("%d sync messages dropped, %d repairs timed out%n", dropped, timeouts);
+            System.out.printf("per resync: %.1f rounds, %.1f rows, %.0f bytes both ways; whole board %.0f bytes%n",
+                    resyncs == 0 ? 0.0 : (double) rounds / resyncs, resyncs == 0 ? 0.0 : (double) rows / resyncs,
+                    resyncs == 0 ? 0.0 : (double) bytes / resyncs, planted == 0 ? 0.0 : (double) snapshotBytes / planted);
+            System.out.println(rootHash.summary());
+            System.out.println(apart + " games with the clients apart");
+            ok[0] = apart == 0 && resyncs > 0;
+        }).get();
+        main.shutdownNow();
+        return ok[0];
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.minesweeper;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Move latency of LanTransport between a host and a guest on this machine:
+//   java -cp core/build/libs/core-jmh.jar com.example.minesweeper.LanLatency [moves] [host]
+// The guest publishes moves one at a time, each with a turn change, and we time
+// publish -> host listener (one way) and publish -> guest listener (the echo, what
+// confirms an optimistic move). With a host address only the guest runs here and the
+// other device must run "LanLatency host". Exits with status 1 if anything is lost.
+public final class LanLatency {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        if (args.length > 1 && args[1].equals("host")) {
+            serve();
+            return;
+        }
+        String address = args.length > 1 ? args[1] : null;
+        System.exit(run(count, address) ? 0 : 1);
+    }
+
+    // Keeps a host open for a guest on another device
+    private static void serve() throws Exception {
+        LanTransport host = LanTransport.host(LanTransport.DEFAULT_PORT, Runnable::run);
+        System.out.println("hosting on port " + host.getPort());
+        Thread.sleep(Long.MAX_VALUE);
+    }
+
+    private static boolean run(int count, String address) throws Exception {
+        ExecutorService hostMain = Executors.newSingleThreadExecutor();
+        ExecutorService guestMain = Executors.newSingleThreadExecutor();
+        LanTransport host = address == null ? LanTransport.host(0, hostMain) : null;
+        LanTransport guest = LanTransport.join(new InetSocketAddress(
+                address != null ? address : "127.0.0.1",
+                host != null ? host.getPort() : LanTransport.DEFAULT_PORT), guestMain);
+
+        Histogram oneWay = new Histogram("publish to host", "us");
+        Histogram echo = new Histogram("publish to echo", "us");
+        Map<Integer, Long> sent = new ConcurrentHashMap<>();
+        CountDownLatch[] next = {new CountDownLatch(1)};
+        CountDownLatch gameSeen = new CountDownLatch(1);
+        CountDownLatch chatSeen = new CountDownLatch(1);
+        Object[] lastState = new Object[1];
+
+        if (host != null) {
+            host.subscribeMoves(move -> {
+                Long t = sent.get(move.seq);
+                if (t != null) oneWay.record((System.nanoTime() - t) / 1000);
+            });
+            Map<String, Object> state = new HashMap<>();
+            state.put("playerTurn", "player1");
+            state.put("lastMoveTimestamp", GameTransport.SERVER_TIME);
+            host.createGame(BoardCodec.newGame(CodecBenchmark.SEED, 30, BoardGenerator.defaultMineCount(30)), state);
+        }
+        guest.subscribeGame(board -> gameSeen.countDown());
+        guest.subscribeState(state -> lastState[0] = state.get("playerTurn"));
+        guest.subscribeChat((sender, text) -> chatSeen.countDown());
+        guest.subscribeMoves(move -> {
+            Long t = sent.get(move.seq);
+            if (t != null) echo.record((System.nanoTime() - t) / 1000);
+            next[0].countDown();
+        });
+        boolean ok = gameSeen.await(5, TimeUnit.SECONDS);
+
+        int lost = 0;
+        for (int seq = 0; seq < count && ok; seq++) {
+            next[0] = new CountDownLatch(1);
+            Map<String, Object> updates = new HashMap<>();
+            updates.put("playerTurn", seq % 2 == 0 ? "player1" : "player2");
+            updates.put("lastMoveTimestamp", GameTransport.SERVER_TIME);
+            sent.put(seq, System.nanoTime());
+            guest.publishMove(new Move(seq, Move.REVEAL, seq % 30, seq / 30 % 30, "player2", 0), updates);
+            if (!next[0].await(1, TimeUnit.SECONDS)) lost++;
+        }
+        guest.sendChat("player2", "gg");
+        ok &= chatSeen.await(5, TimeUnit.SECONDS);
+        Thread.sleep(50);
+
+        if (host != null) System.out.println(oneWay.summary());
+        System.out.println(echo.summary());
+        System.out.println(guest.getBytesReceived() / Math.max(1, count) + " bytes received per move by the guest");
+        ok &= lost == 0 && (count == 0 || ((count - 1) % 2 == 0 ? "player1" : "player2").equals(lastState[0]));
+        System.out.println(count + " moves, " + lost + " lost, state and chat " + (ok ? "in sync" : "OUT OF SYNC"));
+
+        guest.close();
+        if (host != null) host.close();
+        hostMain.shutdownNow();
+        guestMain.shutdownNow();
+        return ok;
+    }
+}
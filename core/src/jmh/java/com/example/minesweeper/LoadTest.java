@@ -0,0 +1,252 @@
+package com.example.minesweeper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Load test of the online protocol, headless and offline:
+//   java -cp core/build/libs/core-jmh.jar com.example.minesweeper.LoadTest [games] [turns] [delayMs] [jitterMs] [thinkMs]
+// Every game is a LoopbackHub standing in for one games/<id> node, with network delay
+// and jitter on each write and delivery. Two players per game speak the protocol of
+// OnlineGameController: player 1 creates the game, player 2 joins a little later,
+// and they take turns publishing a move with its state update, sending a chat line
+// every few turns. Reveals are random safe cells, so some open large floods.
+// Reports per move: paths and bytes written (write amplification over the move entry
+// itself), bytes delivered per turn, listener callbacks per write (fan-out), and the
+// latency from publish to the opponent's listener. Exits with status 1 if the two
+// boards of any game differ at the end.
+public final class LoadTest {
+
+    private static final int SIZE = 16;
+    private static final int CHAT_EVERY = 5;
+    private static final int CALLBACK_THREADS = 4;
+
+    private final int turns;
+    private final long thinkMs;
+    private final ScheduledExecutorService network;
+    private final ScheduledExecutorService[] mains = new ScheduledExecutorService[CALLBACK_THREADS];
+    private final List<Game> games = new ArrayList<>();
+    private final CountDownLatch finished;
+    private final AtomicInteger clientCount = new AtomicInteger();
+
+    private LoadTest(int gameCount, int turns, long delayMs, long jitterMs, long thinkMs) {
+        this.turns = turns;
+        this.thinkMs = thinkMs;
+        this.network = Executors.newScheduledThreadPool(2);
+        for (int i = 0; i < mains.length; i++) mains[i] = Executors.newSingleThreadScheduledExecutor();
+        this.finished = new CountDownLatch(gameCount);
+        for (int g = 0; g < gameCount; g++) {
+            games.add(new Game(g, new LoopbackHub(network, delayMs * 1000, jitterMs * 1000, g)));
+        }
+    }
+
+    private final class Game {
+        final int id;
+        final LoopbackHub hub;
+        final Player[] players = new Player[2];
+        final long[] publishedAt;
+        boolean done;
+
+        Game(int id, LoopbackHub hub) {
+            this.id = id;
+            this.hub = hub;
+            // Resent moves may take seqs past the turn count
+            this.publishedAt = new long[turns * 2 + 16];
+        }
+
+        synchronized void finish() {
+            if (done) return;
+            done = true;
+            finished.countDown();
+        }
+
+        synchronized boolean isDone() { return done; }
+    }
+
+    private final class Player {
+        final Game game;
+        final String name;
+        final String other;
+        final ScheduledExecutorService main;
+        final GameTransport transport;
+        final SplittableRandom rng;
+        final Histogram moveLatency = new Histogram("publish to opponent", "us");
+        final Histogram tapToEcho = new Histogram("tap to echo", "us");
+        OptimisticMoveLog moves;
+        String currentTurn;
+
+        Player(Game game, String name, String other) {
+            this.game = game;
+            this.name = name;
+            this.other = other;
+            this.main = mains[clientCount.getAndIncrement() % mains.length];
+            this.transport = game.hub.client(main);
+            this.rng = new SplittableRandom(game.id * 2L + (name.equals("player1") ? 0 : 1));
+        }
+
+        // Same order as OnlineGameController.listen
+        void join() {
+            if (name.equals("player1")) {
+                Map<String, Object> state = new HashMap<>();
+                state.put("playerTurn", "player1");
+                state.put("status", "ACTIVE");
+                state.put(name + "_misses", 0);
+                state.put(other + "_misses", 0);
+                state.put("lastMoveTimestamp", GameTransport.SERVER_TIME);
+                transport.createGame(BoardCodec.newGame(game.id, SIZE, BoardGenerator.defaultMineCount(SIZE)), state);
+            }
+            transport.subscribeState(this::onState);
+            transport.subscribeGame(board -> {
+                if (moves != null) return;
+                Board local = new Board(SIZE);
+                BoardGenerator.placeMines(local, BoardCodec.decodeSeed((String) board.get(BoardCodec.SEED)),
+                        ((Number) board.get(BoardCodec.MINE_COUNT)).intValue());
+                moves = new OptimisticMoveLog(local, tapToEcho);
+                transport.subscribeMoves(this::onMove);
+                maybeTap();
+            });
+            transport.subscribeChat((sender, text) -> {});
+        }
+
+        void onState(Map<String, Object> state) {
+            Object turn = state.get("playerTurn");
+            if (!(turn instanceof String) || turn.equals(currentTurn)) return;
+            currentTurn = (String) turn;
+            maybeTap();
+        }
+
+        void onMove(Move move) {
+            if (!move.player.equals(name)) {
+                long sent;
+                synchronized (game) {
+                    sent = game.publishedAt[move.seq];
+                }
+                if (sent != 0) moveLatency.record((System.nanoTime() - sent) / 1000);
+            }
+            moves.onRemote(move);
+            for (OptimisticMoveLog.Pending again : moves.getResend()) {
+                publish(again.move, again.stateUpdates);
+            }
+            if (moves.getConfirmedSeq() >= turns) game.finish();
+        }
+
+        void maybeTap() {
+            if (moves == null || !name.equals(currentTurn) || game.isDone()) return;
+            main.schedule(this::tap, thinkMs, TimeUnit.MILLISECONDS);
+        }
+
+        // A random safe hidden cell, so the game lasts the whole run
+        void tap() {
+            if (game.isDone()) return;
+            Board board = moves.getBoard();
+            if (board.getSafeLeft() == 0 || moves.getNextSeq() >= turns) {
+                game.finish();
+                return;
+            }
+            int r, c;
+            do {
+                r = rng.nextInt(SIZE);
+                c = rng.nextInt(SIZE);
+            } while (board.isMine(r, c) || !moves.changes(Move.REVEAL, r, c));
+            Map<String, Object> updates = passTurn();
+            Move move = moves.applyLocal(Move.REVEAL, r, c, name, updates);
+            publish(move, updates);
+            if (move.seq % CHAT_EVERY == CHAT_EVERY - 1) transport.sendChat(name, "nice one");
+        }
+
+        Map<String, Object> passTurn() {
+            Map<String, Object> updates = new HashMap<>();
+            updates.put("playerTurn", other);
+            updates.put(name + "_misses", 0);
+            updates.put("lastMoveTimestamp", GameTransport.SERVER_TIME);
+            return updates;
+        }
+
+        void publish(Move move, Map<String, Object> updates) {
+            synchronized (game) {
+                if (move.seq < game.publishedAt.length) game.publishedAt[move.seq] = System.nanoTime();
+            }
+            transport.publishMove(move, updates);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int gameCount = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int turns = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+        long delayMs = args.length > 2 ? Long.parseLong(args[2]) : 30;
+        long jitterMs = args.length > 3 ? Long.parseLong(args[3]) : 20;
+        long thinkMs = args.length > 4 ? Long.parseLong(args[4]) : 50;
+        System.exit(new LoadTest(gameCount, turns, delayMs, jitterMs, thinkMs).run(delayMs + jitterMs) ? 0 : 1);
+    }
+
+    private boolean run(long worstDelayMs) throws Exception {
+        long start = System.nanoTime();
+        for (Game game : games) {
+            Player p1 = new Player(game, "player1", "player2");
+            Player p2 = new Player(game, "player2", "player1");
+            game.players[0] = p1;
+            game.players[1] = p2;
+            p1.main.execute(p1::join);
+            // The guest scans the code a moment later
+            p2.main.schedule(p2::join, p2.rng.nextLong(200), TimeUnit.MILLISECONDS);
+        }
+        long budget = 60_000 + (long) turns * (thinkMs + 4 * worstDelayMs) * 2;
+        boolean allFinished = finished.await(budget, TimeUnit.MILLISECONDS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        // Let the last deliveries land
+        Thread.sleep(10 * worstDelayMs + 100);
+
+        Histogram latency = new Histogram("publish to opponent", "us");
+        Histogram echo = new Histogram("tap to echo", "us");
+        long moveCount = 0, writes = 0, paths = 0, written = 0, deliveries = 0, delivered = 0, rollbacks = 0;
+        int mismatches = 0;
+        for (Game game : games) {
+            for (Player p : game.players) {
+                // Read each player's numbers on its own thread
+                p.main.submit(() -> {
+                    latency.addAll(p.moveLatency);
+                    echo.addAll(p.tapToEcho);
+                }).get();
+            }
+            Player a = game.players[0], b = game.players[1];
+            boolean same = a.main.submit(() -> a.moves.getConfirmedBoard().copy()).get()
+                    .sameState(b.main.submit(() -> b.moves.getConfirmedBoard().copy()).get());
+            if (!same) mismatches++;
+            rollbacks += a.moves.getRollbacks() + b.moves.getRollbacks();
+            moveCount += game.hub.moveCount();
+            writes += game.hub.getWrites();
+            paths += game.hub.getPathsWritten();
+            written += game.hub.getBytesWritten();
+            deliveries += game.hub.getDeliveries();
+            delivered += game.hub.getBytesDelivered();
+        }
+
+        int entryBytes = PayloadSize.jsonBytes(new Move(0, Move.REVEAL, 0, 0, "player1", 0)
+                .toMap(System.currentTimeMillis()));
+        // A turn is one move here; each player receives its share of the deliveries
+        long turnsPlayed = Math.max(1, moveCount);
+        System.out.printf("%d games of %d turns on %d callback threads, %.1f s, %.0f moves/s%s%n",
+                games.size(), turns, CALLBACK_THREADS, seconds, moveCount / seconds,
+                allFinished ? "" : " (some games did not finish)");
+        System.out.printf("write amplification: %.2f paths and %.0f bytes written per move (entry alone %d bytes, x%.2f)%n",
+                (double) paths / turnsPlayed, (double) written / turnsPlayed, entryBytes,
+                (double) written / turnsPlayed / entryBytes);
+        System.out.printf("bytes per turn: %.0f delivered per player%n", (double) delivered / turnsPlayed / 2);
+        System.out.printf("fan-out: %.2f listener callbacks per write, %.2f writes per move%n",
+                (double) deliveries / Math.max(1, writes), (double) writes / turnsPlayed);
+        System.out.println(latency.summary());
+        System.out.println(echo.summary());
+        System.out.println(moveCount + " moves, " + rollbacks + " rollbacks, " + mismatches + " games with boards that differ");
+
+        network.shutdownNow();
+        for (ScheduledExecutorService main : mains) main.shutdownNow();
+        return allFinished && mismatches == 0;
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.minesweeper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Matchmaking under load, against a LoopbackMatchStore with network delay and jitter:
+//   java -cp core/build/libs/core-jmh.jar com.example.minesweeper.MatchmakingLoad [players] [perSecond] [delayMs] [jitterMs]
+// Quick match: players arrive at random (Poisson) at perSecond on average and each
+// asks its own Matchmaker for a quick match. Prints the pairing latency from asking to
+// being told the room, for the player who waited and the one who took the ticket.
+// Rooms: as many hosts create rooms at once, then two joiners race for every room.
+// Prints how often the old way (a random 4-digit code, written blind) would have
+// handed two hosts the same room, against the codes claimed now.
+// Exits with status 1 if a player is left unmatched (but the odd one out), two
+// players share a seat, or a room gets two second players.
+public final class MatchmakingLoad {
+
+    private final ScheduledExecutorService main = Executors.newSingleThreadScheduledExecutor();
+    private final LoopbackMatchStore store;
+    private final Histogram waited = new Histogram("pairing, queued first", "ms");
+    private final Histogram took = new Histogram("pairing, took a ticket", "ms");
+    private final Map<String, List<String>> seats = new HashMap<>();
+    private final List<Matchmaker> matchmakers = new ArrayList<>();
+    private final SplittableRandom seeds = new SplittableRandom(11);
+    private int matched;
+    private int failed;
+
+    private MatchmakingLoad(long delayMs, long jitterMs) {
+        this.store = new LoopbackMatchStore(main, delayMs * 1000, jitterMs * 1000, 25);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int players = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        double perSecond = args.length > 1 ? Double.parseDouble(args[1]) : 200;
+        long delayMs = args.length > 2 ? Long.parseLong(args[2]) : 40;
+        long jitterMs = args.length > 3 ? Long.parseLong(args[3]) : 20;
+        MatchmakingLoad load = new MatchmakingLoad(delayMs, jitterMs);
+        boolean ok = load.quickMatch(players, perSecond) & load.rooms(players);
+        load.main.shutdownNow();
+        System.exit(ok ? 0 : 1);
+    }
+
+    private boolean quickMatch(int players, double perSecond) throws Exception {
+        SplittableRandom rng = new SplittableRandom(7);
+        long at = 0;
+        for (int i = 0; i < players; i++) {
+            at += (long) (-Math.log(1 - rng.nextDouble()) / perSecond * 1e6);
+            String name = "player" + i;
+            main.schedule(() -> join(name), at, TimeUnit.MICROSECONDS);
+        }
+        long deadline = System.currentTimeMillis() + at / 1000 + 15_000;
+        while (System.currentTimeMillis() < deadline && done() < players - 1) Thread.sleep(50);
+        // Let the last rooms land
+        long writes;
+        do {
+            writes = store.getWrites();
+            Thread.sleep(500);
+        } while (writes != store.getWrites() && System.currentTimeMillis() < deadline + 5000);
+
+        boolean[] ok = new boolean[1];
+        main.submit(() -> {
+            int apart = 0;
+            Set<String> seated = new HashSet<>();
+            Map<String, Map<String, Object>> rooms = store.getNodes(Matchmaker.ROOMS);
+            for (Map.Entry<String, List<String>> room : seats.entrySet()) {
+                List<String> pair = room.getValue();
+                Map<String, Object> node = rooms.get(room.getKey());
+                Object players2 = node == null ? null : node.get("players");
+                boolean same = pair.size() == 2 && players2 instanceof Map
+                        && ((Map<?, ?>) players2).values().containsAll(pair);
+                if (!same) apart++;
+                for (String player : pair) if (!seated.add(player)) apart++;
+            }
+            int queued = store.getNodes(Matchmaker.QUEUE).size();
+            long transactions = store.getTransactions();
+            int lost = 0, rescans = 0;
+            for (Matchmaker matchmaker : matchmakers) {
+                lost += matchmaker.getLostTakes();
+                rescans += matchmaker.getRescans();
+            }
+            System.out.printf("quick match: %d players, %d paired into %d rooms, %d unmatched, %d tickets left%n",
+                    players, matched, seats.size(), players - matched, queued);
+            System.out.printf("  %d transactions, %.2f round trips each, %d lost to another joiner, %d rescans, %d queries%n",
+                    transactions, (double) store.getTries() / Math.max(1, transactions), lost, rescans,
+                    store.getQueries());
+            System.out.println("  " + waited.summary());
+            System.out.println("  " + took.summary());
+            System.out.println("  " + apart + " rooms with a wrong pair");
+            ok[0] = apart == 0 && players - matched <= 1 && failed == 0;
+        }).get();
+        return ok[0];
+    }
+
+    private int done() throws Exception {
+        return main.submit(() -> matched).get();
+    }
+
+    private void join(String name) {
+        Matchmaker matchmaker = new Matchmaker(store.client(main), name, new Random(seeds.nextLong()));
+        matchmakers.add(matchmaker);
+        long start = System.nanoTime();
+        matchmaker.quickMatch(new Matchmaker.Listener() {
+            @Override
+            public void onRoom(String roomId, boolean host) {
+                (host ? waited : took).record((System.nanoTime() - start) / 1_000_000);
+                seats.computeIfAbsent(roomId, k -> new ArrayList<>()).add(name);
+                matched++;
+            }
+
+            @Override
+            public void onFailed(String reason) {
+                failed++;
+            }
+        });
+    }
+
+    // Hosts all create rooms at once, then two joiners race for each
+    private boolean rooms(int hosts) throws Exception {
+        Random old = new Random(3);
+        Set<Integer> picked = new HashSet<>();
+        int shared = 0;
+        for (int i = 0; i < hosts; i++) if (!picked.add(old.nextInt(10000))) shared++;
+        int oldCollisions = shared;
+
+        List<String> codes = new ArrayList<>();
+        int[] failures = new int[1];
+        List<Matchmaker> creators = new ArrayList<>();
+        main.submit(() -> {
+            for (int i = 0; i < hosts; i++) {
+                Matchmaker matchmaker = new Matchmaker(store.client(main), "host" + i, new Random(seeds.nextLong()));
+                creators.add(matchmaker);
+                matchmaker.createRoom("turns", listener(codes, failures));
+            }
+        }).get();
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (System.currentTimeMillis() < deadline && count(codes, failures) < hosts) Thread.sleep(50);
+
+        List<String> joined = new ArrayList<>();
+        int[] refused = new int[1];
+        main.submit(() -> {
+            for (String code : codes) {
+                for (int j = 0; j < 2; j++) {
+                    new Matchmaker(store.client(main), "guest" + j + "-" + code, new Random(seeds.nextLong()))
+                            .joinRoom(code, listener(joined, refused));
+                }
+            }
+        }).get();
+        deadline = System.currentTimeMillis() + 15_000;
+        while (System.currentTimeMillis() < deadline && count(joined, refused) < 2 * codes.size()) Thread.sleep(50);
+
+        boolean[] ok = new boolean[1];
+        main.submit(() -> {
+            int collisions = 0;
+            Map<Integer, Integer> lengths = new HashMap<>();
+            for (Matchmaker matchmaker : creators) collisions += matchmaker.getCollisions();
+            for (String code : codes) lengths.merge(code.length(), 1, Integer::sum);
+            int distinct = new HashSet<>(codes).size();
+            int seconds = 0;
+            Map<String, Map<String, Object>> rooms = store.getNodes(Matchmaker.ROOMS);
+            for (String code : codes) {
+                Object players = rooms.get(code).get("players");
+                if (players instanceof Map && ((Map<?, ?>) players).containsKey("player2")) seconds++;
+            }
+            System.out.printf("rooms: %d hosts at once; old way %d would have shared a code with another host%n",
+                    hosts, oldCollisions);
+            System.out.printf("  claimed %d distinct codes (digits: %s), %d taken codes skipped, %d failed%n",
+                    distinct, lengths, collisions, failures[0]);
+            System.out.printf("  two joiners per room: %d joined, %d refused, %d rooms with a second player%n",
+                    joined.size(), refused[0], seconds);
+            ok[0] = distinct == codes.size() && codes.size() + failures[0] == hosts
+                    && joined.size() == codes.size() && seconds == codes.size() && new HashSet<>(joined).size() == joined.size();
+        }).get();
+        return ok[0];
+    }
+
+    private int count(List<String> rooms, int[] failures) throws Exception {
+        return main.submit(() -> rooms.size() + failures[0]).get();
+    }
+
+    private static Matchmaker.Listener listener(List<String> rooms, int[] failures) {
+        return new Matchmaker.Listener() {
+            @Override
+            public void onRoom(String roomId, boolean host) {
+                rooms.add(roomId);
+            }
+
+            @Override
+            public void onFailed(String reason) {
+                failures[0]++;
+            }
+        };
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.minesweeper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Replaying the move log against writing every opened row (the previous protocol).
+// Convergence check and write sizes:
+//   java -cp core/build/libs/core-jmh.jar com.example.minesweeper.MoveLogBenchmark
+// plays random games, delivers each log to a second client shuffled and with
+// duplicates, and exits with status 1 if the two boards ever differ (MoveLogTest runs
+// the same check on small boards under ./gradlew :core:check). It also counts
+// the entries a client decodes per move with a value listener on the whole log
+// (every change hands over every entry) and with child events (one entry each),
+// and the bytes a turn change delivers with the turn listener on the whole game
+// node (board, moves and chat included) and on the state subtree alone.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MoveLogBenchmark {
+
+    @Param({"30", "100"})
+    public int size;
+
+    private List<Move> moves;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        moves = play(CodecBenchmark.SEED, size, new ArrayList<>());
+    }
+
+    @Benchmark
+    public int replayGame() {
+        MoveLog log = new MoveLog(BoardGenerator.generate(CodecBenchmark.SEED, size,
+                BoardGenerator.defaultMineCount(size)));
+        int changed = 0;
+        for (Move move : moves) changed += log.offer(move);
+        return changed;
+    }
+
+    // A random game on the seeded board: mostly safe reveals, some flags, one
+    // final mine. Also records the bytes the old protocol wrote for each reveal.
+    static List<Move> play(long seed, int size, List<Integer> rowBytes) {
+        MoveLog writer = new MoveLog(BoardGenerator.generate(seed, size, BoardGenerator.defaultMineCount(size)));
+        Board board = writer.getBoard();
+        SplittableRandom rng = new SplittableRandom(seed * 31 + size);
+        List<Move> moves = new ArrayList<>();
+        boolean exploded = false;
+        while (!exploded && !board.isCleared()) {
+            int r = rng.nextInt(size), c = rng.nextInt(size);
+            if (board.isRevealed(r, c)) continue;
+            int type = rng.nextInt(5) == 0 ? Move.FLAG : Move.REVEAL;
+            if (type == Move.REVEAL && board.isFlagged(r, c)) continue;
+            if (type == Move.REVEAL && board.isMine(r, c)) {
+                if (rng.nextInt(50) != 0) continue;
+                exploded = true;
+            }
+            Move move = new Move(moves.size(), type, r, c, moves.size() % 2 == 0 ? "player1" : "player2",
+                    1_700_000_000_000L + moves.size());
+            writer.offer(move);
+            moves.add(move);
+            if (type == Move.REVEAL) rowBytes.add(rowWriteBytes(board, writer));
+        }
+        return moves;
+    }
+
+    // What the previous protocol sent for that reveal: every touched row, re-encoded
+    private static int rowWriteBytes(Board board, MoveLog writer) {
+        Map<String, Object> updates = new HashMap<>();
+        int[] changed = writer.getChanged();
+        for (int i = 0; i < writer.getChangedCount(); i++) {
+            int row = board.row(changed[i]);
+            updates.put("board/revealed/" + BoardCodec.rowKey(row), BoardCodec.encodeRow(board, row, false));
+        }
+        return PayloadSize.jsonBytes(updates);
+    }
+
+    public static void main(String[] args) {
+        int games = 0, mismatches = 0;
+        System.out.println("size   avg moves   log entry (bytes, max)   row writes (bytes, max per reveal)");
+        for (int size : new int[]{10, 30, 50, 100}) {
+            long maxEntry = 0, maxRows = 0, totalMoves = 0;
+            for (long seed = 1; seed <= 200; seed++) {
+                List<Integer> rowBytes = new ArrayList<>();
+                List<Move> moves = play(seed, size, rowBytes);
+                for (Move move : moves) {
+                    String key = "moves/" + Move.key(move.seq);
+                    maxEntry = Math.max(maxEntry, PayloadSize.jsonBytes(
+                            Collections.singletonMap(key, move.toMap(move.timestamp))));
+                }
+                for (int bytes : rowBytes) maxRows = Math.max(maxRows, bytes);
+                totalMoves += moves.size();
+
+                Board reference = BoardGenerator.generate(seed, size, BoardGenerator.defaultMineCount(size));
+                MoveLog inOrder = new MoveLog(reference);
+                for (Move move : moves) inOrder.offer(move);
+                if (!converges(seed, size, moves, reference)) mismatches++;
+                games++;
+            }
+            System.out.printf("%4d   %9d   %22d   %34d%n", size, totalMoves / 200, maxEntry, maxRows);
+        }
+
+        System.out.println();
+        System.out.println("size   entries decoded per move: value listener   child events");
+        for (int size : new int[]{10, 30, 50, 100}) {
+            List<Move> moves = play(CodecBenchmark.SEED, size, new ArrayList<>());
+            SyncStats whole = replay(moves, size, true);
+            SyncStats child = replay(moves, size, false);
+            System.out.printf("%4d   %40.1f   %12.1f%n", size, whole.entriesPerMove(), child.entriesPerMove());
+        }
+
+        System.out.println();
+        System.out.println("size   chat   bytes per turn: whole game node   state subtree + new move");
+        for (int size : new int[]{10, 50, 100}) {
+            List<Move> moves = play(CodecBenchmark.SEED, size, new ArrayList<>());
+            for (int chat : new int[]{0, 100, 1000}) {
+                Map<String, Object> state = state();
+                Map<String, Object> log = new HashMap<>();
+                for (Move move : moves) log.put(Move.key(move.seq), move.toMap(move.timestamp));
+                Map<String, Object> game = new HashMap<>(state);
+                game.put("board", BoardCodec.newGame(CodecBenchmark.SEED, size, BoardGenerator.defaultMineCount(size)));
+                game.put("moves", log);
+                game.put("chat", chat(chat));
+                Move last = moves.get(moves.size() - 1);
+                int narrow = PayloadSize.jsonBytes(state) + PayloadSize.jsonBytes(last.toMap(last.timestamp));
+                System.out.printf("%4d   %4d   %31d   %24d%n", size, chat, PayloadSize.jsonBytes(game), narrow);
+            }
+        }
+
+        System.out.println(games + " games, " + mismatches + " mismatches");
+        if (mismatches > 0) System.exit(1);
+    }
+
+    private static Map<String, Object> state() {
+        Map<String, Object> state = new HashMap<>();
+        state.put("playerTurn", "player2");
+        state.put("status", "ACTIVE");
+        state.put("player1_misses", 0);
+        state.put("player2_misses", 1);
+        state.put("lastMoveTimestamp", 1_700_000_000_000L);
+        return state;
+    }
+
+    // Chat messages as push() keys to {sender, text}
+    private static Map<String, Object> chat(int messages) {
+        Map<String, Object> chat = new HashMap<>();
+        for (int i = 0; i < messages; i++) {
+            Map<String, Object> message = new HashMap<>();
+            message.put("sender", i % 2 == 0 ? "player1" : "player2");
+            message.put("text", "good luck, message " + i);
+            chat.put(String.format("-NxChatKey%010d", i), message);
+        }
+        return chat;
+    }
+
+    private static SyncStats replay(List<Move> moves, int size, boolean wholeLog) {
+        MoveLog log = new MoveLog(BoardGenerator.generate(CodecBenchmark.SEED, size,
+                BoardGenerator.defaultMineCount(size)));
+        SyncStats stats = new SyncStats();
+        for (int i = 0; i < moves.size(); i++) {
+            for (int j = wholeLog ? 0 : i; j <= i; j++) {
+                Move move = Move.fromMap(moves.get(j).toMap(moves.get(j).timestamp));
+                stats.onEntryDecoded();
+                if (move.seq < log.getNextSeq()) continue;
+                int before = log.getNextSeq();
+                int count = log.offer(move);
+                stats.onMovesApplied(log.getNextSeq() - before, count);
+            }
+        }
+        return stats;
+    }
+
+    // Second client: the same log with every entry delivered twice, in a shuffled order
+    private static boolean converges(long seed, int size, List<Move> moves, Board reference) {
+        List<Move> delivery = new ArrayList<>(moves);
+        delivery.addAll(moves);
+        Collections.shuffle(delivery, new Random(seed));
+        MoveLog other = new MoveLog(BoardGenerator.generate(seed, size, BoardGenerator.defaultMineCount(size)));
+        for (Move move : delivery) other.offer(move);
+        return other.getNextSeq() == moves.size() && other.getBoard().sameState(reference);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.minesweeper;
+
+import java.util.HashMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Two clients playing optimistically through a delayed LoopbackHub, no network needed:
+//   java -cp core/build/libs/core-jmh.jar com.example.minesweeper.OptimisticPlay [delayMs] [jitterMs]
+// Players alternate, each tapping once the previous move has come back, and every
+// seventh turn both tap at once (a timeout racing a move) so their moves take the
+// same seq. Prints tap-to-visual (optimistic) against tap-to-echo (what a tap cost
+// before), the rollbacks, and exits with status 1 if the clients disagree.
+public final class OptimisticPlay {
+
+    private static final int SIZE = 30;
+    private static final int TURNS = 100;
+
+    private final ScheduledExecutorService main = Executors.newSingleThreadScheduledExecutor();
+    private final SplittableRandom rng = new SplittableRandom(11);
+
+    private final class Client {
+        final String name;
+        final OptimisticMoveLog moves;
+        final GameTransport transport;
+        final Histogram tapToVisual = new Histogram("tap to visual", "us");
+        final Histogram tapToEcho = new Histogram("tap to echo", "us");
+
+        Client(String name, LoopbackHub hub) {
+            this.name = name;
+            this.moves = new OptimisticMoveLog(BoardGenerator.generate(CodecBenchmark.SEED, SIZE,
+                    BoardGenerator.defaultMineCount(SIZE)), tapToEcho);
+            this.transport = hub.client(main);
+            transport.subscribeMoves(move -> {
+                moves.onRemote(move);
+                for (OptimisticMoveLog.Pending again : moves.getResend()) {
+                    transport.publishMove(again.move, again.stateUpdates);
+                }
+            });
+        }
+
+        // A random safe cell that is still hidden, as a player who does not want to lose would pick
+        void tap() {
+            Board board = moves.getBoard();
+            if (board.getSafeLeft() == 0) return;
+            int r, c;
+            do {
+                r = rng.nextInt(SIZE);
+                c = rng.nextInt(SIZE);
+            } while (board.isMine(r, c) || !moves.changes(Move.REVEAL, r, c));
+            long tap = System.nanoTime();
+            Move move = moves.applyLocal(Move.REVEAL, r, c, name, new HashMap<>());
+            tapToVisual.record((System.nanoTime() - tap) / 1000);
+            transport.publishMove(move, new HashMap<>());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        long delayMs = args.length > 0 ? Long.parseLong(args[0]) : 60;
+        long jitterMs = args.length > 1 ? Long.parseLong(args[1]) : 40;
+        System.exit(new OptimisticPlay().run(delayMs, jitterMs) ? 0 : 1);
+    }
+
+    boolean run(long delayMs, long jitterMs) throws Exception {
+        LoopbackHub hub = new LoopbackHub(main, delayMs * 1000, jitterMs * 1000, 5);
+        Client[] clients = new Client[2];
+        main.submit(() -> {
+            clients[0] = new Client("player1", hub);
+            clients[1] = new Client("player2", hub);
+        }).get();
+
+        // A turn every 1.5 worst-case round trips, so a tap always sees the previous move
+        long period = Math.max(1, 3 * (delayMs + jitterMs));
+        for (int turn = 0; turn < TURNS; turn++) {
+            int t = turn;
+            main.schedule(() -> {
+                clients[t % 2].tap();
+                if (t % 7 == 6) clients[(t + 1) % 2].tap();
+            }, t * period, TimeUnit.MILLISECONDS);
+        }
+        Thread.sleep(TURNS * period + 10 * (delayMs + jitterMs) + 100);
+
+        boolean[] ok = new boolean[1];
+        main.submit(() -> {
+            Client a = clients[0], b = clients[1];
+            for (Client client : clients) {
+                System.out.println(client.name + ": " + client.tapToVisual.summary());
+                System.out.println(client.name + ": " + client.tapToEcho.summary());
+                System.out.println(client.name + ": " + client.moves.getRollbacks() + " rollbacks, "
+                        + client.moves.getPendingCount() + " pending");
+            }
+            ok[0] = a.moves.getPendingCount() == 0 && b.moves.getPendingCount() == 0
+                    && a.moves.getConfirmedSeq() == hub.moveCount()
+                    && b.moves.getConfirmedSeq() == hub.moveCount()
+                    && a.moves.getConfirmedBoard().sameState(b.moves.getConfirmedBoard())
+                    && a.moves.getBoard().sameState(a.moves.getConfirmedBoard())
+                    && b.moves.getBoard().sameState(b.moves.getConfirmedBoard());
+            System.out.println(hub.moveCount() + " moves in the log, clients "
+                    + (ok[0] ? "identical" : "DIFFER"));
+        }).get();
+        main.shutdownNow();
+        return ok[0];
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.minesweeper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// Solver (full rescan every pass) against IncrementalSolver (only the numbers a move touched)
+@BenchmarkMode(Mode.AverageTime)
+public class SolverBenchmark {
+
+    // A fresh board for each whole-game solve
+    @State(Scope.Thread)
+    public static class Game {
+        @Param({"64", "500"})
+        public int size;
+
+        Board board;
+        int start;
+        long seed;
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            board = new Board(size);
+            start = size / 2;
+            BoardGenerator.placeMinesSafeAt(board, seed++, BoardGenerator.defaultMineCount(size), start, start);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean fullRescanGame(Game game) {
+        return new Solver(game.board).solveFrom(game.start, game.start);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean incrementalGame(Game game) {
+        return new IncrementalSolver(game.board).solveFrom(game.start, game.start);
+    }
+
+    // A game in progress, played one proven-safe move per call
+    @State(Scope.Thread)
+    public static class Live {
+        @Param({"64", "500"})
+        public int size;
+
+        Board board;
+        RevealEngine revealer;
+        IncrementalSolver solver;
+        long seed;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            board = new Board(size);
+            restart();
+        }
+
+        // Runs once per game (about size * size / 4 moves), so it barely shows in the average
+        void restart() {
+            int start = size / 2;
+            board.clear();
+            BoardGenerator.placeMinesSafeAt(board, seed++, BoardGenerator.defaultMineCount(size), start, start);
+            revealer = new RevealEngine(board);
+            solver = new IncrementalSolver(board);
+            solver.onRevealed(revealer.reveal(start, start));
+        }
+    }
+
+    // The cost a hint / auto-play step adds to a move: update, deduce, pick the next cell
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int incrementalMove(Live live) {
+        int cell = live.solver.pollSafe();
+        if (cell < 0) {
+            live.restart();
+            return -1;
+        }
+        live.solver.onRevealed(live.revealer.reveal(live.board.row(cell), live.board.col(cell)));
+        return cell;
+    }
+
+    // The same hint without kept state: rebuild the frontier from the whole board
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int rescanHint(Live live) {
+        return new IncrementalSolver(live.board).peekSafe();
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.minesweeper;
+
+import java.util.SplittableRandom;
+
+// Where each client puts the end of a turn, in true server time, with deadlines taken
+// from when the turn change arrived (the old CountDownTimers) and from TurnClock:
+//   java -cp core/build/libs/core-jmh.jar com.example.minesweeper.TurnDeadlines
+// Each client has its own clock skew (up to 2 s), the offset estimate is off by up
+// to 20 ms, and the turn change reaches each client 50 ms plus an exponential delay
+// with a mean of 150 ms later than the server stamped it.
+public final class TurnDeadlines {
+
+    private static final int TURNS = 10_000;
+
+    public static void main(String[] args) {
+        SplittableRandom rng = new SplittableRandom(3);
+        Histogram oldError = new Histogram("receive-time deadline error", "ms");
+        Histogram oldDisagree = new Histogram("receive-time clients apart", "ms");
+        Histogram newError = new Histogram("server-time deadline error", "ms");
+        Histogram newDisagree = new Histogram("server-time clients apart", "ms");
+
+        TurnClock[] clocks = {new TurnClock(), new TurnClock()};
+        long[] skew = {rng.nextLong(-2000, 2001), rng.nextLong(-2000, 2001)};
+        long serverStart = 1_700_000_000_000L;
+        for (int turn = 0; turn < TURNS; turn++) {
+            serverStart += 3000 + rng.nextInt(3000);
+            long[] oldDeadline = new long[2];
+            long[] newDeadline = new long[2];
+            for (int p = 0; p < 2; p++) {
+                long offsetError = rng.nextLong(-20, 21);
+                clocks[p].setServerOffset(-skew[p] + offsetError);
+                long arrival = serverStart + 50 + (long) (-150 * Math.log(1 - rng.nextDouble()));
+
+                // Old: 5 s from whenever the turn change showed up
+                oldDeadline[p] = arrival + TurnClock.TURN_MS;
+
+                // New: the local moment TurnClock says the server reaches the deadline,
+                // plus up to a frame of scheduler lateness
+                long localArrival = arrival + skew[p];
+                clocks[p].startTurn(serverStart, true, localArrival);
+                long localFire = localArrival + clocks[p].remainingMs(localArrival) + rng.nextInt(17);
+                clocks[p].onTimeout(localFire);
+                newDeadline[p] = localFire - skew[p];
+            }
+            long intended = serverStart + TurnClock.TURN_MS;
+            oldError.record(oldDeadline[0] - intended);
+            newError.record(newDeadline[0] - intended);
+            oldDisagree.record(Math.abs(oldDeadline[0] - oldDeadline[1]));
+            newDisagree.record(Math.abs(newDeadline[0] - newDeadline[1]));
+        }
+
+        System.out.println(oldError.summary());
+        System.out.println(newError.summary());
+        System.out.println(oldDisagree.summary());
+        System.out.println(newDisagree.summary());
+        System.out.println(clocks[0].getStartLag().summary());
+        System.out.println(clocks[0].getDeadlineError().summary());
+    }
+}
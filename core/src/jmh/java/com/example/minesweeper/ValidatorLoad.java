@@ -0,0 +1,230 @@
+package com.example.minesweeper;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Load on the server-authoritative validator:
+//   java -cp core/build/libs/core-jmh.jar com.example.minesweeper.ValidatorLoad [games] [workers] [thinkMs] [seconds] [socketGames]
+// In process: every game has two players who only know what the validator told them
+// and tap a random cell they have not seen open, thinkMs after the previous result; a
+// lost or won game starts over on a new board. Then over TCP: socketGames games
+// through a ValidatorServer on localhost, timing intent to result. Prints throughput,
+// validator latency and queue depth. Exits with status 1 if a result ever showed a
+// mine before the game was lost, or if a socket game did not finish.
+public final class ValidatorLoad {
+
+    private static final int SIZE = 16;
+    private static final int MINES = BoardGenerator.defaultMineCount(SIZE);
+
+    private static final AtomicLong leaks = new AtomicLong();
+
+    // What the two players of one game have seen
+    private static final class View {
+        final String id;
+        final byte[] seen = new byte[SIZE * SIZE];
+        final SplittableRandom rng;
+        String turn;
+        int finished;
+
+        View(String id, long seed) {
+            this.id = id;
+            this.rng = new SplittableRandom(seed);
+            reset();
+        }
+
+        synchronized void reset() {
+            Arrays.fill(seen, (byte) 0);
+            turn = "player1";
+        }
+
+        // Returns whether the game is over
+        synchronized boolean apply(MoveValidator.Result result) {
+            if (result.outcome == MoveValidator.REJECTED) return false;
+            for (int i = 0; i < result.clues.length; i++) {
+                if (result.clues[i] < 0 && result.outcome != MoveValidator.MINE) leaks.incrementAndGet();
+                seen[result.cells[i]] = 1;
+            }
+            turn = result.nextTurn;
+            if (result.outcome == MoveValidator.OK) return false;
+            finished++;
+            return true;
+        }
+
+        synchronized int pick() {
+            int cell;
+            do {
+                cell = rng.nextInt(SIZE * SIZE);
+            } while (seen[cell] != 0);
+            return cell;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        long thinkMs = args.length > 2 ? Long.parseLong(args[2]) : 100;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int socketGames = args.length > 4 ? Integer.parseInt(args[4]) : 50;
+
+        inProcess(games, workers, thinkMs, seconds);
+        boolean ok = overSockets(socketGames, workers);
+        System.out.println(leaks.get() + " mines shown before a game was lost");
+        System.exit(ok && leaks.get() == 0 ? 0 : 1);
+    }
+
+    private static void inProcess(int gameCount, int workers, long thinkMs, int seconds) throws Exception {
+        ScheduledExecutorService players = Executors.newScheduledThreadPool(2);
+        View[] views = new View[gameCount];
+        MoveValidator[] validator = new MoveValidator[1];
+        long[] results = new long[1];
+        validator[0] = new MoveValidator(workers, result -> {
+            View view = views[Integer.parseInt(result.gameId)];
+            boolean over = view.apply(result);
+            synchronized (results) {
+                results[0]++;
+            }
+            if (over) validator[0].createGame(view.id, SIZE, MINES, "player1", "player2");
+            players.schedule(() -> tap(validator[0], view), thinkMs, TimeUnit.MILLISECONDS);
+        });
+        for (int g = 0; g < gameCount; g++) {
+            views[g] = new View(Integer.toString(g), g);
+            validator[0].createGame(views[g].id, SIZE, MINES, "player1", "player2");
+        }
+        // Spread the first taps over one think time so the games do not move in lockstep
+        SplittableRandom start = new SplittableRandom(1);
+        for (View view : views) {
+            players.schedule(() -> tap(validator[0], view), start.nextLong(Math.max(1, thinkMs)), TimeUnit.MILLISECONDS);
+        }
+
+        Thread.sleep(seconds * 1000L);
+        players.shutdownNow();
+        long done;
+        synchronized (results) {
+            done = results[0];
+        }
+        int finished = 0;
+        for (View view : views) finished += view.finished;
+        System.out.printf("in process: %d games on %d workers, %.0f intents/s, %d games finished, max queue depth %d%n",
+                gameCount, workers, done / (double) seconds, finished, validator[0].getMaxQueueDepth());
+        System.out.println(validator[0].getLatency().summary());
+        validator[0].shutdown();
+    }
+
+    private static void tap(MoveValidator validator, View view) {
+        int cell = view.pick();
+        String turn;
+        synchronized (view) {
+            turn = view.turn;
+        }
+        validator.submit(view.id, turn, Move.REVEAL, cell / SIZE, cell % SIZE);
+    }
+
+    // One thread per game plays both sockets: the player on turn sends an intent, and
+    // both read the result
+    private static boolean overSockets(int gameCount, int workers) throws Exception {
+        ValidatorServer server = new ValidatorServer(0, workers);
+        Thread loop = new Thread(() -> {
+            try {
+                server.run();
+            } catch (IOException ignored) {
+            }
+        });
+        loop.setDaemon(true);
+        loop.start();
+
+        Histogram roundTrip = new Histogram("intent to result over TCP", "us");
+        Thread[] threads = new Thread[gameCount];
+        boolean[] ok = new boolean[gameCount];
+        for (int g = 0; g < gameCount; g++) {
+            int id = g;
+            threads[g] = new Thread(() -> {
+                try {
+                    ok[id] = playOverSocket(server.getPort(), "s" + id, id, roundTrip);
+                } catch (IOException e) {
+                    ok[id] = false;
+                }
+            });
+            threads[g].start();
+        }
+        boolean all = true;
+        for (int g = 0; g < gameCount; g++) {
+            threads[g].join(30_000);
+            all &= ok[g];
+        }
+        System.out.println("over TCP: " + gameCount + " games, " + roundTrip.summary());
+        server.close();
+        return all;
+    }
+
+    private static boolean playOverSocket(int port, String gameId, long seed, Histogram roundTrip) throws IOException {
+        String[] names = {"player1", "player2"};
+        SocketChannel[] sockets = new SocketChannel[2];
+        ByteBuffer[] inputs = new ByteBuffer[2];
+        LanFrames.ResultPages[] pages = {new LanFrames.ResultPages(), new LanFrames.ResultPages()};
+        for (int p = 0; p < 2; p++) {
+            sockets[p] = SocketChannel.open(new InetSocketAddress("127.0.0.1", port));
+            inputs[p] = ByteBuffer.allocate(1 << 16);
+            write(sockets[p], new LanFrames.Builder(LanFrames.JOIN)
+                    .putString(gameId).putString(names[p]).putInt(SIZE).putInt(MINES).build());
+        }
+        for (int p = 0; p < 2; p++) {
+            if (readFrame(sockets[p], inputs[p]).get() != LanFrames.STATE) return false;
+        }
+
+        View view = new View(gameId, seed);
+        try {
+            for (int moves = 0; moves < SIZE * SIZE; moves++) {
+                int p = view.turn.equals(names[0]) ? 0 : 1;
+                int cell = view.pick();
+                long sent = System.nanoTime();
+                write(sockets[p], new LanFrames.Builder(LanFrames.INTENT)
+                        .putByte((byte) Move.REVEAL).putInt(cell / SIZE).putInt(cell % SIZE).build());
+                MoveValidator.Result result = null;
+                for (int q = 0; q < 2; q++) {
+                    do {
+                        ByteBuffer frame = readFrame(sockets[q], inputs[q]);
+                        if (frame.get() != LanFrames.RESULT) return false;
+                        result = pages[q].add(frame);
+                    } while (result == null);
+                    if (q == p) {
+                        synchronized (roundTrip) {
+                            roundTrip.record((System.nanoTime() - sent) / 1000);
+                        }
+                    }
+                }
+                if (view.apply(result)) return true;
+            }
+            return false;
+        } finally {
+            for (SocketChannel socket : sockets) socket.close();
+        }
+    }
+
+    private static void write(SocketChannel socket, ByteBuffer frame) throws IOException {
+        while (frame.hasRemaining()) socket.write(frame);
+    }
+
+    // Blocks until one whole frame is in; returns it positioned at the type byte
+    private static ByteBuffer readFrame(SocketChannel socket, ByteBuffer in) throws IOException {
+        while (true) {
+            in.flip();
+            if (in.remaining() >= 4 && in.remaining() >= 4 + in.getInt(in.position())) {
+                int length = in.getInt();
+                byte[] frame = new byte[length];
+                in.get(frame);
+                in.compact();
+                return ByteBuffer.wrap(frame);
+            }
+            in.compact();
+            if (socket.read(in) < 0) throw new IOException("closed by server");
+        }
+    }
+}
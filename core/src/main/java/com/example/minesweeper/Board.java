@@ -0,0 +1,266 @@
+package com.example.minesweeper;
+
+import java.util.Arrays;
+
+public class Board {
+    private final int size;
+    private final int stride; // longs per row, every row starts on a fresh word
+    private final long[] mines;
+    private final long[] revealed;
+    private final long[] flagged;
+
+    private int mineCount;
+    private int revealedSafe;
+    private int exploded = -1; // flat index of the mine that ended the game
+
+    public Board(int size) {
+        this.size = size;
+        this.stride = (size + 63) >>> 6;
+        int words = stride * size;
+        mines = new long[words];
+        revealed = new long[words];
+        flagged = new long[words];
+    }
+
+    public int size() { return size; }
+    public int cellCount() { return size * size; }
+
+    // Flat index used by controllers and the view (row-major, no padding)
+    public int index(int r, int c) { return r * size + c; }
+    public int row(int index) { return index / size; }
+    public int col(int index) { return index % size; }
+
+    public boolean isValidPosition(int r, int c) {
+        return r >= 0 && c >= 0 && r < size && c < size;
+    }
+
+    private int word(int r, int c) { return r * stride + (c >>> 6); }
+
+    private static boolean get(long[] bits, int w, int c) {
+        return (bits[w] & (1L << c)) != 0;
+    }
+
+    public boolean isMine(int r, int c) { return get(mines, word(r, c), c); }
+    public boolean isRevealed(int r, int c) { return get(revealed, word(r, c), c); }
+    public boolean isFlagged(int r, int c) { return get(flagged, word(r, c), c); }
+
+    public int getMineCount() { return mineCount; }
+    public int getRevealedSafe() { return revealedSafe; }
+    public int getSafeLeft() { return cellCount() - mineCount - revealedSafe; }
+    // Win condition: every safe cell is open
+    public boolean isCleared() { return getSafeLeft() == 0; }
+
+    public int getExploded() { return exploded; }
+    public void setExploded(int r, int c) { exploded = index(r, c); }
+
+    public void setMine(int r, int c, boolean mine) {
+        int w = word(r, c);
+        if (get(mines, w, c) == mine) return;
+        mines[w] ^= 1L << c;
+        mineCount += mine ? 1 : -1;
+    }
+
+    // Every cell becomes a mine; the generator then clears the safe ones
+    public void fillMines() {
+        for (int r = 0; r < size; r++) {
+            for (int w = 0; w < stride; w++) mines[r * stride + w] = columnMask(w);
+        }
+        mineCount = cellCount();
+    }
+
+    // Returns true if the cell was hidden before this call
+    public boolean reveal(int r, int c) {
+        int w = word(r, c);
+        long bit = 1L << c;
+        if ((revealed[w] & bit) != 0) return false;
+        revealed[w] |= bit;
+        if ((mines[w] & bit) == 0) revealedSafe++;
+        return true;
+    }
+
+    // Undoes a reveal; only repairing a desynced board needs this
+    public void hide(int r, int c) {
+        int w = word(r, c);
+        long bit = 1L << c;
+        if ((revealed[w] & bit) == 0) return;
+        revealed[w] &= ~bit;
+        if ((mines[w] & bit) == 0) revealedSafe--;
+    }
+
+    public void setFlagged(int r, int c, boolean flag) {
+        int w = word(r, c);
+        if (flag) flagged[w] |= 1L << c;
+        else flagged[w] &= ~(1L << c);
+    }
+
+    public void toggleFlag(int r, int c) {
+        flagged[word(r, c)] ^= 1L << c;
+    }
+
+    // Number of mines around (r, c), read straight from the mine words of the three rows
+    public int getNeighbors(int r, int c) {
+        int count = rowWindow(r - 1, c) + rowWindow(r + 1, c);
+        if (c > 0 && isMine(r, c - 1)) count++;
+        if (c < size - 1 && isMine(r, c + 1)) count++;
+        return count;
+    }
+
+    // Mines in columns c-1..c+1 of row r
+    private int rowWindow(int r, int c) {
+        if (r < 0 || r >= size) return 0;
+        int base = r * stride;
+        int b = c & 63;
+        long w = mines[base + (c >>> 6)];
+        if (b > 0 && b < 63) {
+            return Long.bitCount(w & (7L << (b - 1)));
+        }
+        int count = Long.bitCount(w & (1L << b));
+        if (c > 0 && (mines[base + ((c - 1) >>> 6)] & (1L << (c - 1))) != 0) count++;
+        if (c < size - 1 && (mines[base + ((c + 1) >>> 6)] & (1L << (c + 1))) != 0) count++;
+        return count;
+    }
+
+    // A quiet cell is a safe cell with no mines around it (shows as an empty square)
+    public boolean isQuiet(int r, int c) {
+        return (quietWord(r, c >>> 6) & (1L << c)) != 0;
+    }
+
+    // Bitmask of the quiet cells in word w of row r: a cell is quiet when no mine
+    // sits in its 3x3 block, so OR the three rows smeared one column each way.
+    public long quietWord(int r, int w) {
+        long acc = 0;
+        for (int rr = Math.max(0, r - 1); rr <= Math.min(size - 1, r + 1); rr++) {
+            int base = rr * stride;
+            long m = mines[base + w];
+            long left = w > 0 ? mines[base + w - 1] : 0;
+            long right = w + 1 < stride ? mines[base + w + 1] : 0;
+            acc |= m | (m << 1) | (left >>> 63) | (m >>> 1) | (right << 63);
+        }
+        return ~acc & columnMask(w);
+    }
+
+    // Bitmask of the opened numbers in word w of row r that still have a hidden,
+    // unflagged cell in their 3x3 block: the hidden cells are smeared like quietWord.
+    public long openClueWord(int r, int w) {
+        long near = 0;
+        for (int rr = Math.max(0, r - 1); rr <= Math.min(size - 1, r + 1); rr++) {
+            int base = rr * stride;
+            long h = ~(revealed[base + w] | flagged[base + w]) & columnMask(w);
+            long left = w > 0 ? ~(revealed[base + w - 1] | flagged[base + w - 1]) : 0;
+            long right = w + 1 < stride ? ~(revealed[base + w + 1] | flagged[base + w + 1]) : 0;
+            near |= h | (h << 1) | (left >>> 63) | (h >>> 1) | (right << 63);
+        }
+        int base = r * stride;
+        return revealed[base + w] & ~mines[base + w] & ~quietWord(r, w) & near & columnMask(w);
+    }
+
+    // Neighbour counts of a whole row using bit-sliced addition: the eight
+    // shifted neighbour words are summed into four bit planes, 64 cells at a time.
+    public void neighborCountsRow(int r, byte[] out) {
+        for (int w = 0; w < stride; w++) {
+            long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            for (int rr = r - 1; rr <= r + 1; rr++) {
+                if (rr < 0 || rr >= size) continue;
+                int base = rr * stride;
+                long m = mines[base + w];
+                long left = w > 0 ? mines[base + w - 1] : 0;
+                long right = w + 1 < stride ? mines[base + w + 1] : 0;
+                long fromLeft = (m << 1) | (left >>> 63);
+                long fromRight = (m >>> 1) | (right << 63);
+                for (int k = 0; k < 3; k++) {
+                    long v = k == 0 ? fromLeft : (k == 1 ? fromRight : (rr == r ? 0 : m));
+                    long c0 = s0 & v;
+                    s0 ^= v;
+                    long c1 = s1 & c0;
+                    s1 ^= c0;
+                    long c2 = s2 & c1;
+                    s2 ^= c1;
+                    s3 |= c2;
+                }
+            }
+            int start = w << 6;
+            int end = Math.min(size, start + 64);
+            for (int c = start; c < end; c++) {
+                int b = c & 63;
+                out[c] = (byte) (((s0 >>> b) & 1) | (((s1 >>> b) & 1) << 1)
+                        | (((s2 >>> b) & 1) << 2) | (((s3 >>> b) & 1) << 3));
+            }
+        }
+    }
+
+    // Full recount of hidden safe cells from the bitsets, independent of the counters
+    public int countHiddenSafe() {
+        int hidden = 0;
+        for (int r = 0; r < size; r++) {
+            int base = r * stride;
+            for (int w = 0; w < stride; w++) {
+                hidden += Long.bitCount(~(mines[base + w] | revealed[base + w]) & columnMask(w));
+            }
+        }
+        return hidden;
+    }
+
+    public int countFlagged() {
+        int count = 0;
+        for (long word : flagged) count += Long.bitCount(word);
+        return count;
+    }
+
+    private long columnMask(int w) {
+        int valid = size - (w << 6);
+        return valid >= 64 ? -1L : (1L << valid) - 1;
+    }
+
+    // 64-bit hash of what the players see in row r: open cells, flags, and the exploded
+    // mine if it is in this row. Mines are left out, both clients derive them from the seed.
+    public long rowHash(int r) {
+        long h = mix(r + 1);
+        for (int w = r * stride; w < (r + 1) * stride; w++) {
+            h = mix(h ^ revealed[w]);
+            h = mix(h ^ Long.rotateLeft(flagged[w], 32));
+        }
+        if (exploded >= 0 && exploded / size == r) h = mix(h ^ (exploded + 1));
+        return h;
+    }
+
+    // SplitMix64 finalizer
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    // Snapshot for work off the main thread, which must not read a board that is being played on
+    public Board copy() {
+        Board copy = new Board(size);
+        System.arraycopy(mines, 0, copy.mines, 0, mines.length);
+        System.arraycopy(revealed, 0, copy.revealed, 0, revealed.length);
+        System.arraycopy(flagged, 0, copy.flagged, 0, flagged.length);
+        copy.mineCount = mineCount;
+        copy.revealedSafe = revealedSafe;
+        copy.exploded = exploded;
+        return copy;
+    }
+
+    // Same mines, same open cells, same flags: what two clients of one game must agree on
+    public boolean sameState(Board other) {
+        return size == other.size
+                && exploded == other.exploded
+                && Arrays.equals(mines, other.mines)
+                && Arrays.equals(revealed, other.revealed)
+                && Arrays.equals(flagged, other.flagged);
+    }
+
+    public void clearFlags() {
+        Arrays.fill(flagged, 0);
+    }
+
+    public void clear() {
+        Arrays.fill(mines, 0);
+        Arrays.fill(revealed, 0);
+        Arrays.fill(flagged, 0);
+        mineCount = 0;
+        revealedSafe = 0;
+        exploded = -1;
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.minesweeper;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Wire format of games/<id>/board, written by player 1 and read by both players:
+//   size       board size
+//   seed       generator seed, base 36 (a string, so no precision is lost in JSON)
+//   mineCount  both clients rebuild the mines with BoardGenerator.placeMines(seed, mineCount)
+// Moves then go to the append-only log games/<id>/moves (see Move). A full snapshot of a
+// game in progress (encode) also carries the open cells and flags row by row:
+//   revealed   "r<row>" -> run lengths of that row, hidden run first
+//   flagged    "r<row>" -> the same for flags
+// Run lengths are base-36 numbers joined by '.', and the run reaching the end of the
+// row is implied: on a 10-cell row "3.2" means 3 off, 2 on, 5 off, and "0" means all on.
+// Empty rows are left out (Firebase drops empty values anyway). Row keys get a letter
+// so Firebase never turns them into arrays.
+public final class BoardCodec {
+
+    public static final String SIZE = "size";
+    public static final String SEED = "seed";
+    public static final String MINE_COUNT = "mineCount";
+    public static final String REVEALED = "revealed";
+    public static final String FLAGGED = "flagged";
+
+    private BoardCodec() {}
+
+    // A new game is a constant-size write, whatever the board size
+    public static Map<String, Object> newGame(long seed, int size, int mineCount) {
+        Map<String, Object> encoded = new HashMap<>();
+        encoded.put(SIZE, size);
+        encoded.put(SEED, Long.toString(seed, 36));
+        encoded.put(MINE_COUNT, mineCount);
+        return encoded;
+    }
+
+    public static long decodeSeed(String seed) {
+        return Long.parseLong(seed, 36);
+    }
+
+    // A game in progress; board must hold the mines that seed places
+    public static Map<String, Object> encode(long seed, Board board) {
+        Map<String, Object> revealed = new HashMap<>();
+        Map<String, Object> flagged = new HashMap<>();
+        for (int r = 0; r < board.size(); r++) {
+            String revealedRow = encodeRow(board, r, false);
+            if (revealedRow != null) revealed.put(rowKey(r), revealedRow);
+            String flaggedRow = encodeRow(board, r, true);
+            if (flaggedRow != null) flagged.put(rowKey(r), flaggedRow);
+        }
+
+        Map<String, Object> encoded = newGame(seed, board.size(), board.getMineCount());
+        if (!revealed.isEmpty()) encoded.put(REVEALED, revealed);
+        if (!flagged.isEmpty()) encoded.put(FLAGGED, flagged);
+        return encoded;
+    }
+
+    public static String rowKey(int r) {
+        return "r" + r;
+    }
+
+    // Run lengths of the revealed (or flagged) cells of row r, null for an empty row
+    public static String encodeRow(Board board, int r, boolean flags) {
+        StringBuilder out = new StringBuilder();
+        boolean on = false;
+        boolean any = false;
+        int run = 0;
+        for (int c = 0; c < board.size(); c++) {
+            boolean set = flags ? board.isFlagged(r, c) : board.isRevealed(r, c);
+            any |= set;
+            if (set != on) {
+                if (out.length() > 0) out.append('.');
+                out.append(Integer.toString(run, 36));
+                on = set;
+                run = 0;
+            }
+            run++;
+        }
+        return any ? out.toString() : null; // the run still open is implied
+    }
+
+    // Reveals the cells of row r that the runs mark; newly opened cells go to changed[count..].
+    // Returns the new count. Revealed state only grows, so nothing is ever hidden again.
+    public static int applyRevealedRow(Board board, int r, String runs, int[] changed, int count) {
+        if (runs == null) return count;
+        int c = 0;
+        boolean on = false;
+        for (String part : runs.split("\\.")) {
+            int end = Math.min(board.size(), c + Integer.parseInt(part, 36));
+            if (on) count = revealRun(board, r, c, end, changed, count);
+            c = end;
+            on = !on;
+        }
+        if (on) count = revealRun(board, r, c, board.size(), changed, count);
+        return count;
+    }
+
+    // Sets the open cells of row r to exactly the runs, hiding any the runs leave out. Only
+    // a desync repair does this; changed cells go to changed[count..]
+    public static int setRevealedRow(Board board, int r, String runs, int[] changed, int count) {
+        int c = 0;
+        boolean on = false;
+        if (runs != null) {
+            for (String part : runs.split("\\.")) {
+                int end = Math.min(board.size(), c + Integer.parseInt(part, 36));
+                for (; c < end; c++) count = setRevealed(board, r, c, on, changed, count);
+                on = !on;
+            }
+        }
+        for (; c < board.size(); c++) count = setRevealed(board, r, c, on, changed, count);
+        return count;
+    }
+
+    private static int setRevealed(Board board, int r, int c, boolean open, int[] changed, int count) {
+        if (board.isRevealed(r, c) == open) return count;
+        if (open) board.reveal(r, c);
+        else board.hide(r, c);
+        changed[count++] = board.index(r, c);
+        return count;
+    }
+
+    private static int revealRun(Board board, int r, int from, int to, int[] changed, int count) {
+        for (int c = from; c < to; c++) {
+            if (!board.reveal(r, c)) continue;
+            if (board.isMine(r, c) && board.getExploded() < 0) board.setExploded(r, c);
+            changed[count++] = board.index(r, c);
+        }
+        return count;
+    }
+
+    // Sets the flags of row r to exactly the runs (null clears the row); changed cells go to changed[count..]
+    public static int applyFlaggedRow(Board board, int r, String runs, int[] changed, int count) {
+        int c = 0;
+        boolean on = false;
+        if (runs != null) {
+            for (String part : runs.split("\\.")) {
+                int end = Math.min(board.size(), c + Integer.parseInt(part, 36));
+                for (; c < end; c++) count = setFlag(board, r, c, on, changed, count);
+                on = !on;
+            }
+        }
+        for (; c < board.size(); c++) count = setFlag(board, r, c, on, changed, count);
+        return count;
+    }
+
+    private static int setFlag(Board board, int r, int c, boolean flag, int[] changed, int count) {
+        if (board.isFlagged(r, c) == flag) return count;
+        board.setFlagged(r, c, flag);
+        changed[count++] = board.index(r, c);
+        return count;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.minesweeper;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Places an exact number of mines from a seed. The same (seed, size, mines) always
+// gives the same board. Cells are sampled with Floyd's form of the partial
+// Fisher-Yates shuffle: one random draw per mine, and the board's own mine bits
+// serve as the "already taken" set, so there is no O(cells) array to shuffle.
+// Above 50% density the safe cells are drawn instead, so 90% boards stay fast.
+public final class BoardGenerator {
+
+    public static final int DEFAULT_DENSITY_PERCENT = 15;
+
+    private static final int[] NO_CELLS = new int[0];
+
+    private BoardGenerator() {}
+
+    public static int defaultMineCount(int size) {
+        return Math.max(1, (int) ((long) size * size * DEFAULT_DENSITY_PERCENT / 100));
+    }
+
+    public static long randomSeed() {
+        return new SplittableRandom().nextLong();
+    }
+
+    public static Board generate(long seed, int size, int mineCount) {
+        Board board = new Board(size);
+        placeMines(board, seed, mineCount);
+        return board;
+    }
+
+    public static void placeMines(Board board, long seed, int mineCount) {
+        placeMines(board, new SplittableRandom(seed), mineCount);
+    }
+
+    public static void placeMines(Board board, SplittableRandom rng, int mineCount) {
+        placeMines(board, rng, mineCount, NO_CELLS);
+    }
+
+    // Safe first click: mines avoid (r, c) and its neighbours, so the click opens an area.
+    // When the board is too full for that, only (r, c) itself is kept clear.
+    public static void placeMinesSafeAt(Board board, long seed, int mineCount, int r, int c) {
+        placeMines(board, new SplittableRandom(seed), mineCount, safeZone(board, mineCount, r, c));
+    }
+
+    static int[] safeZone(Board board, int mineCount, int r, int c) {
+        int[] zone = new int[9];
+        int count = 0;
+        for (int i = r - 1; i <= r + 1; i++) {
+            for (int j = c - 1; j <= c + 1; j++) {
+                if (board.isValidPosition(i, j)) zone[count++] = board.index(i, j);
+            }
+        }
+        if (board.cellCount() - count < mineCount) return new int[]{board.index(r, c)};
+        return Arrays.copyOf(zone, count); // row-major loop, so already sorted
+    }
+
+    // excluded: sorted flat indices that must stay safe. Sampling runs over the
+    // virtual list of the remaining cells and toCell() maps a position back to the board.
+    private static void placeMines(Board board, SplittableRandom rng, int mineCount, int[] excluded) {
+        int n = board.cellCount() - excluded.length;
+        int k = Math.max(0, Math.min(n, mineCount));
+        boolean invert = k > n / 2;
+        if (invert) {
+            board.fillMines();
+            for (int cell : excluded) board.setMine(board.row(cell), board.col(cell), false);
+        }
+
+        // Floyd: for j in [n - picks, n) take a random t <= j, or j itself if t is taken
+        int picks = invert ? n - k : k;
+        for (int j = n - picks; j < n; j++) {
+            int t = toCell(rng.nextInt(j + 1), excluded);
+            if (isTaken(board, t, invert)) t = toCell(j, excluded);
+            board.setMine(board.row(t), board.col(t), !invert);
+        }
+    }
+
+    private static int toCell(int position, int[] excluded) {
+        for (int cell : excluded) {
+            if (cell <= position) position++;
+            else break;
+        }
+        return position;
+    }
+
+    private static boolean isTaken(Board board, int index, boolean invert) {
+        return board.isMine(board.row(index), board.col(index)) != invert;
+    }
+}
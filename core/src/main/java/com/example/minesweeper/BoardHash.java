@@ -0,0 +1,57 @@
+package com.example.minesweeper;
+
+// A Merkle tree over the rows of a board: leaves are Board.rowHash, padded with zeros
+// to a power of two, and every inner node hashes its two children. Nodes are numbered
+// heap style, 1 is the root and the children of n are 2n and 2n+1. Two clients whose
+// roots match see the same board; when they don't, walking down the nodes that differ
+// finds the rows that differ in a few exchanges of a handful of hashes each.
+public final class BoardHash {
+    private final int rows;
+    private final int leaves;
+    private final long[] tree;
+
+    public BoardHash(int rows) {
+        this.rows = rows;
+        this.leaves = Integer.highestOneBit(Math.max(1, rows - 1)) << 1;
+        this.tree = new long[2 * leaves];
+    }
+
+    // Rehashes every row; a 100-row board takes a few microseconds
+    public void compute(Board board) {
+        for (int r = 0; r < rows; r++) tree[leaves + r] = board.rowHash(r);
+        for (int n = leaves - 1; n >= 1; n--) tree[n] = parent(tree[2 * n], tree[2 * n + 1]);
+    }
+
+    // Rehashes only the rows holding the changed cells, and the paths above them
+    public void update(Board board, int[] cells, int count) {
+        for (int i = 0; i < count; i++) {
+            int r = board.row(cells[i]);
+            long h = board.rowHash(r);
+            int n = leaves + r;
+            if (tree[n] == h) continue;
+            tree[n] = h;
+            for (n >>= 1; n >= 1; n >>= 1) tree[n] = parent(tree[2 * n], tree[2 * n + 1]);
+        }
+    }
+
+    public long root() { return tree[1]; }
+
+    public long node(int n) { return tree[n]; }
+
+    public boolean isLeaf(int n) { return n >= leaves; }
+
+    // The row of leaf n; rows() or more for padding
+    public int row(int n) { return n - leaves; }
+
+    public int rows() { return rows; }
+
+    // Valid node ids are 1 to nodeCount() - 1
+    public int nodeCount() { return tree.length; }
+
+    // Levels below the root; leaves are nodes height() levels down
+    public int height() { return Integer.numberOfTrailingZeros(leaves); }
+
+    private static long parent(long left, long right) {
+        return Board.mix(left * 31 + Long.rotateLeft(right, 17) + 1);
+    }
+}
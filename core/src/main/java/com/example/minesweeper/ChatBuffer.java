@@ -0,0 +1,96 @@
+package com.example.minesweeper;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// The chat messages a game screen holds: at most capacity of them, always ending at
+// the newest. Messages are kept in key order (push() keys sort by time) and a key seen
+// twice is ignored, so a live message racing a page of history does no harm. New
+// messages push the oldest out once the buffer is full; pages of history are only
+// taken while there is room. Every call says which rows moved, so a list adapter can
+// insert and remove just those instead of rebinding the whole list.
+public final class ChatBuffer {
+
+    public static final class Entry {
+        public final String key;
+        public final String sender;
+        public final String text;
+
+        public Entry(String key, String sender, String text) {
+            this.key = key;
+            this.sender = sender;
+            this.text = text;
+        }
+    }
+
+    private final int capacity;
+    private final List<Entry> entries = new ArrayList<>();
+    private final Set<String> keys = new HashSet<>();
+    private boolean historyComplete;
+
+    private int insertedAt = -1;
+    private int removedCount;
+
+    public ChatBuffer(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int size() { return entries.size(); }
+    public Entry get(int position) { return entries.get(position); }
+    public int getCapacity() { return capacity; }
+
+    // Key of the oldest message held, where the next page of history ends; null if none
+    public String getOldestKey() { return entries.isEmpty() ? null : entries.get(0).key; }
+
+    // Whether scrolling up should fetch another page
+    public boolean canLoadOlder() { return !historyComplete && entries.size() < capacity; }
+
+    // After add: the position the message went to (-1 if it was dropped), then the
+    // number of oldest messages removed from the top to make room
+    public int getInsertedAt() { return insertedAt; }
+    public int getRemovedCount() { return removedCount; }
+
+    // A live message. Usually the newest, but an older one is put in its place.
+    public boolean add(String key, String sender, String text) {
+        insertedAt = -1;
+        removedCount = 0;
+        if (key == null || keys.contains(key)) return false;
+        int at = entries.size();
+        while (at > 0 && entries.get(at - 1).key.compareTo(key) > 0) at--;
+        // Older than everything held, with no room left: history we chose not to keep
+        if (at == 0 && entries.size() >= capacity) return false;
+
+        entries.add(at, new Entry(key, sender, text));
+        keys.add(key);
+        insertedAt = at;
+        if (entries.size() > capacity) {
+            removedCount = entries.size() - capacity;
+            for (int i = 0; i < removedCount; i++) keys.remove(entries.get(i).key);
+            entries.subList(0, removedCount).clear();
+        }
+        return true;
+    }
+
+    // A page of history from before getOldestKey(), oldest first. last is true when the
+    // server had nothing older. Returns the number of messages inserted at the top.
+    public int addOlder(List<Entry> page, boolean last) {
+        insertedAt = -1;
+        removedCount = 0;
+        String oldest = getOldestKey();
+        List<Entry> taken = new ArrayList<>();
+        // The newest of the page first, as many as fit
+        for (int i = page.size() - 1; i >= 0 && entries.size() + taken.size() < capacity; i--) {
+            Entry entry = page.get(i);
+            if (keys.contains(entry.key) || (oldest != null && entry.key.compareTo(oldest) >= 0)) continue;
+            taken.add(0, entry);
+            oldest = entry.key;
+        }
+        for (Entry entry : taken) keys.add(entry.key);
+        entries.addAll(0, taken);
+        if (last) historyComplete = true;
+        if (!taken.isEmpty()) insertedAt = 0;
+        return taken.size();
+    }
+}
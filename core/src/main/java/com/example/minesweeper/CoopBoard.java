@@ -0,0 +1,154 @@
+package com.example.minesweeper;
+
+// One player's replica of a co-op game, where both players reveal and flag at once
+// with no turns. The board state is a merge of two CRDTs, so replicas that have seen
+// the same ops agree whatever order the ops arrived in and however often:
+//   revealed  a grow-only set. A reveal op adds its cell's whole flood region, and the
+//             flood is computed on a flag-free copy of the board, so it depends on the
+//             mines alone. Hitting a mine sets exploded to the lowest mine index hit.
+//   flags     a last-writer-wins register per cell, ordered by vector stamp: an op
+//             that happened after the current one wins, and of two concurrent ops the
+//             one with the larger stamp sum wins, then the higher replica. A flag only
+//             shows on a hidden cell.
+// Ops from this replica are made with reveal() and flag(), remote ones go to merge().
+public final class CoopBoard {
+    private final Board board;
+    private final Board floods;
+    private final RevealEngine engine;
+    private final int replica;
+    private final int[] clock;
+
+    // Per cell: the stamp of the flag op that holds the register, null if none yet
+    private final int[][] flagStamps;
+    private final int[] flagReplicas;
+    private final boolean[] flagValues;
+    private int conflicts;
+
+    private int[] changed = new int[64];
+    private int changedCount;
+
+    // board holds the mines only; replicas is the number of players
+    public CoopBoard(Board board, int replica, int replicas) {
+        this.board = board;
+        this.floods = board.copy();
+        this.engine = new RevealEngine(floods);
+        this.replica = replica;
+        this.clock = new int[replicas];
+        this.flagStamps = new int[board.cellCount()][];
+        this.flagReplicas = new int[board.cellCount()];
+        this.flagValues = new boolean[board.cellCount()];
+    }
+
+    public Board getBoard() { return board; }
+
+    // Times a flag op met a concurrent one on its cell and the tie-break decided (a
+    // duplicate delivery counts again)
+    public int getConflicts() { return conflicts; }
+
+    public int[] getClock() { return clock.clone(); }
+
+    // Cells changed by the last op, as flat board indices
+    public int[] getChanged() { return changed; }
+    public int getChangedCount() { return changedCount; }
+
+    public boolean isFlagSet(int r, int c) {
+        return flagValues[board.index(r, c)];
+    }
+
+    // A local reveal; send the returned op to the other players. Null if the cell is
+    // already open or flagged (a player has to unflag before revealing)
+    public CoopOp reveal(int r, int c) {
+        if (!board.isValidPosition(r, c) || board.isRevealed(r, c) || board.isFlagged(r, c)) return null;
+        return local(Move.REVEAL, r, c, false);
+    }
+
+    // A local flag toggle; null on an open cell
+    public CoopOp flag(int r, int c) {
+        if (!board.isValidPosition(r, c) || board.isRevealed(r, c)) return null;
+        return local(Move.FLAG, r, c, !flagValues[board.index(r, c)]);
+    }
+
+    private CoopOp local(int type, int r, int c, boolean flag) {
+        clock[replica]++;
+        CoopOp op = new CoopOp(replica, type, r, c, flag, clock.clone());
+        apply(op);
+        return op;
+    }
+
+    // A remote op, or our own coming back; returns the number of cells that changed
+    public int merge(CoopOp op) {
+        if (op.stamp.length != clock.length || !board.isValidPosition(op.row, op.col)) {
+            changedCount = 0;
+            return 0;
+        }
+        for (int i = 0; i < clock.length; i++) clock[i] = Math.max(clock[i], op.stamp[i]);
+        return apply(op);
+    }
+
+    private int apply(CoopOp op) {
+        changedCount = 0;
+        if (op.type == Move.FLAG) applyFlag(op);
+        else applyReveal(op.row, op.col);
+        return changedCount;
+    }
+
+    // floods and board always open the same cells, so the engine's result on floods
+    // is exactly what is new on the board
+    private void applyReveal(int r, int c) {
+        if (board.isMine(r, c)) {
+            int index = board.index(r, c);
+            floods.reveal(r, c);
+            board.setFlagged(r, c, false);
+            if (board.reveal(r, c)) add(index);
+            if (board.getExploded() < 0 || index < board.getExploded()) board.setExploded(r, c);
+            return;
+        }
+        RevealResult opened = engine.reveal(r, c);
+        int[] cells = opened.getCells();
+        for (int i = 0; i < opened.getCount(); i++) {
+            int row = board.row(cells[i]), col = board.col(cells[i]);
+            board.reveal(row, col);
+            board.setFlagged(row, col, false);
+            add(cells[i]);
+        }
+    }
+
+    private void applyFlag(CoopOp op) {
+        int index = board.index(op.row, op.col);
+        int[] current = flagStamps[index];
+        if (current != null && !wins(op, current, flagReplicas[index])) return;
+        flagStamps[index] = op.stamp;
+        flagReplicas[index] = op.replica;
+        flagValues[index] = op.flag;
+        boolean shown = op.flag && !board.isRevealed(op.row, op.col);
+        if (shown != board.isFlagged(op.row, op.col)) {
+            board.setFlagged(op.row, op.col, shown);
+            add(index);
+        }
+    }
+
+    // Whether op replaces the register holding (stamp, holder)
+    private boolean wins(CoopOp op, int[] stamp, int holder) {
+        boolean after = false, before = false;
+        int sum = 0, currentSum = 0;
+        for (int i = 0; i < stamp.length; i++) {
+            if (op.stamp[i] > stamp[i]) after = true;
+            if (op.stamp[i] < stamp[i]) before = true;
+            sum += op.stamp[i];
+            currentSum += stamp[i];
+        }
+        if (after != before) return after;
+        if (!after) return false; // the same op again
+        conflicts++;
+        return sum != currentSum ? sum > currentSum : op.replica > holder;
+    }
+
+    private void add(int index) {
+        if (changedCount == changed.length) {
+            int[] bigger = new int[changed.length * 2];
+            System.arraycopy(changed, 0, bigger, 0, changedCount);
+            changed = bigger;
+        }
+        changed[changedCount++] = index;
+    }
+}
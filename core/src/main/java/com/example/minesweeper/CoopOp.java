@@ -0,0 +1,75 @@
+package com.example.minesweeper;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// One operation of the co-op mode, stored under games/<id>/ops/key(replica, count):
+//   by     replica (player) index
+//   type   "reveal" or "flag"
+//   r, c   the cell
+//   on     for a flag: the value the player set
+//   stamp  the player's vector clock when the op was made, as "3.0.5"
+// Keys never collide, since each player only writes its own counter.
+public final class CoopOp {
+
+    public final int replica;
+    public final int type;
+    public final int row;
+    public final int col;
+    public final boolean flag;
+    public final int[] stamp;
+
+    public CoopOp(int replica, int type, int row, int col, boolean flag, int[] stamp) {
+        this.replica = replica;
+        this.type = type;
+        this.row = row;
+        this.col = col;
+        this.flag = flag;
+        this.stamp = stamp;
+    }
+
+    // The replica's own entry of the stamp counts its ops, so it makes the key
+    public String key() {
+        return String.format("r%d-%07d", replica, stamp[replica]);
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("by", replica);
+        map.put("type", type == Move.FLAG ? "flag" : "reveal");
+        map.put("r", row);
+        map.put("c", col);
+        if (type == Move.FLAG) map.put("on", flag);
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < stamp.length; i++) {
+            if (i > 0) s.append('.');
+            s.append(stamp[i]);
+        }
+        map.put("stamp", s.toString());
+        return map;
+    }
+
+    // Reads a map as DataSnapshot.getValue() returns it; null if the entry is malformed
+    public static CoopOp fromMap(Map<?, ?> map) {
+        if (map == null) return null;
+        Object by = map.get("by");
+        Object type = map.get("type");
+        Object r = map.get("r");
+        Object c = map.get("c");
+        Object stamp = map.get("stamp");
+        if (!(by instanceof Number) || !(r instanceof Number) || !(c instanceof Number)
+                || !(stamp instanceof String)) return null;
+        if (!"flag".equals(type) && !"reveal".equals(type)) return null;
+        String[] parts = ((String) stamp).split("\\.");
+        int[] clock = new int[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) clock[i] = Integer.parseInt(parts[i]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        int replica = ((Number) by).intValue();
+        if (replica < 0 || replica >= clock.length) return null;
+        return new CoopOp(replica, "flag".equals(type) ? Move.FLAG : Move.REVEAL,
+                ((Number) r).intValue(), ((Number) c).intValue(), Boolean.TRUE.equals(map.get("on")), clock);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.minesweeper;
+
+import java.util.Map;
+
+// Everything an online game sends and hears, independent of the backend:
+//   game   the board header (BoardCodec.newGame), written once by player 1
+//   moves  the append-only move log (see Move)
+//   state  turn, strikes and lastMoveTimestamp, as a flat map
+//   chat   sender and text of each message
+//   sync   MerkleSync repair messages, flat maps addressed with "to"; not kept, so a
+//          listener only hears what is sent after it subscribes, its own included
+// Implementations: FirebaseTransport (Android), LoopbackHub clients for tests and
+// benchmarks, and LanTransport for two devices on one network. Listeners get what
+// is already there when they subscribe and then every change, on the executor or
+// thread the implementation documents.
+public interface GameTransport {
+
+    // Stands for the server clock in state values and move timestamps
+    Object SERVER_TIME = new Object() {
+        @Override
+        public String toString() { return "SERVER_TIME"; }
+    };
+
+    interface GameListener {
+        void onGame(Map<String, Object> board);
+    }
+
+    interface MoveListener {
+        // Every entry of the log, in any order and possibly more than once
+        void onMove(Move move);
+    }
+
+    interface StateListener {
+        // The whole state after each change
+        void onState(Map<String, Object> state);
+    }
+
+    interface ChatListener {
+        void onChat(String sender, String text);
+    }
+
+    interface SyncListener {
+        void onSync(Map<String, Object> message);
+    }
+
+    interface OffsetListener {
+        // Server clock minus local clock, in milliseconds
+        void onServerOffset(long offsetMs);
+    }
+
+    void createGame(Map<String, Object> board, Map<String, Object> state);
+
+    // stateUpdates are keys of the state written together with the move (turn, strikes)
+    void publishMove(Move move, Map<String, Object> stateUpdates);
+
+    void updateState(Map<String, Object> updates);
+
+    void sendChat(String sender, String text);
+
+    void sendSync(Map<String, Object> message);
+
+    void subscribeGame(GameListener listener);
+
+    void subscribeMoves(MoveListener listener);
+
+    void subscribeState(StateListener listener);
+
+    void subscribeChat(ChatListener listener);
+
+    void subscribeSync(SyncListener listener);
+
+    void subscribeServerOffset(OffsetListener listener);
+
+    // Drops this client's listeners and connections
+    void close();
+}
@@ -0,0 +1,63 @@
+package com.example.minesweeper;
+
+import java.util.Arrays;
+
+// Samples of one measurement with percentiles for logs and benchmark output.
+// Every sample is kept; a game or a benchmark run records a few thousand at most.
+public final class Histogram {
+    private final String name;
+    private final String unit;
+    private long[] samples = new long[64];
+    private int count;
+    private long[] sorted;
+
+    public Histogram(String name, String unit) {
+        this.name = name;
+        this.unit = unit;
+    }
+
+    public void record(long value) {
+        if (count == samples.length) samples = Arrays.copyOf(samples, count * 2);
+        samples[count++] = value;
+        sorted = null;
+    }
+
+    // Adds every sample of other, e.g. to pool per-client histograms
+    public void addAll(Histogram other) {
+        for (int i = 0; i < other.count; i++) record(other.samples[i]);
+    }
+
+    public int getCount() { return count; }
+
+    // Nearest-rank percentile, p in [0, 100]; 0 when empty
+    public long percentile(double p) {
+        if (count == 0) return 0;
+        if (sorted == null) {
+            sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+        }
+        int rank = (int) Math.ceil(p / 100 * count);
+        return sorted[Math.max(0, Math.min(count - 1, rank - 1))];
+    }
+
+    public long getMin() { return percentile(0); }
+    public long getMax() { return percentile(100); }
+
+    public double getMean() {
+        if (count == 0) return 0;
+        double sum = 0;
+        for (int i = 0; i < count; i++) sum += samples[i];
+        return sum / count;
+    }
+
+    public void clear() {
+        count = 0;
+        sorted = null;
+    }
+
+    public String summary() {
+        if (count == 0) return name + ": no samples";
+        return String.format("%s (%s): n=%d min=%d p50=%d p95=%d p99=%d max=%d", name, unit, count,
+                getMin(), percentile(50), percentile(95), percentile(99), getMax());
+    }
+}
@@ -0,0 +1,316 @@
+package com.example.minesweeper;
+
+// Same rules as Solver, but driven by the moves of a live game instead of rescans.
+// It keeps the frontier (hidden cells next to opened numbers) and a work list of
+// numbers whose hidden neighbours changed; only those are re-examined after a move.
+// It never reads mines or player flags: proven mines and proven safe cells are its
+// own bookkeeping, so a wrong flag from the player cannot mislead it.
+public class IncrementalSolver {
+    private static final int DEADLINE_EVERY = 256;
+
+    private final Board board;
+    private final int size;
+
+    private final long[] frontier;
+    private final long[] queued;
+    private final long[] provenMine;
+    private final long[] provenSafe;
+    private int frontierSize;
+    private int provenMines;
+    private int pendingSafe; // proven safe but not opened yet
+
+    private int[] work = new int[64];
+    private int workTop;
+    private int[] safe = new int[64];
+    private int safeTop;
+    private int[] mines = new int[64];
+    private int mineTop;
+
+    // Scratch neighbour lists (flat indices, row-major so always sorted)
+    private final int[] hiddenA = new int[8];
+    private final int[] hiddenB = new int[8];
+    private final int[] onlyBig = new int[8];
+
+    public IncrementalSolver(Board board) {
+        this.board = board;
+        this.size = board.size();
+        int words = (board.cellCount() + 63) >>> 6;
+        frontier = new long[words];
+        queued = new long[words];
+        provenMine = new long[words];
+        provenSafe = new long[words];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                if (board.isRevealed(r, c)) onRevealed(board.index(r, c));
+            }
+        }
+    }
+
+    public int getFrontierSize() { return frontierSize; }
+    public int getProvenMines() { return provenMines; }
+    public boolean isFrontier(int r, int c) { return get(frontier, board.index(r, c)); }
+    public boolean isProvenMine(int r, int c) { return get(provenMine, board.index(r, c)); }
+
+    // Replaces the flags of target (a copy of this board) with the proven mines
+    public void copyProvenMinesTo(Board target) {
+        target.clearFlags();
+        for (int word = 0; word < provenMine.length; word++) {
+            long bits = provenMine[word];
+            while (bits != 0) {
+                int cell = (word << 6) + Long.numberOfTrailingZeros(bits);
+                target.setFlagged(board.row(cell), board.col(cell), true);
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    // Call after every reveal with the cells it opened
+    public void onRevealed(RevealResult result) {
+        int[] cells = result.getCells();
+        for (int i = 0; i < result.getCount(); i++) onRevealed(cells[i]);
+    }
+
+    public void onRevealed(int cell) {
+        if (get(provenSafe, cell)) pendingSafe--;
+        if (get(frontier, cell)) {
+            clear(frontier, cell);
+            frontierSize--;
+        }
+
+        int r = board.row(cell);
+        int c = board.col(cell);
+        boolean clue = board.getNeighbors(r, c) > 0;
+        if (clue) enqueue(cell);
+        for (int i = Math.max(0, r - 1); i <= Math.min(size - 1, r + 1); i++) {
+            for (int j = Math.max(0, c - 1); j <= Math.min(size - 1, c + 1); j++) {
+                int n = board.index(i, j);
+                if (!board.isRevealed(i, j)) {
+                    if (clue && !get(frontier, n)) {
+                        set(frontier, n);
+                        frontierSize++;
+                    }
+                } else if (n != cell && isClue(i, j)) {
+                    enqueue(n); // one hidden neighbour fewer
+                }
+            }
+        }
+    }
+
+    // A proven safe cell that is still hidden, or -1 when the position needs a guess.
+    // The cell stays pending until it is opened, so repeated hints return the same cell.
+    public int peekSafe() {
+        deduce();
+        while (safeTop > 0) {
+            int cell = safe[safeTop - 1];
+            if (!board.isRevealed(board.row(cell), board.col(cell))) return cell;
+            safeTop--;
+        }
+        return -1;
+    }
+
+    public int pollSafe() {
+        int cell = peekSafe();
+        if (cell >= 0) safeTop--;
+        return cell;
+    }
+
+    // A newly proven mine (for auto-flag), or -1
+    public int pollMine() {
+        deduce();
+        return mineTop > 0 ? mines[--mineTop] : -1;
+    }
+
+    // Opens (r, c) and plays every proven safe cell. True if the board was cleared.
+    public boolean solveFrom(int r, int c) {
+        return solveFrom(r, c, Long.MAX_VALUE);
+    }
+
+    // Same, but gives up (false) once System.nanoTime() passes deadline, checked every
+    // DEADLINE_EVERY cells opened
+    public boolean solveFrom(int r, int c, long deadline) {
+        if (board.isMine(r, c)) return false;
+        RevealEngine revealer = new RevealEngine(board);
+        onRevealed(revealer.reveal(r, c));
+        int cell;
+        int opened = 0;
+        while ((cell = pollSafe()) >= 0) {
+            if (++opened % DEADLINE_EVERY == 0 && System.nanoTime() >= deadline) return false;
+            onRevealed(revealer.reveal(board.row(cell), board.col(cell)));
+        }
+        return board.isCleared();
+    }
+
+    // Drains the work list; the global mine count is only tried once that gives nothing
+    private void deduce() {
+        while (true) {
+            while (workTop > 0) {
+                int cell = work[--workTop];
+                clear(queued, cell);
+                examine(board.row(cell), board.col(cell));
+            }
+            if (pendingSafe > 0 || !applyMineCountRule()) return;
+        }
+    }
+
+    private void examine(int r, int c) {
+        int countA = collectHidden(r, c, hiddenA);
+        if (countA == 0) return;
+        int missingA = board.getNeighbors(r, c) - countProven(r, c);
+        if (missingA == 0) {
+            markSafe(hiddenA, countA);
+            return;
+        }
+        if (missingA == countA) {
+            markMines(hiddenA, countA);
+            return;
+        }
+
+        // Subset rule against the numbers that share a hidden cell with this one
+        for (int br = Math.max(0, r - 2); br <= Math.min(size - 1, r + 2); br++) {
+            for (int bc = Math.max(0, c - 2); bc <= Math.min(size - 1, c + 2); bc++) {
+                if ((br == r && bc == c) || !isClue(br, bc)) continue;
+                int countB = collectHidden(br, bc, hiddenB);
+                if (countB == 0 || countB == countA) continue;
+                int missingB = board.getNeighbors(br, bc) - countProven(br, bc);
+                boolean learned = countA < countB
+                        ? applySubset(hiddenA, countA, missingA, hiddenB, countB, missingB)
+                        : applySubset(hiddenB, countB, missingB, hiddenA, countA, missingA);
+                if (learned) {
+                    // hiddenA may be stale now; look at the remaining pairs on the next pass
+                    enqueue(board.index(r, c));
+                    return;
+                }
+            }
+        }
+    }
+
+    // If small's hidden cells are inside big's, the cells only big sees hold
+    // exactly missing(big) - missing(small) mines. True if that proved anything new.
+    private boolean applySubset(int[] small, int countS, int missingS, int[] big, int countB, int missingB) {
+        if (!isSubset(small, countS, big, countB)) return false;
+        int count = difference(big, countB, small, countS, onlyBig);
+        int diffMines = missingB - missingS;
+        if (diffMines == 0) return markSafe(onlyBig, count);
+        if (diffMines == count) return markMines(onlyBig, count);
+        return false;
+    }
+
+    // All mines found: every unknown cell is safe. Unknown cells equal missing mines: all mines.
+    private boolean applyMineCountRule() {
+        int missing = board.getMineCount() - provenMines;
+        int unknown = board.cellCount() - board.getRevealedSafe() - provenMines - pendingSafe;
+        if (unknown == 0 || (missing != 0 && missing != unknown)) return false;
+        for (int cell = 0; cell < board.cellCount(); cell++) {
+            if (board.isRevealed(board.row(cell), board.col(cell))
+                    || get(provenMine, cell) || get(provenSafe, cell)) continue;
+            if (missing == 0) markSafe(cell);
+            else markMine(cell);
+        }
+        return true;
+    }
+
+    private boolean markSafe(int[] cells, int count) {
+        boolean learned = false;
+        for (int k = 0; k < count; k++) learned |= markSafe(cells[k]);
+        return learned;
+    }
+
+    private boolean markMines(int[] cells, int count) {
+        boolean learned = false;
+        for (int k = 0; k < count; k++) learned |= markMine(cells[k]);
+        return learned;
+    }
+
+    private boolean markSafe(int cell) {
+        if (get(provenSafe, cell)) return false;
+        set(provenSafe, cell);
+        pendingSafe++;
+        safe = push(safe, safeTop++, cell);
+        return true;
+    }
+
+    private boolean markMine(int cell) {
+        if (get(provenMine, cell)) return false;
+        set(provenMine, cell);
+        provenMines++;
+        mines = push(mines, mineTop++, cell);
+
+        // Numbers around the mine now miss one mine fewer
+        int r = board.row(cell);
+        int c = board.col(cell);
+        for (int i = Math.max(0, r - 1); i <= Math.min(size - 1, r + 1); i++) {
+            for (int j = Math.max(0, c - 1); j <= Math.min(size - 1, c + 1); j++) {
+                if (isClue(i, j)) enqueue(board.index(i, j));
+            }
+        }
+        return true;
+    }
+
+    private void enqueue(int cell) {
+        if (get(queued, cell)) return;
+        set(queued, cell);
+        work = push(work, workTop++, cell);
+    }
+
+    private boolean isClue(int r, int c) {
+        return board.isRevealed(r, c) && !board.isMine(r, c) && board.getNeighbors(r, c) > 0;
+    }
+
+    // Hidden neighbours not yet proven to be mines. Proven safe cells still count
+    // as hidden: they are unknown to the numbers until they are opened.
+    private int collectHidden(int r, int c, int[] out) {
+        int count = 0;
+        for (int i = Math.max(0, r - 1); i <= Math.min(size - 1, r + 1); i++) {
+            for (int j = Math.max(0, c - 1); j <= Math.min(size - 1, c + 1); j++) {
+                int n = board.index(i, j);
+                if (!board.isRevealed(i, j) && !get(provenMine, n)) out[count++] = n;
+            }
+        }
+        return count;
+    }
+
+    private int countProven(int r, int c) {
+        int count = 0;
+        for (int i = Math.max(0, r - 1); i <= Math.min(size - 1, r + 1); i++) {
+            for (int j = Math.max(0, c - 1); j <= Math.min(size - 1, c + 1); j++) {
+                if (get(provenMine, board.index(i, j))) count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isSubset(int[] a, int countA, int[] b, int countB) {
+        int j = 0;
+        for (int i = 0; i < countA; i++) {
+            while (j < countB && b[j] < a[i]) j++;
+            if (j == countB || b[j] != a[i]) return false;
+        }
+        return true;
+    }
+
+    // Writes the cells of b that are not in a to out (b is left intact, it may be hiddenA)
+    private static int difference(int[] b, int countB, int[] a, int countA, int[] out) {
+        int kept = 0;
+        int i = 0;
+        for (int j = 0; j < countB; j++) {
+            while (i < countA && a[i] < b[j]) i++;
+            if (i < countA && a[i] == b[j]) continue;
+            out[kept++] = b[j];
+        }
+        return kept;
+    }
+
+    private static int[] push(int[] stack, int top, int cell) {
+        if (top == stack.length) {
+            int[] bigger = new int[stack.length * 2];
+            System.arraycopy(stack, 0, bigger, 0, top);
+            stack = bigger;
+        }
+        stack[top] = cell;
+        return stack;
+    }
+
+    private static boolean get(long[] bits, int cell) { return (bits[cell >>> 6] & (1L << cell)) != 0; }
+    private static void set(long[] bits, int cell) { bits[cell >>> 6] |= 1L << cell; }
+    private static void clear(long[] bits, int cell) { bits[cell >>> 6] &= ~(1L << cell); }
+}
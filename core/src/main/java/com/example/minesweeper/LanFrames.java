@@ -0,0 +1,211 @@
+package com.example.minesweeper;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Binary frames of LanTransport and ValidatorServer: [int length][byte type][payload],
+// big-endian, where length counts the type byte and the payload. Strings are a short
+// byte count and UTF-8; maps are a short entry count, then key and tagged value per
+// entry. A frame is at most MAX_FRAME bytes, length included; the Builder refuses
+// strings, maps and frames over their limits with an IllegalArgumentException, and the
+// getters throw a RuntimeException on a frame that does not parse. A move frame is 38 bytes plus the player name and state updates, against
+// ~100 bytes of JSON for the same entry on Firebase.
+final class LanFrames {
+    static final byte GAME = 1;   // board map, state map
+    static final byte MOVE = 2;   // seq, type, r, c, timestamp, hash, player, state updates
+    static final byte STATE = 3;  // state map (guest -> host: updates, host -> guest: whole state)
+    static final byte CHAT = 4;   // sender, text
+    static final byte PING = 5;   // guest clock
+    static final byte PONG = 6;   // guest clock echoed, host clock
+
+    // ValidatorServer
+    static final byte JOIN = 7;   // game id, player, size, mine count
+    static final byte INTENT = 8; // type, r, c
+    static final byte RESULT = 9; // game id, seq, player, type, outcome, next turn, more, cells, clues
+
+    // Opened cells per RESULT frame: a reveal can open most of a MAX_SIZE board, and a lost
+    // game lists every mine, so a result goes out as pages of at most this many cells,
+    // sent back to back with "more" set on every page but the last
+    static final int RESULT_PAGE = 8192;
+
+    static final byte SYNC = 10;  // map of a MerkleSync message
+
+    static final int MAX_FRAME = 1 << 16;
+
+    private static final byte NULL = 0, LONG = 1, STRING = 2, BOOLEAN = 3, SERVER_TIME = 4, INT = 5;
+    private static final long SERVER_TIME_STAMP = Long.MIN_VALUE;
+
+    private LanFrames() {}
+
+    static final class Builder {
+        private ByteBuffer buf = ByteBuffer.allocate(64);
+
+        Builder(byte type) {
+            buf.putInt(0).put(type);
+        }
+
+        private void room(int bytes) {
+            if (buf.remaining() >= bytes) return;
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(buf.capacity() * 2, buf.position() + bytes));
+            buf.flip();
+            bigger.put(buf);
+            buf = bigger;
+        }
+
+        Builder putInt(int v) { room(4); buf.putInt(v); return this; }
+        Builder putLong(long v) { room(8); buf.putLong(v); return this; }
+        Builder putByte(byte v) { room(1); buf.put(v); return this; }
+
+        Builder putString(String s) {
+            byte[] bytes = s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > Short.MAX_VALUE) throw new IllegalArgumentException("string of " + bytes.length + " bytes");
+            room(2 + bytes.length);
+            buf.putShort((short) (s == null ? -1 : bytes.length)).put(bytes);
+            return this;
+        }
+
+        Builder putMap(Map<String, Object> map) {
+            if (map.size() > Short.MAX_VALUE) throw new IllegalArgumentException("map of " + map.size() + " entries");
+            room(2);
+            buf.putShort((short) map.size());
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                putString(entry.getKey());
+                Object v = entry.getValue();
+                if (v == null) putByte(NULL);
+                else if (v == GameTransport.SERVER_TIME) putByte(SERVER_TIME);
+                else if (v instanceof Integer) putByte(INT).putInt((Integer) v);
+                else if (v instanceof Number) putByte(LONG).putLong(((Number) v).longValue());
+                else if (v instanceof Boolean) putByte(BOOLEAN).putByte((byte) ((Boolean) v ? 1 : 0));
+                else putByte(STRING).putString(String.valueOf(v));
+            }
+            return this;
+        }
+
+        Builder putMove(Move move, boolean serverTime) {
+            putInt(move.seq).putByte((byte) move.type).putInt(move.row).putInt(move.col);
+            putLong(serverTime ? SERVER_TIME_STAMP : move.timestamp).putLong(move.hash);
+            return putString(move.player);
+        }
+
+        // One page of a result: cells from..to and the clues among them
+        Builder putResult(MoveValidator.Result result, int from, int to) {
+            putString(result.gameId).putInt(result.seq).putString(result.player);
+            putByte((byte) result.type).putByte((byte) result.outcome).putString(result.nextTurn);
+            int clueFrom = Math.min(from, result.clues.length), clueTo = Math.min(to, result.clues.length);
+            putByte((byte) (to < result.cells.length ? 1 : 0));
+            putInt(to - from).putInt(clueTo - clueFrom);
+            room((to - from) * 4 + clueTo - clueFrom);
+            for (int i = from; i < to; i++) buf.putInt(result.cells[i]);
+            buf.put(result.clues, clueFrom, clueTo - clueFrom);
+            return this;
+        }
+
+        // Ready to write: length filled in, flipped
+        ByteBuffer build() {
+            if (buf.position() > MAX_FRAME) throw new IllegalArgumentException("frame of " + buf.position() + " bytes");
+            buf.putInt(0, buf.position() - 4);
+            buf.flip();
+            return buf;
+        }
+    }
+
+    static String getString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length == -1) return null;
+        if (length < 0) throw new IllegalArgumentException("string length " + length);
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static Map<String, Object> getMap(ByteBuffer in) {
+        int count = in.getShort();
+        if (count < 0) throw new IllegalArgumentException("map size " + count);
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String key = getString(in);
+            byte tag = in.get();
+            Object value;
+            switch (tag) {
+                case SERVER_TIME: value = GameTransport.SERVER_TIME; break;
+                case INT: value = in.getInt(); break;
+                case LONG: value = in.getLong(); break;
+                case BOOLEAN: value = in.get() != 0; break;
+                case STRING: value = getString(in); break;
+                default: value = null;
+            }
+            map.put(key, value);
+        }
+        return map;
+    }
+
+    // Every page of a result, ready to write in order
+    static List<ByteBuffer> resultFrames(MoveValidator.Result result) {
+        List<ByteBuffer> frames = new ArrayList<>();
+        int from = 0;
+        do {
+            int to = Math.min(result.cells.length, from + RESULT_PAGE);
+            frames.add(new Builder(RESULT).putResult(result, from, to).build());
+            from = to;
+        } while (from < result.cells.length);
+        return frames;
+    }
+
+    // Puts the pages of RESULT frames back together: add() returns the result once its
+    // last page is in, null before that. A page of another result before the last one
+    // does not parse.
+    static final class ResultPages {
+        private MoveValidator.Result head;
+        private int[] cells = new int[0];
+        private byte[] clues = new byte[0];
+
+        MoveValidator.Result add(ByteBuffer in) {
+            String gameId = getString(in);
+            int seq = in.getInt();
+            String player = getString(in);
+            int type = in.get();
+            int outcome = in.get();
+            String nextTurn = getString(in);
+            boolean more = in.get() != 0;
+            int cellCount = in.getInt();
+            int clueCount = in.getInt();
+            if (cellCount < 0 || clueCount < 0 || cellCount * 4L + clueCount > in.remaining()) {
+                throw new IllegalArgumentException("page of " + cellCount + " cells, " + clueCount + " clues");
+            }
+            if (head != null && (head.seq != seq || !head.gameId.equals(gameId))) {
+                throw new IllegalArgumentException("page of " + gameId + " #" + seq + " inside "
+                        + head.gameId + " #" + head.seq);
+            }
+            int cellsBefore = cells.length, cluesBefore = clues.length;
+            cells = Arrays.copyOf(cells, cellsBefore + cellCount);
+            clues = Arrays.copyOf(clues, cluesBefore + clueCount);
+            for (int i = 0; i < cellCount; i++) cells[cellsBefore + i] = in.getInt();
+            in.get(clues, cluesBefore, clueCount);
+            head = new MoveValidator.Result(gameId, seq, player, type, outcome, cells, clues, nextTurn);
+            if (more) return null;
+
+            MoveValidator.Result whole = head;
+            head = null;
+            cells = new int[0];
+            clues = new byte[0];
+            return whole;
+        }
+    }
+
+    // Returns the move; a SERVER_TIME timestamp comes back as -1
+    static Move getMove(ByteBuffer in) {
+        int seq = in.getInt();
+        int type = in.get();
+        int r = in.getInt();
+        int c = in.getInt();
+        long ts = in.getLong();
+        long hash = in.getLong();
+        String player = getString(in);
+        return new Move(seq, type, r, c, player, ts == SERVER_TIME_STAMP ? -1 : ts, hash);
+    }
+}
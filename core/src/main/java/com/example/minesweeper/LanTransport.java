@@ -0,0 +1,399 @@
+package com.example.minesweeper;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+// GameTransport over TCP between two devices on one network, with no server between
+// them. The host keeps the game in a LoopbackHub and serves it to one guest; the guest
+// keeps a copy of everything the host sent, so late subscribers still get it. One
+// selector thread does all socket I/O without blocking (connecting included, so the
+// factories are safe on the main thread); listeners run on the callback executor.
+// Frames are described in LanFrames. A frame that does not parse ends the link, as
+// does the other device going away; subscribeClosed hears of either.
+public final class LanTransport implements GameTransport {
+    public static final int DEFAULT_PORT = 47100;
+    private static final long PING_EVERY_MS = 10_000;
+
+    public interface ClosedListener {
+        // The link is gone for good: the other device left, or sent something unreadable
+        void onClosed(Exception cause);
+    }
+
+    private final Executor callbacks;
+    private final Selector selector;
+    private final ConcurrentLinkedQueue<ByteBuffer> outgoing = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer readBuf = ByteBuffer.allocate(LanFrames.MAX_FRAME);
+    private ServerSocketChannel server;
+    private SocketChannel peer;
+    private ByteBuffer writing;
+    private volatile boolean closed;
+    private volatile long bytesReceived;
+    private long lastPing;
+    private final List<ClosedListener> closedListeners = new ArrayList<>();
+    private Exception closedBy;
+
+    // Host side
+    private final LoopbackHub hub;
+    private final GameTransport local;
+    private GameTransport guestView;
+
+    // Guest side: what the host has sent so far
+    private Map<String, Object> board;
+    private final Map<String, Object> state = new HashMap<>();
+    private final TreeMap<Integer, Move> moves = new TreeMap<>();
+    private final List<String[]> chat = new ArrayList<>();
+    private Long offset;
+    private final List<GameListener> gameListeners = new ArrayList<>();
+    private final List<MoveListener> moveListeners = new ArrayList<>();
+    private final List<StateListener> stateListeners = new ArrayList<>();
+    private final List<ChatListener> chatListeners = new ArrayList<>();
+    private final List<OffsetListener> offsetListeners = new ArrayList<>();
+    private final List<SyncListener> syncListeners = new ArrayList<>();
+
+    // Waits for one guest on port (0 picks a free one, see getPort)
+    public static LanTransport host(int port, Executor callbacks) throws IOException {
+        return new LanTransport(new LoopbackHub(), port, null, callbacks);
+    }
+
+    public static LanTransport join(InetSocketAddress host, Executor callbacks) throws IOException {
+        return new LanTransport(null, 0, host, callbacks);
+    }
+
+    private LanTransport(LoopbackHub hub, int port, InetSocketAddress host, Executor callbacks) throws IOException {
+        this.callbacks = callbacks;
+        this.hub = hub;
+        this.local = hub != null ? hub.client(callbacks) : null;
+        this.selector = Selector.open();
+        if (hub != null) {
+            server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(port));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } else {
+            peer = SocketChannel.open();
+            peer.configureBlocking(false);
+            peer.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            if (peer.connect(host)) peer.register(selector, SelectionKey.OP_READ);
+            else peer.register(selector, SelectionKey.OP_CONNECT);
+        }
+        Thread loop = new Thread(this::run, hub != null ? "lan-host" : "lan-guest");
+        loop.setDaemon(true);
+        loop.start();
+    }
+
+    public int getPort() {
+        return server == null ? -1 : server.socket().getLocalPort();
+    }
+
+    public long getBytesReceived() { return bytesReceived; }
+
+    // GameTransport: the host goes straight to its hub, the guest sends frames
+
+    @Override
+    public void createGame(Map<String, Object> board, Map<String, Object> state) {
+        if (local != null) local.createGame(board, state);
+        else send(new LanFrames.Builder(LanFrames.GAME).putMap(board).putMap(state).build());
+    }
+
+    @Override
+    public void publishMove(Move move, Map<String, Object> stateUpdates) {
+        if (local != null) local.publishMove(move, stateUpdates);
+        else send(new LanFrames.Builder(LanFrames.MOVE).putMove(move, true).putMap(stateUpdates).build());
+    }
+
+    @Override
+    public void updateState(Map<String, Object> updates) {
+        if (local != null) local.updateState(updates);
+        else send(new LanFrames.Builder(LanFrames.STATE).putMap(updates).build());
+    }
+
+    @Override
+    public void sendChat(String sender, String text) {
+        if (local != null) local.sendChat(sender, text);
+        else send(new LanFrames.Builder(LanFrames.CHAT).putString(sender).putString(text).build());
+    }
+
+    @Override
+    public void sendSync(Map<String, Object> message) {
+        if (local != null) local.sendSync(message);
+        else send(new LanFrames.Builder(LanFrames.SYNC).putMap(message).build());
+    }
+
+    @Override
+    public synchronized void subscribeGame(GameListener listener) {
+        if (local != null) { local.subscribeGame(listener); return; }
+        gameListeners.add(listener);
+        if (board != null) {
+            Map<String, Object> b = board;
+            callbacks.execute(() -> listener.onGame(b));
+        }
+    }
+
+    @Override
+    public synchronized void subscribeMoves(MoveListener listener) {
+        if (local != null) { local.subscribeMoves(listener); return; }
+        moveListeners.add(listener);
+        for (Move move : moves.values()) callbacks.execute(() -> listener.onMove(move));
+    }
+
+    @Override
+    public synchronized void subscribeState(StateListener listener) {
+        if (local != null) { local.subscribeState(listener); return; }
+        stateListeners.add(listener);
+        if (!state.isEmpty()) {
+            Map<String, Object> snapshot = new HashMap<>(state);
+            callbacks.execute(() -> listener.onState(snapshot));
+        }
+    }
+
+    @Override
+    public synchronized void subscribeChat(ChatListener listener) {
+        if (local != null) { local.subscribeChat(listener); return; }
+        chatListeners.add(listener);
+        for (String[] message : chat) callbacks.execute(() -> listener.onChat(message[0], message[1]));
+    }
+
+    @Override
+    public synchronized void subscribeSync(SyncListener listener) {
+        if (local != null) { local.subscribeSync(listener); return; }
+        syncListeners.add(listener);
+    }
+
+    // The host's clock is the server clock
+    @Override
+    public synchronized void subscribeServerOffset(OffsetListener listener) {
+        if (local != null) { local.subscribeServerOffset(listener); return; }
+        offsetListeners.add(listener);
+        if (offset != null) {
+            long o = offset;
+            callbacks.execute(() -> listener.onServerOffset(o));
+        }
+    }
+
+    // Heard once, on the callback executor, when the link ends other than by close()
+    public synchronized void subscribeClosed(ClosedListener listener) {
+        closedListeners.add(listener);
+        if (closedBy != null) {
+            Exception cause = closedBy;
+            callbacks.execute(() -> listener.onClosed(cause));
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (local != null) local.close();
+        if (guestView != null) guestView.close();
+        selector.wakeup();
+    }
+
+    // Selector thread
+
+    private void send(ByteBuffer frame) {
+        outgoing.add(frame);
+        selector.wakeup();
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                selector.select(PING_EVERY_MS);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) accept();
+                    else if (key.isConnectable()) finishConnect(key);
+                    else if (key.isReadable()) read(key);
+                }
+                if (hub == null && peer != null && peer.isConnected()
+                        && System.currentTimeMillis() - lastPing >= PING_EVERY_MS) {
+                    ping();
+                }
+                flush();
+            }
+        } catch (IOException | RuntimeException e) {
+            // The other device went away or sent a bad frame; nothing more will arrive
+            closeQuietly();
+            if (!closed) onClosed(e);
+            return;
+        }
+        closeQuietly();
+    }
+
+    private synchronized void onClosed(Exception cause) {
+        closedBy = cause;
+        for (ClosedListener l : closedListeners) callbacks.execute(() -> l.onClosed(cause));
+    }
+
+    private void accept() throws IOException {
+        SocketChannel guest = server.accept();
+        if (guest == null) return;
+        if (peer != null) { // one guest per game
+            guest.close();
+            return;
+        }
+        peer = guest;
+        peer.configureBlocking(false);
+        peer.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        peer.register(selector, SelectionKey.OP_READ);
+
+        // The guest's view of the hub, turned into frames
+        guestView = hub.client(Runnable::run);
+        guestView.subscribeGame(b -> send(new LanFrames.Builder(LanFrames.GAME)
+                .putMap(b).putMap(new HashMap<>()).build()));
+        guestView.subscribeState(s -> send(new LanFrames.Builder(LanFrames.STATE).putMap(s).build()));
+        guestView.subscribeMoves(m -> send(new LanFrames.Builder(LanFrames.MOVE)
+                .putMove(m, false).putMap(new HashMap<>()).build()));
+        guestView.subscribeChat((sender, text) -> send(new LanFrames.Builder(LanFrames.CHAT)
+                .putString(sender).putString(text).build()));
+        guestView.subscribeSync(m -> send(new LanFrames.Builder(LanFrames.SYNC).putMap(m).build()));
+    }
+
+    private void finishConnect(SelectionKey key) throws IOException {
+        if (!peer.finishConnect()) return;
+        key.interestOps(SelectionKey.OP_READ);
+        ping();
+    }
+
+    private void ping() {
+        lastPing = System.currentTimeMillis();
+        outgoing.add(new LanFrames.Builder(LanFrames.PING).putLong(System.currentTimeMillis()).build());
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        int n = peer.read(readBuf);
+        if (n < 0) throw new IOException("closed by peer");
+        bytesReceived += n;
+        readBuf.flip();
+        while (readBuf.remaining() >= 4) {
+            int length = readBuf.getInt(readBuf.position());
+            if (length < 1 || length > readBuf.capacity() - 4) throw new IOException("bad frame length " + length);
+            if (readBuf.remaining() < 4 + length) break;
+            ByteBuffer frame = readBuf.slice();
+            frame.position(4).limit(4 + length);
+            readBuf.position(readBuf.position() + 4 + length);
+            onFrame(frame.slice());
+        }
+        readBuf.compact();
+    }
+
+    private void onFrame(ByteBuffer in) {
+        byte type = in.get();
+        if (hub != null) onGuestFrame(type, in);
+        else onHostFrame(type, in);
+    }
+
+    private void onGuestFrame(byte type, ByteBuffer in) {
+        switch (type) {
+            case LanFrames.GAME:
+                Map<String, Object> b = LanFrames.getMap(in);
+                guestView.createGame(b, LanFrames.getMap(in));
+                break;
+            case LanFrames.MOVE:
+                Move move = LanFrames.getMove(in);
+                guestView.publishMove(move, LanFrames.getMap(in));
+                break;
+            case LanFrames.STATE:
+                guestView.updateState(LanFrames.getMap(in));
+                break;
+            case LanFrames.CHAT:
+                String sender = LanFrames.getString(in);
+                guestView.sendChat(sender, LanFrames.getString(in));
+                break;
+            case LanFrames.SYNC:
+                guestView.sendSync(LanFrames.getMap(in));
+                break;
+            case LanFrames.PING:
+                outgoing.add(new LanFrames.Builder(LanFrames.PONG)
+                        .putLong(in.getLong()).putLong(System.currentTimeMillis()).build());
+                break;
+        }
+    }
+
+    private synchronized void onHostFrame(byte type, ByteBuffer in) {
+        switch (type) {
+            case LanFrames.GAME: {
+                Map<String, Object> b = LanFrames.getMap(in);
+                board = b;
+                moves.clear();
+                chat.clear();
+                for (GameListener l : gameListeners) callbacks.execute(() -> l.onGame(b));
+                break;
+            }
+            case LanFrames.MOVE: {
+                Move move = LanFrames.getMove(in);
+                if (moves.putIfAbsent(move.seq, move) != null) break;
+                for (MoveListener l : moveListeners) callbacks.execute(() -> l.onMove(move));
+                break;
+            }
+            case LanFrames.STATE: {
+                state.clear();
+                state.putAll(LanFrames.getMap(in));
+                Map<String, Object> snapshot = new HashMap<>(state);
+                for (StateListener l : stateListeners) callbacks.execute(() -> l.onState(snapshot));
+                break;
+            }
+            case LanFrames.CHAT: {
+                String sender = LanFrames.getString(in);
+                String text = LanFrames.getString(in);
+                chat.add(new String[]{sender, text});
+                for (ChatListener l : chatListeners) callbacks.execute(() -> l.onChat(sender, text));
+                break;
+            }
+            case LanFrames.SYNC: {
+                Map<String, Object> message = LanFrames.getMap(in);
+                for (SyncListener l : syncListeners) callbacks.execute(() -> l.onSync(message));
+                break;
+            }
+            case LanFrames.PONG: {
+                long sent = in.getLong();
+                long hostTime = in.getLong();
+                long now = System.currentTimeMillis();
+                long o = hostTime - (sent + now) / 2;
+                offset = o;
+                for (OffsetListener l : offsetListeners) callbacks.execute(() -> l.onServerOffset(o));
+                break;
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        if (peer == null || !peer.isConnected()) return;
+        while (true) {
+            if (writing == null) writing = outgoing.poll();
+            if (writing == null) break;
+            peer.write(writing);
+            if (writing.hasRemaining()) break;
+            writing = null;
+        }
+        SelectionKey key = peer.keyFor(selector);
+        if (key != null && key.isValid()) {
+            key.interestOps(writing != null ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            if (peer != null) peer.close();
+            if (server != null) server.close();
+            selector.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.example.minesweeper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// An in-memory game server: one game node shared by every client() of the hub.
+// The first write at a seq wins, as if the database refused to overwrite log entries,
+// and SERVER_TIME is the hub's clock. Without a network executor writes land and
+// listeners are called at once; with one, every write and every delivery takes its
+// own delay plus random jitter. Like a socket, each client's writes and each client's
+// deliveries stay in order, but writes of different clients race each other.
+// Each client's listeners run on that client's callback executor.
+// The hub also counts its traffic the way the Realtime Database would bill it: each
+// write (a setValue or updateChildren) with a path per key it sets, and every listener
+// callback as one delivery of the JSON it was handed (a value listener gets its whole node).
+// setSyncLoss drops sync messages at random, as a flaky connection would.
+public final class LoopbackHub {
+    private final ScheduledExecutorService network;
+    private final long delayMicros;
+    private final long jitterMicros;
+    private final SplittableRandom rng;
+
+    private Map<String, Object> board;
+    private final Map<String, Object> state = new HashMap<>();
+    private final TreeMap<Integer, Move> moves = new TreeMap<>();
+    private final List<String[]> chat = new ArrayList<>();
+    private final List<Client> clients = new ArrayList<>();
+
+    private long writes;
+    private long pathsWritten;
+    private long bytesWritten;
+    private long deliveries;
+    private long bytesDelivered;
+    private double syncLoss;
+    private long syncDropped;
+
+    public LoopbackHub() {
+        this(null, 0, 0, 0);
+    }
+
+    public LoopbackHub(ScheduledExecutorService network, long delayMicros, long jitterMicros, long seed) {
+        this.network = network;
+        this.delayMicros = delayMicros;
+        this.jitterMicros = jitterMicros;
+        this.rng = new SplittableRandom(seed);
+    }
+
+    public GameTransport client(Executor callbacks) {
+        Client client = new Client(callbacks);
+        synchronized (this) {
+            clients.add(client);
+        }
+        return client;
+    }
+
+    public synchronized int moveCount() { return moves.size(); }
+
+    public synchronized Map<String, Object> getState() { return new HashMap<>(state); }
+
+    public synchronized long getWrites() { return writes; }
+    public synchronized long getPathsWritten() { return pathsWritten; }
+    public synchronized long getBytesWritten() { return bytesWritten; }
+    public synchronized long getDeliveries() { return deliveries; }
+    public synchronized long getBytesDelivered() { return bytesDelivered; }
+    public synchronized long getSyncDropped() { return syncDropped; }
+
+    // The share of sync messages lost between sender and hub, 0 to 1
+    public synchronized void setSyncLoss(double loss) { syncLoss = loss; }
+
+    private long now() { return System.currentTimeMillis(); }
+
+    private void written(int paths, int bytes) {
+        pathsWritten += paths;
+        bytesWritten += bytes;
+    }
+
+    private void delivered(int listeners, int bytes) {
+        deliveries += listeners;
+        bytesDelivered += (long) listeners * bytes;
+    }
+
+    private Map<String, Object> stamped(Map<String, Object> values, long now) {
+        Map<String, Object> out = new HashMap<>(values);
+        for (Map.Entry<String, Object> entry : out.entrySet()) {
+            if (entry.getValue() == GameTransport.SERVER_TIME) entry.setValue(now);
+        }
+        return out;
+    }
+
+    // Server side: these run after the uplink delay, under the hub lock
+
+    private synchronized void storeGame(Map<String, Object> newBoard, Map<String, Object> newState) {
+        long now = now();
+        board = new HashMap<>(newBoard);
+        state.clear();
+        state.putAll(stamped(newState, now));
+        moves.clear();
+        chat.clear();
+        writes++;
+        written(2, PayloadSize.jsonBytes(board) + PayloadSize.jsonBytes(state));
+        Map<String, Object> snapshot = new HashMap<>(state);
+        for (Client client : clients) {
+            client.deliverGame(board);
+            client.deliverState(snapshot);
+        }
+    }
+
+    private synchronized void storeMove(Move move, Map<String, Object> stateUpdates) {
+        if (moves.containsKey(move.seq)) return;
+        writes++;
+        long now = now();
+        Move stored = new Move(move.seq, move.type, move.row, move.col, move.player, now, move.hash);
+        moves.put(move.seq, stored);
+        written(1, PayloadSize.jsonBytes(stored.toMap(now)));
+        for (Client client : clients) client.deliverMove(stored);
+        if (!stateUpdates.isEmpty()) storeStateKeys(stateUpdates);
+    }
+
+    private synchronized void storeState(Map<String, Object> updates) {
+        writes++;
+        storeStateKeys(updates);
+    }
+
+    // Also the state half of a move's write
+    private void storeStateKeys(Map<String, Object> updates) {
+        Map<String, Object> values = stamped(updates, now());
+        state.putAll(values);
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            written(1, PayloadSize.jsonBytes(entry.getValue()));
+        }
+        Map<String, Object> snapshot = new HashMap<>(state);
+        for (Client client : clients) client.deliverState(snapshot);
+    }
+
+    private synchronized void storeChat(String sender, String text) {
+        chat.add(new String[]{sender, text});
+        writes++;
+        written(1, chatBytes(sender, text));
+        for (Client client : clients) client.deliverChat(sender, text);
+    }
+
+    // Passed on, not stored
+    private synchronized void storeSync(Map<String, Object> message) {
+        if (syncLoss > 0 && lost()) {
+            syncDropped++;
+            return;
+        }
+        writes++;
+        int bytes = PayloadSize.jsonBytes(message);
+        written(1, bytes);
+        for (Client client : clients) client.deliverSync(message, bytes);
+    }
+
+    private boolean lost() {
+        synchronized (rng) {
+            return rng.nextDouble() < syncLoss;
+        }
+    }
+
+    private static int chatBytes(String sender, String text) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("sender", sender);
+        message.put("text", text);
+        return PayloadSize.jsonBytes(message);
+    }
+
+    // One direction of a client's connection: tasks run in the order they were sent,
+    // each no earlier than its own delay
+    private final class Link {
+        private final ArrayDeque<Long> due = new ArrayDeque<>();
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private long last;
+
+        void send(Runnable task) {
+            if (network == null) {
+                task.run();
+                return;
+            }
+            long delay;
+            synchronized (rng) {
+                delay = delayMicros + (jitterMicros > 0 ? rng.nextLong(jitterMicros) : 0);
+            }
+            synchronized (this) {
+                long at = Math.max(System.nanoTime() + delay * 1000, last);
+                last = at;
+                due.add(at);
+                tasks.add(task);
+                network.schedule(this::drain, at - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private synchronized void drain() {
+            long now = System.nanoTime();
+            while (!due.isEmpty() && due.peek() <= now) {
+                due.poll();
+                tasks.poll().run();
+            }
+        }
+    }
+
+    private final class Client implements GameTransport {
+        private final Executor callbacks;
+        private final Link up = new Link();
+        private final Link down = new Link();
+        private final List<GameListener> gameListeners = new ArrayList<>();
+        private final List<MoveListener> moveListeners = new ArrayList<>();
+        private final List<StateListener> stateListeners = new ArrayList<>();
+        private final List<ChatListener> chatListeners = new ArrayList<>();
+        private final List<SyncListener> syncListeners = new ArrayList<>();
+        private volatile boolean closed;
+
+        Client(Executor callbacks) {
+            this.callbacks = callbacks;
+        }
+
+        @Override
+        public void createGame(Map<String, Object> board, Map<String, Object> state) {
+            Map<String, Object> b = new HashMap<>(board), s = new HashMap<>(state);
+            up.send(() -> storeGame(b, s));
+        }
+
+        @Override
+        public void publishMove(Move move, Map<String, Object> stateUpdates) {
+            Map<String, Object> updates = new HashMap<>(stateUpdates);
+            up.send(() -> storeMove(move, updates));
+        }
+
+        @Override
+        public void updateState(Map<String, Object> updates) {
+            Map<String, Object> copy = new HashMap<>(updates);
+            up.send(() -> storeState(copy));
+        }
+
+        @Override
+        public void sendChat(String sender, String text) {
+            up.send(() -> storeChat(sender, text));
+        }
+
+        @Override
+        public void sendSync(Map<String, Object> message) {
+            Map<String, Object> copy = new HashMap<>(message);
+            up.send(() -> storeSync(copy));
+        }
+
+        @Override
+        public void subscribeGame(GameListener listener) {
+            synchronized (LoopbackHub.this) {
+                gameListeners.add(listener);
+                if (board != null) {
+                    delivered(1, PayloadSize.jsonBytes(board));
+                    deliver(() -> listener.onGame(board));
+                }
+            }
+        }
+
+        @Override
+        public void subscribeMoves(MoveListener listener) {
+            synchronized (LoopbackHub.this) {
+                moveListeners.add(listener);
+                for (Move move : moves.values()) {
+                    delivered(1, PayloadSize.jsonBytes(move.toMap(move.timestamp)));
+                    deliver(() -> listener.onMove(move));
+                }
+            }
+        }
+
+        @Override
+        public void subscribeState(StateListener listener) {
+            synchronized (LoopbackHub.this) {
+                stateListeners.add(listener);
+                if (!state.isEmpty()) {
+                    Map<String, Object> snapshot = new HashMap<>(state);
+                    delivered(1, PayloadSize.jsonBytes(snapshot));
+                    deliver(() -> listener.onState(snapshot));
+                }
+            }
+        }
+
+        @Override
+        public void subscribeChat(ChatListener listener) {
+            synchronized (LoopbackHub.this) {
+                chatListeners.add(listener);
+                for (String[] message : chat) {
+                    delivered(1, chatBytes(message[0], message[1]));
+                    deliver(() -> listener.onChat(message[0], message[1]));
+                }
+            }
+        }
+
+        @Override
+        public void subscribeSync(SyncListener listener) {
+            synchronized (LoopbackHub.this) {
+                syncListeners.add(listener);
+            }
+        }
+
+        // The hub's clock is the local clock
+        @Override
+        public void subscribeServerOffset(OffsetListener listener) {
+            deliver(() -> listener.onServerOffset(0));
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            synchronized (LoopbackHub.this) {
+                clients.remove(this);
+            }
+        }
+
+        // Called by the store methods, under the hub lock
+
+        void deliverGame(Map<String, Object> board) {
+            delivered(gameListeners.size(), PayloadSize.jsonBytes(board));
+            for (GameListener listener : gameListeners) deliver(() -> listener.onGame(board));
+        }
+
+        void deliverMove(Move move) {
+            delivered(moveListeners.size(), PayloadSize.jsonBytes(move.toMap(move.timestamp)));
+            for (MoveListener listener : moveListeners) deliver(() -> listener.onMove(move));
+        }
+
+        void deliverState(Map<String, Object> snapshot) {
+            delivered(stateListeners.size(), PayloadSize.jsonBytes(snapshot));
+            for (StateListener listener : stateListeners) deliver(() -> listener.onState(snapshot));
+        }
+
+        void deliverChat(String sender, String text) {
+            delivered(chatListeners.size(), chatBytes(sender, text));
+            for (ChatListener listener : chatListeners) deliver(() -> listener.onChat(sender, text));
+        }
+
+        void deliverSync(Map<String, Object> message, int bytes) {
+            delivered(syncListeners.size(), bytes);
+            for (SyncListener listener : syncListeners) deliver(() -> listener.onSync(message));
+        }
+
+        private void deliver(Runnable callback) {
+            down.send(() -> {
+                if (!closed) callbacks.execute(callback);
+            });
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.example.minesweeper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// An in-memory matchmaking database: the nodes every client() of the store shares.
+// Transactions work as in the Realtime Database: the update first runs on the client's
+// cached copy of the node (null if it has none), the server applies the result only if
+// its node still equals that copy, and otherwise sends its value back for the update
+// to run again, up to MAX_TRIES times. An ABORT ends the transaction where it is, even
+// one decided on a stale copy. "status" is indexed, so findWaiting reads only waiting
+// nodes. Every request and every reply takes its own delay plus jitter, in order per
+// client and direction as in LoopbackHub; callbacks run on the client's executor.
+// disconnect(client) drops a client's connection as the server would see it, deleting
+// the nodes it asked removeOnDisconnect for.
+public final class LoopbackMatchStore {
+    private static final int MAX_TRIES = 25;
+
+    private final ScheduledExecutorService network;
+    private final long delayMicros;
+    private final long jitterMicros;
+    private final SplittableRandom rng;
+
+    private final Map<String, Map<String, Object>> nodes = new HashMap<>();
+    private final TreeSet<String> waiting = new TreeSet<>();
+    private final Map<String, List<Watch>> watches = new HashMap<>();
+    private final Map<Client, List<String>> onDisconnect = new HashMap<>();
+    private long keys;
+
+    private long transactions;
+    private long tries;
+    private long aborts;
+    private long queries;
+    private long writes;
+
+    public LoopbackMatchStore(ScheduledExecutorService network, long delayMicros, long jitterMicros, long seed) {
+        this.network = network;
+        this.delayMicros = delayMicros;
+        this.jitterMicros = jitterMicros;
+        this.rng = new SplittableRandom(seed);
+    }
+
+    public MatchStore client(Executor callbacks) {
+        return new Client(callbacks);
+    }
+
+    // The client stays silent from now on; the writes it still had on the way are lost
+    public synchronized void disconnect(MatchStore client) {
+        Client gone = (Client) client;
+        gone.up.closed = true;
+        gone.down.closed = true;
+        List<String> paths = onDisconnect.remove(gone);
+        if (paths == null) return;
+        for (String path : paths) store(path, null);
+    }
+
+    // Transactions run, round trips they took, and those aborted
+    public synchronized long getTransactions() { return transactions; }
+    public synchronized long getTries() { return tries; }
+    public synchronized long getAborts() { return aborts; }
+    public synchronized long getQueries() { return queries; }
+    public synchronized long getWrites() { return writes; }
+
+    public synchronized Map<String, Map<String, Object>> getNodes(String collection) {
+        Map<String, Map<String, Object>> out = new TreeMap<>();
+        String prefix = collection + "/";
+        for (Map.Entry<String, Map<String, Object>> entry : nodes.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                out.put(entry.getKey().substring(prefix.length()), entry.getValue());
+            }
+        }
+        return out;
+    }
+
+    // Server side: these run after the uplink delay, under the store lock
+
+    // Returns the node after the write, for the transaction's reply
+    private synchronized Map<String, Object> compareAndSet(String path, Map<String, Object> expected,
+                                                           Map<String, Object> value, boolean[] committed) {
+        tries++;
+        Map<String, Object> current = nodes.get(path);
+        committed[0] = Objects.equals(expected, current);
+        if (!committed[0]) return copy(current);
+        store(path, value);
+        return copy(value);
+    }
+
+    private synchronized void store(String path, Map<String, Object> value) {
+        writes++;
+        if (value == null) nodes.remove(path);
+        else nodes.put(path, copy(value));
+        if (value != null && "waiting".equals(value.get("status"))) waiting.add(path);
+        else waiting.remove(path);
+        List<Watch> watching = watches.get(path);
+        if (watching == null) return;
+        for (Watch watch : watching) watch.deliver(copy(value));
+    }
+
+    private synchronized void query(String collection, int limit, List<String> keys,
+                                    List<Map<String, Object>> values) {
+        queries++;
+        String prefix = collection + "/";
+        for (String path : waiting.tailSet(prefix)) {
+            if (!path.startsWith(prefix) || keys.size() >= limit) break;
+            keys.add(path.substring(prefix.length()));
+            values.add(copy(nodes.get(path)));
+        }
+    }
+
+    private synchronized void addRemoval(Client client, String path) {
+        onDisconnect.computeIfAbsent(client, c -> new ArrayList<>()).add(path);
+    }
+
+    private synchronized void addWatch(Watch watch) {
+        watches.computeIfAbsent(watch.path, p -> new ArrayList<>()).add(watch);
+        watch.deliver(copy(nodes.get(watch.path)));
+    }
+
+    private synchronized void removeWatch(Watch watch) {
+        List<Watch> watching = watches.get(watch.path);
+        if (watching != null) watching.remove(watch);
+    }
+
+    private static Map<String, Object> copy(Map<String, Object> value) {
+        if (value == null) return null;
+        Map<String, Object> out = new HashMap<>();
+        for (Map.Entry<String, Object> entry : value.entrySet()) {
+            out.put(entry.getKey(), entry.getValue() instanceof Map
+                    ? copy(asMap(entry.getValue())) : entry.getValue());
+        }
+        return out;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) {
+        return (Map<String, Object>) value;
+    }
+
+    private long delay() {
+        synchronized (rng) {
+            return delayMicros + (jitterMicros > 0 ? rng.nextLong(jitterMicros) : 0);
+        }
+    }
+
+    // One direction of a client's connection, as LoopbackHub's: tasks run in the order
+    // they were sent, each no earlier than its own delay
+    private final class Link {
+        private final ArrayDeque<Long> due = new ArrayDeque<>();
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private long last;
+        volatile boolean closed;
+
+        synchronized void send(Runnable task) {
+            if (closed) return;
+            long at = Math.max(System.nanoTime() + delay() * 1000, last);
+            last = at;
+            due.add(at);
+            tasks.add(task);
+            network.schedule(this::drain, at - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        private synchronized void drain() {
+            long now = System.nanoTime();
+            while (!due.isEmpty() && due.peek() <= now) {
+                due.poll();
+                Runnable task = tasks.poll();
+                if (!closed) task.run();
+            }
+        }
+    }
+
+    private final class Watch {
+        final Client client;
+        final String path;
+        final MatchStore.Watcher watcher;
+        volatile boolean stopped;
+
+        Watch(Client client, String path, MatchStore.Watcher watcher) {
+            this.client = client;
+            this.path = path;
+            this.watcher = watcher;
+        }
+
+        void deliver(Map<String, Object> value) {
+            client.reply(() -> {
+                client.cache(path, value);
+                if (!stopped) watcher.onValue(value);
+            });
+        }
+    }
+
+    private final class Client implements MatchStore {
+        private final Executor callbacks;
+        private final Link up = new Link();
+        private final Link down = new Link();
+        // What this client last heard of each node; touched on the callback thread only
+        private final Map<String, Map<String, Object>> cache = new HashMap<>();
+
+        Client(Executor callbacks) {
+            this.callbacks = callbacks;
+        }
+
+        @Override
+        public String newKey(String collection) {
+            synchronized (LoopbackMatchStore.this) {
+                return String.format("-%012d", ++keys);
+            }
+        }
+
+        @Override
+        public void transact(String path, Update update, Done done) {
+            synchronized (LoopbackMatchStore.this) {
+                transactions++;
+            }
+            attempt(path, cache.get(path), update, done, 1);
+        }
+
+        private void attempt(String path, Map<String, Object> expected, Update update, Done done, int tried) {
+            Map<String, Object> value = tried > MAX_TRIES ? ABORT : update.apply(copy(expected));
+            if (value == ABORT) {
+                synchronized (LoopbackMatchStore.this) {
+                    aborts++;
+                }
+                done.onDone(false, copy(expected));
+                return;
+            }
+            Map<String, Object> sent = copy(value);
+            up.send(() -> {
+                boolean[] committed = new boolean[1];
+                Map<String, Object> now = compareAndSet(path, expected, sent, committed);
+                reply(() -> {
+                    cache(path, now);
+                    if (committed[0]) done.onDone(true, now);
+                    else attempt(path, now, update, done, tried + 1);
+                });
+            });
+        }
+
+        @Override
+        public void set(String path, Map<String, Object> value) {
+            Map<String, Object> sent = copy(value);
+            cache(path, sent);
+            up.send(() -> store(path, sent));
+        }
+
+        @Override
+        public void remove(String path) {
+            cache(path, null);
+            up.send(() -> store(path, null));
+        }
+
+        @Override
+        public void removeOnDisconnect(String path) {
+            up.send(() -> addRemoval(this, path));
+        }
+
+        @Override
+        public void findWaiting(String collection, int limit, Found found) {
+            up.send(() -> {
+                List<String> keys = new ArrayList<>();
+                List<Map<String, Object>> values = new ArrayList<>();
+                query(collection, limit, keys, values);
+                reply(() -> {
+                    for (int i = 0; i < keys.size(); i++) cache(collection + "/" + keys.get(i), values.get(i));
+                    found.onFound(keys, values);
+                });
+            });
+        }
+
+        @Override
+        public Runnable watch(String path, Watcher watcher) {
+            Watch watch = new Watch(this, path, watcher);
+            up.send(() -> addWatch(watch));
+            return () -> {
+                watch.stopped = true;
+                up.send(() -> removeWatch(watch));
+            };
+        }
+
+        @Override
+        public void schedule(Runnable task, long delayMs) {
+            network.schedule(() -> callbacks.execute(task), delayMs, TimeUnit.MILLISECONDS);
+        }
+
+        void reply(Runnable callback) {
+            down.send(() -> callbacks.execute(callback));
+        }
+
+        void cache(String path, Map<String, Object> value) {
+            if (value == null) cache.remove(path);
+            else cache.put(path, value);
+        }
+    }
+}
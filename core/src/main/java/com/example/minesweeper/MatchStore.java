@@ -0,0 +1,64 @@
+package com.example.minesweeper;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The few database operations Matchmaker needs, on nodes at "<collection>/<key>":
+//   transact     an atomic read-modify-write of one node, retried on contention the
+//                way Realtime Database transactions are
+//   set, remove  plain writes
+//   removeOnDisconnect  deletes the node on the server once this client's connection
+//                is lost, as the Realtime Database's onDisconnect().removeValue() does
+//   findWaiting  the first nodes of a collection whose "status" is "waiting", in key
+//                order (an indexed query: the collection needs ".indexOn": "status")
+//   watch        the node's value now and after every change
+// Implementations: FirebaseMatchStore (Android) and LoopbackMatchStore clients for
+// benchmarks. Callbacks and scheduled tasks run on the implementation's callback thread.
+public interface MatchStore {
+
+    // Returned by an Update to leave the node alone and fail the transaction
+    Map<String, Object> ABORT = new HashMap<String, Object>() {
+        @Override
+        public String toString() { return "ABORT"; }
+    };
+
+    interface Update {
+        // Return the new value, null to delete, or ABORT. current is null for a missing
+        // node, but the first call gets the local copy, which may be stale or missing:
+        // a wrong guess is only found out by the server, which calls again with its
+        // value. An ABORT is final, so a null current should get null back, not ABORT.
+        Map<String, Object> apply(Map<String, Object> current);
+    }
+
+    interface Done {
+        // value is the node as the transaction left it (as it was, if not committed)
+        void onDone(boolean committed, Map<String, Object> value);
+    }
+
+    interface Found {
+        void onFound(List<String> keys, List<Map<String, Object>> values);
+    }
+
+    interface Watcher {
+        void onValue(Map<String, Object> value);
+    }
+
+    // A new key for collection that sorts after every key made before it
+    String newKey(String collection);
+
+    void transact(String path, Update update, Done done);
+
+    void set(String path, Map<String, Object> value);
+
+    void remove(String path);
+
+    void removeOnDisconnect(String path);
+
+    void findWaiting(String collection, int limit, Found found);
+
+    // Returns what stops the watch
+    Runnable watch(String path, Watcher watcher);
+
+    void schedule(Runnable task, long delayMs);
+}
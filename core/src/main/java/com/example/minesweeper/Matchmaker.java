@@ -0,0 +1,320 @@
+package com.example.minesweeper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Finding a room, with every decision taken by a transaction so that two players can
+// never get the same room or the same opponent:
+//   createRoom  claims rooms/<code> for a new room; a code in use is skipped for
+//               another, and codes get a digit longer after a few collisions
+//   joinRoom    takes the second seat of a waiting room
+//   quickMatch  pairs with someone from matchQueue. We pick one of the oldest
+//               CANDIDATES waiting tickets (an indexed query on status) at random, so
+//               joiners arriving together rarely go for the same one; the winner marks
+//               the ticket matched and writes the room, named after the ticket. After a
+//               few lost picks, or with no ticket to take, we queue one of our own and
+//               wait, looking now and then for an older ticket queued at the same
+//               moment. To take one we first withdraw ours, so nobody can match us in
+//               the meantime. A queued ticket goes when our connection does, so a
+//               player who quits or drops off while waiting leaves none behind.
+// One Matchmaker looks for one room at a time; cancel() stops the search.
+public final class Matchmaker {
+    public static final String ROOMS = "rooms";
+    public static final String QUEUE = "matchQueue";
+
+    private static final int CODE_DIGITS = 4;
+    private static final int MAX_DIGITS = 6;
+    private static final int CLAIMS_PER_DIGIT = 3;
+    private static final int CANDIDATES = 32;
+    private static final int SEARCHES = 3;
+    private static final long RESCAN_MS = 1000;
+
+    public interface Listener {
+        // host is true for the room's first player
+        void onRoom(String roomId, boolean host);
+
+        void onFailed(String reason);
+    }
+
+    private final MatchStore store;
+    private final String player;
+    private final Random random;
+
+    private Listener listener;
+    private String ticket;
+    private Runnable unwatch;
+    private boolean searching;
+    private boolean cancelled;
+    private int misses;
+
+    private int claims;
+    private int collisions;
+    private int takes;
+    private int lostTakes;
+    private int rescans;
+
+    public Matchmaker(MatchStore store, String player, Random random) {
+        this.store = store;
+        this.player = player;
+        this.random = random;
+    }
+
+    // Transactions that claimed or took something, and the ones that found it gone
+    public int getClaims() { return claims; }
+    public int getCollisions() { return collisions; }
+    public int getTakes() { return takes; }
+    public int getLostTakes() { return lostTakes; }
+    public int getRescans() { return rescans; }
+
+    // Rooms
+
+    public void createRoom(String mode, Listener listener) {
+        start(listener);
+        claim(mode, 0);
+    }
+
+    private void claim(String mode, int attempt) {
+        int digits = Math.min(MAX_DIGITS, CODE_DIGITS + attempt / CLAIMS_PER_DIGIT);
+        if (digits == MAX_DIGITS && attempt >= (MAX_DIGITS - CODE_DIGITS + 1) * CLAIMS_PER_DIGIT) {
+            finish(null, false, "No free room code, try again");
+            return;
+        }
+        int bound = (int) Math.pow(10, digits);
+        String code = String.format("%0" + digits + "d", random.nextInt(bound));
+        Map<String, Object> room = new HashMap<>();
+        room.put("status", "waiting");
+        room.put("host", player);
+        room.put("mode", mode);
+        Map<String, Object> players = new HashMap<>();
+        players.put("player1", player);
+        room.put("players", players);
+        Listener mine = listener;
+        store.transact(ROOMS + "/" + code, current -> isFree(current) ? room : MatchStore.ABORT,
+                (committed, value) -> {
+                    if (listener != mine) return;
+                    if (committed) {
+                        claims++;
+                        finish(code, true, null);
+                    } else {
+                        collisions++;
+                        if (!stopped()) claim(mode, attempt + 1);
+                    }
+                });
+    }
+
+    // A room nobody is in any more can be handed out again
+    static boolean isFree(Map<String, Object> room) {
+        if (room == null) return true;
+        Object players = room.get("players");
+        return !(players instanceof Map) || ((Map<?, ?>) players).isEmpty();
+    }
+
+    public void joinRoom(String roomId, Listener listener) {
+        start(listener);
+        Listener mine = listener;
+        store.transact(ROOMS + "/" + roomId, current -> {
+            if (current == null) return null;
+            if (!"waiting".equals(current.get("status")) || player.equals(current.get("host"))) {
+                return MatchStore.ABORT;
+            }
+            Map<String, Object> players = asMap(current.get("players"));
+            if (players.containsKey("player2")) return MatchStore.ABORT;
+            Map<String, Object> room = new HashMap<>(current);
+            players.put("player2", player);
+            room.put("players", players);
+            room.put("status", "playing");
+            return room;
+        }, (committed, value) -> {
+            if (listener != mine) return;
+            if (value == null) finish(null, false, "Room not found");
+            else if (committed) finish(roomId, false, null);
+            else if (player.equals(value.get("host"))) finish(null, false, "You can't join your own room");
+            else finish(null, false, "Room is not available");
+        });
+    }
+
+    // Quick match
+
+    public void quickMatch(Listener listener) {
+        start(listener);
+        search();
+    }
+
+    // Looks for a ticket to take: any waiting one, or once ours is queued, an older one
+    private void search() {
+        Listener mine = listener;
+        searching = true;
+        store.findWaiting(QUEUE, CANDIDATES, (keys, values) -> {
+            if (listener != mine || stopped()) return;
+            searching = false;
+            List<String> candidates = new ArrayList<>();
+            List<String> opponents = new ArrayList<>();
+            for (int i = 0; i < keys.size(); i++) {
+                String key = keys.get(i);
+                Object other = values.get(i).get("player");
+                if (player.equals(other) || !(other instanceof String)) continue;
+                if (ticket != null && key.compareTo(ticket) >= 0) continue;
+                candidates.add(key);
+                opponents.add((String) other);
+            }
+            if (candidates.isEmpty()) {
+                if (ticket == null) enqueue(null);
+                else rescanLater();
+                return;
+            }
+            int pick = random.nextInt(candidates.size());
+            if (ticket == null) {
+                take(candidates.get(pick), opponents.get(pick), null);
+                return;
+            }
+            // Ours is queued: withdraw it first, unless someone has just taken it
+            String ours = ticket;
+            store.transact(QUEUE + "/" + ours,
+                    current -> current == null || "waiting".equals(current.get("status")) ? null : MatchStore.ABORT,
+                    (committed, value) -> {
+                        if (listener != mine) return;
+                        if (!committed) {
+                            if (!onTicket(value)) rescanLater();
+                            return;
+                        }
+                        stopWatching();
+                        ticket = null;
+                        if (!stopped()) take(candidates.get(pick), opponents.get(pick), ours);
+                    });
+        });
+    }
+
+    // Tries to take the ticket at key. Lost to someone quicker, the list it came from is
+    // stale too: we search again a few times, then queue. requeue is our own withdrawn
+    // ticket's key, to queue under again straight away.
+    private void take(String key, String opponent, String requeue) {
+        Listener mine = listener;
+        store.transact(QUEUE + "/" + key, current -> {
+            if (current == null) return null;
+            if (!"waiting".equals(current.get("status")) || !opponent.equals(current.get("player"))) {
+                return MatchStore.ABORT;
+            }
+            Map<String, Object> matched = new HashMap<>(current);
+            matched.put("status", "matched");
+            matched.put("opponent", player);
+            return matched;
+        }, (committed, value) -> {
+            if (listener != mine) return;
+            if (!committed || value == null) {
+                lostTakes++;
+                if (stopped()) return;
+                if (requeue == null && ++misses < SEARCHES) search();
+                else enqueue(requeue);
+                return;
+            }
+            takes++;
+            Map<String, Object> room = new HashMap<>();
+            room.put("status", "playing");
+            room.put("host", opponent);
+            room.put("mode", "turns");
+            Map<String, Object> players = new HashMap<>();
+            players.put("player1", opponent);
+            players.put("player2", player);
+            room.put("players", players);
+            store.set(ROOMS + "/" + key, room);
+            finish(key, false, null);
+        });
+    }
+
+    // Queues our ticket, under the same key as before after a withdrawal, and waits
+    private void enqueue(String key) {
+        ticket = key != null ? key : store.newKey(QUEUE);
+        Map<String, Object> waiting = new HashMap<>();
+        waiting.put("player", player);
+        waiting.put("status", "waiting");
+        store.removeOnDisconnect(QUEUE + "/" + ticket);
+        store.set(QUEUE + "/" + ticket, waiting);
+        Listener mine = listener;
+        unwatch = store.watch(QUEUE + "/" + ticket, value -> {
+            if (listener == mine) onTicket(value);
+        });
+        // Someone may have queued just before us, unseen by our search
+        rescanLater();
+    }
+
+    // Whether the ticket was taken, and the room reported
+    private boolean onTicket(Map<String, Object> value) {
+        if (value == null || !"matched".equals(value.get("status"))) return false;
+        String key = ticket;
+        stopWatching();
+        store.remove(QUEUE + "/" + key);
+        ticket = null;
+        finish(key, true, null);
+        return true;
+    }
+
+    private void rescanLater() {
+        Listener mine = listener;
+        store.schedule(() -> {
+            if (listener != mine || ticket == null || searching || cancelled) return;
+            rescans++;
+            search();
+        }, RESCAN_MS + random.nextInt((int) RESCAN_MS));
+    }
+
+    // Stops looking. A queued ticket is withdrawn, unless it was just taken; a room
+    // claimed or taken by a transaction still in flight is reported all the same, since
+    // the other player is already on the way to it.
+    public void cancel() {
+        Listener mine = listener;
+        if (mine == null || cancelled) return;
+        cancelled = true;
+        if (ticket == null) return; // the step in flight stops at stopped()
+        String ours = ticket;
+        store.transact(QUEUE + "/" + ours,
+                current -> current != null && "matched".equals(current.get("status")) ? MatchStore.ABORT : null,
+                (committed, value) -> {
+                    if (listener != mine) return;
+                    if (committed) {
+                        stopWatching();
+                        ticket = null;
+                        listener = null;
+                    } else {
+                        onTicket(value);
+                    }
+                });
+    }
+
+    private void start(Listener listener) {
+        stopWatching();
+        this.listener = listener;
+        this.ticket = null;
+        this.searching = false;
+        this.cancelled = false;
+        this.misses = 0;
+    }
+
+    // After cancel(), where a search with no ticket queued ends quietly
+    private boolean stopped() {
+        if (!cancelled) return false;
+        if (ticket == null) listener = null;
+        return true;
+    }
+
+    private void finish(String roomId, boolean host, String failure) {
+        Listener done = listener;
+        listener = null;
+        stopWatching();
+        if (done == null) return;
+        if (roomId != null) done.onRoom(roomId, host);
+        else done.onFailed(failure);
+    }
+
+    private void stopWatching() {
+        if (unwatch != null) unwatch.run();
+        unwatch = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) {
+        return value instanceof Map ? new HashMap<>((Map<String, Object>) value) : new HashMap<>();
+    }
+}
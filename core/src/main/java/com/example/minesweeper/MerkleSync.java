@@ -0,0 +1,323 @@
+package com.example.minesweeper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+// Finds and repairs a board that drifted from the other player's. Every published move
+// carries the BoardHash root of its writer's board after the move (stamp). When an
+// opponent's move is confirmed here and our root differs, we walk down their tree over
+// the sync channel a few levels per round and fetch only the rows whose leaves differ;
+// their board wins. A subtree of a few rows is fetched as rows right away, so on a
+// 30-row board a repair is two round trips. Messages are flat maps:
+//   kind      "nodes" and "rows" ask, "hashes" and "rowdata" answer
+//   from, to  players
+//   seq       moves confirmed by the sender; a request is only answered at the same seq
+//   ids       node ids or rows, base 36 joined by '.'; "values" holds the hashes likewise
+//   root      the answering side's root
+//   v<r>, f<r>, x   rowdata: runs of row r as BoardCodec.encodeRow writes them, the exploded cell
+// A stale or malformed answer ends the repair, and so does expire() once the peer has been
+// silent for REPAIR_TIMEOUT_MS (a message lost on the way); the next checked move starts a
+// new one if it is still needed.
+public final class MerkleSync {
+    private static final int LEVELS_PER_ROUND = 3;
+    private static final int DIRECT_ROWS = 4;
+    private static final int ATTEMPTS = 3;
+    public static final long REPAIR_TIMEOUT_MS = 3000;
+
+    private final String player;
+    private final GameTransport transport;
+    private final OptimisticMoveLog moves;
+    private final SyncStats stats;
+    private final BoardHash visibleHash;
+    private final BoardHash confirmedHash;
+    private final LongSupplier clock;
+
+    // The repair in progress: the player we fetch from, null when none
+    private String peer;
+    private int awaiting;
+    private int attempts;
+    private long peerRoot;
+    private long lastSentMs;
+
+    public MerkleSync(String player, GameTransport transport, OptimisticMoveLog moves, SyncStats stats) {
+        this(player, transport, moves, stats, System::currentTimeMillis);
+    }
+
+    // clock gives the time in ms that expire() measures the silence with
+    public MerkleSync(String player, GameTransport transport, OptimisticMoveLog moves, SyncStats stats,
+                      LongSupplier clock) {
+        this.player = player;
+        this.transport = transport;
+        this.moves = moves;
+        this.stats = stats;
+        this.visibleHash = new BoardHash(moves.getBoard().size());
+        this.confirmedHash = new BoardHash(moves.getBoard().size());
+        this.clock = clock;
+    }
+
+    // The player should not move while this is true: the move would be made on the wrong board
+    public boolean isRepairing() { return peer != null; }
+
+    // Gives up a repair whose last request went unanswered for REPAIR_TIMEOUT_MS, so that a
+    // lost message does not keep the player from moving. Returns true if it ended one.
+    public boolean expire() {
+        if (peer == null || clock.getAsLong() - lastSentMs < REPAIR_TIMEOUT_MS) return false;
+        stats.onResyncTimeout();
+        peer = null;
+        return true;
+    }
+
+    // The local move to publish, with the root of the visible board after it
+    public Move stamp(Move move) {
+        visibleHash.compute(moves.getBoard());
+        return move.withHash(visibleHash.root());
+    }
+
+    // Call after moves.onRemote(move); checks the other player's moves that bring the
+    // confirmed board exactly to the point they were hashed at
+    public void onConfirmed(Move move) {
+        if (move.hash == 0 || player.equals(move.player) || moves.getConfirmedSeq() != move.seq + 1) return;
+        confirmedHash.compute(moves.getConfirmedBoard());
+        boolean matched = confirmedHash.root() == move.hash;
+        stats.onHashCheck(matched);
+        peer = null;
+        if (matched) return;
+        peer = move.player;
+        peerRoot = move.hash;
+        awaiting = 0;
+        attempts = 0;
+        descend();
+    }
+
+    // A message from the sync channel. Returns the number of visible cells a repair
+    // changed (see moves.getChanged()); moves.getResend() then holds moves to publish again.
+    public int onSync(Map<String, Object> message) {
+        if (!player.equals(message.get("to"))) return 0;
+        Object kind = message.get("kind");
+        Object from = message.get("from");
+        Long seq = asLong(message.get("seq"));
+        if (!(from instanceof String) || seq == null) return 0;
+        if ("nodes".equals(kind) || "rows".equals(kind)) {
+            answer((String) from, "nodes".equals(kind), seq, message);
+            return 0;
+        }
+        if (!from.equals(peer) || awaiting == 0) return 0;
+        stats.onResyncBytes(PayloadSize.jsonBytes(message));
+        Long root = parseHash(message.get("root"));
+        if (seq != moves.getConfirmedSeq() || root == null) {
+            peer = null;
+            return 0;
+        }
+        peerRoot = root;
+        awaiting--;
+        int changed = "rowdata".equals(kind) ? onRows(message) : 0;
+        if ("hashes".equals(kind)) onHashes(message);
+        if (peer != null && awaiting == 0) settle();
+        return changed;
+    }
+
+    // Answering side
+
+    private void answer(String to, boolean nodes, long seq, Map<String, Object> request) {
+        int[] ids = parseIds(request.get("ids"));
+        if (ids == null || seq != moves.getConfirmedSeq()) return;
+        Board board = moves.getConfirmedBoard();
+        confirmedHash.compute(board);
+        Map<String, Object> reply = message(to, nodes ? "hashes" : "rowdata");
+        reply.put("root", Long.toString(confirmedHash.root(), 36));
+        reply.put("ids", request.get("ids"));
+        if (nodes) {
+            StringBuilder values = new StringBuilder();
+            for (int id : ids) {
+                if (values.length() > 0) values.append('.');
+                long h = id > 0 && id < confirmedHash.nodeCount() ? confirmedHash.node(id) : 0;
+                values.append(Long.toString(h, 36));
+            }
+            reply.put("values", values.toString());
+        } else {
+            for (int r : ids) {
+                if (r < 0 || r >= board.size()) continue;
+                String revealed = BoardCodec.encodeRow(board, r, false);
+                if (revealed != null) reply.put("v" + r, revealed);
+                String flagged = BoardCodec.encodeRow(board, r, true);
+                if (flagged != null) reply.put("f" + r, flagged);
+            }
+            if (board.getExploded() >= 0) reply.put("x", board.getExploded());
+        }
+        transport.sendSync(reply);
+    }
+
+    // Repairing side
+
+    // Starts at the top: the root is known to differ
+    private void descend() {
+        List<Integer> nodes = new ArrayList<>();
+        List<Integer> rows = new ArrayList<>();
+        expand(1, nodes, rows);
+        requestAll(nodes, rows);
+    }
+
+    private void onHashes(Map<String, Object> message) {
+        int[] ids = parseIds(message.get("ids"));
+        long[] values = parseHashes(message.get("values"));
+        if (ids == null || values == null || ids.length != values.length) {
+            peer = null;
+            return;
+        }
+        confirmedHash.compute(moves.getConfirmedBoard());
+        List<Integer> nodes = new ArrayList<>();
+        List<Integer> rows = new ArrayList<>();
+        for (int i = 0; i < ids.length; i++) {
+            int id = ids[i];
+            if (id <= 0 || id >= confirmedHash.nodeCount() || confirmedHash.node(id) == values[i]) continue;
+            expand(id, nodes, rows);
+        }
+        requestAll(nodes, rows);
+    }
+
+    private void requestAll(List<Integer> nodes, List<Integer> rows) {
+        if (nodes.isEmpty() && rows.isEmpty()) return;
+        stats.onResyncRound();
+        if (!nodes.isEmpty()) request("nodes", nodes);
+        if (!rows.isEmpty()) request("rows", rows);
+    }
+
+    // Rows that do not fit our board, runs that are not encodeRow's or an exploded cell off
+    // the board end the repair with nothing written
+    private int onRows(Map<String, Object> message) {
+        int[] rows = parseIds(message.get("ids"));
+        int size = confirmedHash.rows();
+        boolean valid = rows != null;
+        for (int i = 0; valid && i < rows.length; i++) valid = rows[i] >= 0 && rows[i] < size;
+        String[] revealed = valid ? new String[rows.length] : null;
+        String[] flagged = valid ? new String[rows.length] : null;
+        for (int i = 0; valid && i < rows.length; i++) {
+            Object v = message.get("v" + rows[i]);
+            Object f = message.get("f" + rows[i]);
+            valid = isRuns(v, size) && isRuns(f, size);
+            revealed[i] = (String) v;
+            flagged[i] = (String) f;
+        }
+        Object x = message.get("x");
+        Long exploded = asLong(x);
+        valid &= x == null || exploded != null && exploded >= 0 && exploded < (long) size * size;
+        if (!valid) {
+            peer = null;
+            return 0;
+        }
+        stats.onRowsRepaired(rows.length);
+        return moves.repairRows(rows, revealed, flagged, exploded != null ? exploded.intValue() : -1);
+    }
+
+    // Every answer is in: done if the roots agree now, otherwise walk down once more
+    private void settle() {
+        confirmedHash.compute(moves.getConfirmedBoard());
+        if (confirmedHash.root() == peerRoot) {
+            stats.onResynced();
+            peer = null;
+        } else if (++attempts < ATTEMPTS) {
+            descend();
+        } else {
+            peer = null;
+        }
+    }
+
+    // Narrows down node n, whose hash differs: its rows if there are few, otherwise the
+    // nodes up to LEVELS_PER_ROUND levels below it, leaving out those over padding only
+    private void expand(int n, List<Integer> nodes, List<Integer> rows) {
+        int toLeaf = confirmedHash.height() - (31 - Integer.numberOfLeadingZeros(n));
+        if (1 << toLeaf <= DIRECT_ROWS) {
+            int first = confirmedHash.row(n << toLeaf);
+            for (int r = first; r < first + (1 << toLeaf) && r < confirmedHash.rows(); r++) rows.add(r);
+            return;
+        }
+        int down = Math.min(LEVELS_PER_ROUND, toLeaf);
+        for (int k = 0; k < 1 << down; k++) {
+            int id = (n << down) + k;
+            if (confirmedHash.row(id << (toLeaf - down)) < confirmedHash.rows()) nodes.add(id);
+        }
+    }
+
+    private void request(String kind, List<Integer> ids) {
+        StringBuilder s = new StringBuilder();
+        for (int id : ids) {
+            if (s.length() > 0) s.append('.');
+            s.append(Integer.toString(id, 36));
+        }
+        Map<String, Object> message = message(peer, kind);
+        message.put("ids", s.toString());
+        stats.onResyncBytes(PayloadSize.jsonBytes(message));
+        awaiting++;
+        lastSentMs = clock.getAsLong();
+        transport.sendSync(message);
+    }
+
+    private Map<String, Object> message(String to, String kind) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("kind", kind);
+        message.put("from", player);
+        message.put("to", to);
+        message.put("seq", moves.getConfirmedSeq());
+        return message;
+    }
+
+    private static Long asLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : null;
+    }
+
+    private static Long parseHash(Object value) {
+        if (!(value instanceof String)) return null;
+        try {
+            return Long.parseLong((String) value, 36);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static int[] parseIds(Object value) {
+        if (!(value instanceof String) || ((String) value).isEmpty()) return null;
+        String[] parts = ((String) value).split("\\.");
+        int[] ids = new int[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) ids[i] = Integer.parseInt(parts[i], 36);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return ids;
+    }
+
+    // Null (an empty row) or run lengths in base 36 joined by '.' that fit in a row of
+    // size cells; only the first run, of cells before the first set one, may be 0
+    private static boolean isRuns(Object value, int size) {
+        if (value == null) return true;
+        if (!(value instanceof String) || ((String) value).isEmpty()) return false;
+        int total = 0;
+        String[] parts = ((String) value).split("\\.", -1);
+        for (int i = 0; i < parts.length; i++) {
+            int run;
+            try {
+                run = Integer.parseInt(parts[i], 36);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            if (run < (i == 0 ? 0 : 1) || run > size - total) return false;
+            total += run;
+        }
+        return true;
+    }
+
+    private static long[] parseHashes(Object value) {
+        if (!(value instanceof String)) return null;
+        String[] parts = ((String) value).split("\\.");
+        long[] hashes = new long[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) hashes[i] = Long.parseLong(parts[i], 36);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return hashes;
+    }
+}
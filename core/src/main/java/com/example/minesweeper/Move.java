@@ -0,0 +1,86 @@
+package com.example.minesweeper;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// One entry of the append-only move log under games/<id>/moves:
+//   seq   position in the log, 0-based; the entry key is key(seq)
+//   type  "reveal" or "flag" (a flag move toggles)
+//   r, c  the clicked cell only: each client runs the flood fill itself
+//   by    the player who made the move
+//   ts    server timestamp
+//   h     optional: BoardHash root of the writer's board after this move, base 36
+// A move is a constant-size write whatever the number of cells it opens.
+public final class Move {
+
+    public static final int REVEAL = 0;
+    public static final int FLAG = 1;
+
+    public final int seq;
+    public final int type;
+    public final int row;
+    public final int col;
+    public final String player;
+    public final long timestamp;
+    public final long hash; // 0 when the writer did not say
+
+    public Move(int seq, int type, int row, int col, String player, long timestamp) {
+        this(seq, type, row, col, player, timestamp, 0);
+    }
+
+    public Move(int seq, int type, int row, int col, String player, long timestamp, long hash) {
+        this.seq = seq;
+        this.type = type;
+        this.row = row;
+        this.col = col;
+        this.player = player;
+        this.timestamp = timestamp;
+        this.hash = hash;
+    }
+
+    public Move withHash(long hash) {
+        return new Move(seq, type, row, col, player, timestamp, hash);
+    }
+
+    // Zero-padded so the keys sort in play order, and start with a letter so Firebase
+    // never turns the list into an array
+    public static String key(int seq) {
+        return String.format("m%07d", seq);
+    }
+
+    // timestamp is whatever the writer wants stored (ServerValue.TIMESTAMP on Android)
+    public Map<String, Object> toMap(Object timestamp) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("seq", seq);
+        map.put("type", type == FLAG ? "flag" : "reveal");
+        map.put("r", row);
+        map.put("c", col);
+        map.put("by", player);
+        map.put("ts", timestamp);
+        if (hash != 0) map.put("h", Long.toString(hash, 36));
+        return map;
+    }
+
+    // Reads a map as DataSnapshot.getValue() returns it; null if the entry is malformed
+    public static Move fromMap(Map<?, ?> map) {
+        if (map == null) return null;
+        Object seq = map.get("seq");
+        Object type = map.get("type");
+        Object r = map.get("r");
+        Object c = map.get("c");
+        if (!(seq instanceof Number) || !(r instanceof Number) || !(c instanceof Number)) return null;
+        if (!"flag".equals(type) && !"reveal".equals(type)) return null;
+        Object ts = map.get("ts");
+        Object h = map.get("h");
+        long hash = 0;
+        if (h instanceof String) {
+            try {
+                hash = Long.parseLong((String) h, 36);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return new Move(((Number) seq).intValue(), "flag".equals(type) ? FLAG : REVEAL,
+                ((Number) r).intValue(), ((Number) c).intValue(), (String) map.get("by"),
+                ts instanceof Number ? ((Number) ts).longValue() : 0, hash);
+    }
+}
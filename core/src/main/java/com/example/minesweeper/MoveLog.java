@@ -0,0 +1,87 @@
+package com.example.minesweeper;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Replays the move log onto a local board. Every client starts from the same seeded
+// board and applies the same moves in seq order, so every client ends up with the
+// same board. Moves may arrive more than once or out of order: duplicates are
+// dropped and early moves wait until the gap before them is filled.
+public final class MoveLog {
+    private final Board board;
+    private final RevealEngine engine;
+    private final Map<Integer, Move> early = new HashMap<>();
+    private int nextSeq;
+
+    private int[] changed = new int[64];
+    private int changedCount;
+
+    public MoveLog(Board board) {
+        this(board, 0);
+    }
+
+    // For a board that already holds the moves before nextSeq
+    public MoveLog(Board board, int nextSeq) {
+        this.board = board;
+        this.engine = new RevealEngine(board);
+        this.nextSeq = nextSeq;
+    }
+
+    public Board getBoard() { return board; }
+
+    // seq of the next move to apply, which is also the number of moves applied
+    public int getNextSeq() { return nextSeq; }
+
+    // Cells changed by the last offer, as flat board indices
+    public int[] getChanged() { return changed; }
+    public int getChangedCount() { return changedCount; }
+
+    // Applies the move and any buffered moves that follow it. Returns the number of
+    // cells that changed; they are in getChanged().
+    public int offer(Move move) {
+        changedCount = 0;
+        if (move.seq < nextSeq) return 0;
+        early.put(move.seq, move);
+        Move next;
+        while ((next = early.remove(nextSeq)) != null) {
+            apply(next);
+            nextSeq++;
+        }
+        return changedCount;
+    }
+
+    // Whether the move would change the board as it stands now
+    public boolean changes(int type, int r, int c) {
+        if (!board.isValidPosition(r, c) || board.isRevealed(r, c)) return false;
+        return type == Move.FLAG || !board.isFlagged(r, c);
+    }
+
+    private void apply(Move move) {
+        int r = move.row, c = move.col;
+        if (!changes(move.type, r, c)) return;
+
+        if (move.type == Move.FLAG) {
+            board.toggleFlag(r, c);
+            add(board.index(r, c));
+            return;
+        }
+        if (board.isMine(r, c)) {
+            board.reveal(r, c);
+            if (board.getExploded() < 0) board.setExploded(r, c);
+            add(board.index(r, c));
+            return;
+        }
+        RevealResult opened = engine.reveal(r, c);
+        int[] cells = opened.getCells();
+        for (int i = 0; i < opened.getCount(); i++) add(cells[i]);
+    }
+
+    private void add(int index) {
+        if (changedCount == changed.length) {
+            int[] bigger = new int[changed.length * 2];
+            System.arraycopy(changed, 0, bigger, 0, changedCount);
+            changed = bigger;
+        }
+        changed[changedCount++] = index;
+    }
+}
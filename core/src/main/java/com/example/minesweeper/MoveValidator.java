@@ -0,0 +1,197 @@
+package com.example.minesweeper;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Server-authoritative play: the validator owns every game's board, and clients only
+// send intents ("player reveals r, c"). It checks the turn, runs the move through the
+// game's MoveLog and hands out just what became visible: the opened cells with their
+// clue numbers, or the mine that ended the game. The seed never leaves the validator.
+// Games are spread over a fixed pool of single-thread workers by id, so every game's
+// moves run in order on one thread and no game state is ever locked. Each worker
+// records submit-to-result latency; queue depth is the number of intents submitted
+// and not yet processed across all workers.
+public final class MoveValidator {
+
+    public static final int OK = 0;        // cells opened or flag toggled, turn passes on a reveal
+    public static final int MINE = 1;      // the player hit a mine and lost; cells are all the mines
+    public static final int CLEARED = 2;   // the last safe cell was opened; the player won
+    public static final int REJECTED = 3;  // unknown game or type, not the player's turn, or nothing to change
+
+    // The largest board the app offers
+    public static final int MAX_SIZE = 1000;
+
+    public interface Listener {
+        // Runs on the game's worker thread; the result is not reused
+        void onResult(Result result);
+    }
+
+    public static final class Result {
+        public final String gameId;
+        public final int seq;          // position in the game's log, -1 if rejected
+        public final String player;
+        public final int type;         // Move.REVEAL or Move.FLAG
+        public final int outcome;
+        public final int[] cells;      // flat board indices
+        public final byte[] clues;     // per opened cell: neighbouring mines, or -1 for a mine; empty for a flag
+        public final String nextTurn;
+
+        Result(String gameId, int seq, String player, int type, int outcome, int[] cells, byte[] clues,
+               String nextTurn) {
+            this.gameId = gameId;
+            this.seq = seq;
+            this.player = player;
+            this.type = type;
+            this.outcome = outcome;
+            this.cells = cells;
+            this.clues = clues;
+            this.nextTurn = nextTurn;
+        }
+    }
+
+    private static final int[] NO_CELLS = new int[0];
+    private static final byte[] NO_CLUES = new byte[0];
+
+    private static final class Game {
+        final MoveLog log;
+        final String[] players;
+        int turn;
+        boolean over;
+
+        Game(Board board, String first, String second) {
+            this.log = new MoveLog(board);
+            this.players = new String[]{first, second};
+        }
+    }
+
+    private final ExecutorService[] workers;
+    private final List<Map<String, Game>> shards = new ArrayList<>();
+    private final Histogram[] latency;
+    private final Listener listener;
+    private final SecureRandom seeds = new SecureRandom();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    public MoveValidator(int workerCount, Listener listener) {
+        this.listener = listener;
+        this.workers = new ExecutorService[workerCount];
+        this.latency = new Histogram[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = Executors.newSingleThreadExecutor();
+            shards.add(new HashMap<>());
+            latency[i] = new Histogram("validate", "us");
+        }
+    }
+
+    // A board the app could have asked for: 1..MAX_SIZE wide with at least one mine and
+    // one safe cell
+    public static boolean isValidBoard(int size, int mineCount) {
+        return size >= 1 && size <= MAX_SIZE && mineCount >= 1 && mineCount < size * size;
+    }
+
+    // Deals a fresh board from a seed only this process knows; first moves first
+    public void createGame(String gameId, int size, int mineCount, String first, String second) {
+        long seed;
+        synchronized (seeds) {
+            seed = seeds.nextLong();
+        }
+        int shard = shard(gameId);
+        workers[shard].execute(() ->
+                shards.get(shard).put(gameId, new Game(BoardGenerator.generate(seed, size, mineCount), first, second)));
+    }
+
+    public void endGame(String gameId) {
+        int shard = shard(gameId);
+        workers[shard].execute(() -> shards.get(shard).remove(gameId));
+    }
+
+    public void submit(String gameId, String player, int type, int r, int c) {
+        long submitted = System.nanoTime();
+        maxQueueDepth.accumulateAndGet(queueDepth.incrementAndGet(), Math::max);
+        int shard = shard(gameId);
+        workers[shard].execute(() -> {
+            Result result = validate(shards.get(shard).get(gameId), gameId, player, type, r, c);
+            queueDepth.decrementAndGet();
+            Histogram h = latency[shard];
+            synchronized (h) {
+                h.record((System.nanoTime() - submitted) / 1000);
+            }
+            listener.onResult(result);
+        });
+    }
+
+    public int getQueueDepth() { return queueDepth.get(); }
+    public int getMaxQueueDepth() { return maxQueueDepth.get(); }
+
+    // Submit-to-result latency of every worker so far
+    public Histogram getLatency() {
+        Histogram all = new Histogram("validate", "us");
+        for (Histogram h : latency) {
+            synchronized (h) {
+                all.addAll(h);
+            }
+        }
+        return all;
+    }
+
+    public void shutdown() throws InterruptedException {
+        for (ExecutorService worker : workers) worker.shutdown();
+        for (ExecutorService worker : workers) worker.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private int shard(String gameId) {
+        return (gameId.hashCode() & 0x7fffffff) % workers.length;
+    }
+
+    private Result validate(Game game, String gameId, String player, int type, int r, int c) {
+        if (game == null || game.over || (type != Move.REVEAL && type != Move.FLAG)
+                || !player.equals(game.players[game.turn]) || !game.log.changes(type, r, c)) {
+            return new Result(gameId, -1, player, type, REJECTED, NO_CELLS, NO_CLUES,
+                    game == null ? null : game.players[game.turn]);
+        }
+
+        MoveLog log = game.log;
+        Board board = log.getBoard();
+        int seq = log.getNextSeq();
+        int count = log.offer(new Move(seq, type, r, c, player, 0));
+
+        int outcome = OK;
+        int[] cells;
+        if (type == Move.REVEAL && board.getExploded() >= 0) {
+            outcome = MINE;
+            game.over = true;
+            cells = mines(board);
+        } else {
+            cells = new int[count];
+            System.arraycopy(log.getChanged(), 0, cells, 0, count);
+            if (board.isCleared()) {
+                outcome = CLEARED;
+                game.over = true;
+            }
+        }
+        if (type == Move.REVEAL) game.turn ^= 1;
+
+        byte[] clues = type == Move.FLAG ? NO_CLUES : new byte[cells.length];
+        for (int i = 0; i < clues.length; i++) {
+            int row = board.row(cells[i]), col = board.col(cells[i]);
+            clues[i] = board.isMine(row, col) ? -1 : (byte) board.getNeighbors(row, col);
+        }
+        return new Result(gameId, seq, player, type, outcome, cells, clues, game.players[game.turn]);
+    }
+
+    private static int[] mines(Board board) {
+        int[] cells = new int[board.getMineCount()];
+        int count = 0;
+        for (int i = 0; i < board.cellCount(); i++) {
+            if (board.isMine(board.row(i), board.col(i))) cells[count++] = i;
+        }
+        return cells;
+    }
+}
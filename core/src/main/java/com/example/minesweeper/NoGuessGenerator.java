@@ -0,0 +1,77 @@
+package com.example.minesweeper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Looks for a board the Solver can finish from the first click. Every worker on the
+// pool draws candidate seeds from its own split of the root generator and plays them
+// out with IncrementalSolver (same verdict, no rescans); the first solvable seed wins.
+// When the time budget runs out, even halfway through a candidate, the result falls
+// back to a plain safe-first-click board, so the player never waits much longer.
+public final class NoGuessGenerator {
+
+    public static final class Result {
+        public final long seed;
+        public final boolean noGuess;
+        public final int tried;
+        public final int rejected;
+        public final long elapsedMs;
+
+        Result(long seed, boolean noGuess, int tried, int rejected, long elapsedMs) {
+            this.seed = seed;
+            this.noGuess = noGuess;
+            this.tried = tried;
+            this.rejected = rejected;
+            this.elapsedMs = elapsedMs;
+        }
+    }
+
+    private NoGuessGenerator() {}
+
+    // The returned seed rebuilds the board with BoardGenerator.placeMinesSafeAt(board, seed, mines, r, c)
+    public static Result find(int size, int mineCount, int r, int c, long seed,
+                              long budgetMs, ForkJoinPool pool) {
+        long start = System.nanoTime();
+        long deadline = start + budgetMs * 1_000_000L;
+        SplittableRandom root = new SplittableRandom(seed);
+        long fallbackSeed = root.nextLong();
+
+        AtomicBoolean found = new AtomicBoolean();
+        AtomicLong winner = new AtomicLong();
+        AtomicInteger tried = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int w = 0; w < pool.getParallelism(); w++) {
+            SplittableRandom rng = root.split(); // SplittableRandom is not thread-safe
+            workers.add(() -> {
+                Board board = new Board(size);
+                while (!found.get() && System.nanoTime() < deadline) {
+                    long candidate = rng.nextLong();
+                    tried.incrementAndGet();
+                    board.clear();
+                    BoardGenerator.placeMinesSafeAt(board, candidate, mineCount, r, c);
+                    if (new IncrementalSolver(board).solveFrom(r, c, deadline)) {
+                        if (found.compareAndSet(false, true)) winner.set(candidate);
+                        return null;
+                    }
+                    rejected.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        pool.invokeAll(workers);
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+        if (found.get()) {
+            return new Result(winner.get(), true, tried.get(), rejected.get(), elapsedMs);
+        }
+        return new Result(fallbackSeed, false, tried.get(), rejected.get(), elapsedMs);
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.minesweeper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Shows the local player's moves at once and reconciles them with the move log.
+// The confirmed board follows the log only; the board the player sees is the confirmed
+// one plus the local moves still pending, each tagged with the seq it was sent under.
+// An echo of a pending move just confirms it. If the log holds a different move at a
+// seq we used, the visible board is rolled back to the confirmed one and the pending
+// moves that still make sense are replayed on top under new seqs, to be sent again
+// with the state updates they were first published with.
+// repairRows overwrites rows of the confirmed board when MerkleSync finds that it
+// drifted from the other player's, and rebuilds the visible board the same way.
+public final class OptimisticMoveLog {
+    private final MoveLog confirmed;
+    private MoveLog visible;
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+    private final Map<Integer, Move> received = new HashMap<>();
+    private final List<Pending> resend = new ArrayList<>();
+    private final Histogram confirmLatency;
+    private int rollbacks;
+
+    private int[] changed = new int[64];
+    private int changedCount;
+
+    // A local move not yet confirmed by the log, and the state written with it
+    public static final class Pending {
+        public final Move move;
+        public final Map<String, Object> stateUpdates;
+        final long sentNanos;
+
+        Pending(Move move, Map<String, Object> stateUpdates, long sentNanos) {
+            this.move = move;
+            this.stateUpdates = stateUpdates;
+            this.sentNanos = sentNanos;
+        }
+    }
+
+    // confirmLatency gets the time from applyLocal to the echo in microseconds; may be null
+    public OptimisticMoveLog(Board board, Histogram confirmLatency) {
+        this.confirmed = new MoveLog(board);
+        this.visible = new MoveLog(board.copy());
+        this.confirmLatency = confirmLatency;
+    }
+
+    // What the player sees
+    public Board getBoard() { return visible.getBoard(); }
+    public Board getConfirmedBoard() { return confirmed.getBoard(); }
+
+    public int getPendingCount() { return pending.size(); }
+    public int getRollbacks() { return rollbacks; }
+
+    // Number of moves confirmed by the log
+    public int getConfirmedSeq() { return confirmed.getNextSeq(); }
+
+    // seq the next move written by this client would take
+    public int getNextSeq() { return visible.getNextSeq(); }
+
+    // Cells of the visible board changed by the last call, as flat board indices
+    public int[] getChanged() { return changed; }
+    public int getChangedCount() { return changedCount; }
+
+    // Pending moves renumbered by the last rollback; the caller publishes each again
+    // with its stateUpdates
+    public List<Pending> getResend() { return resend; }
+
+    // Whether a local move would do anything on the visible board
+    public boolean changes(int type, int r, int c) {
+        return visible.changes(type, r, c);
+    }
+
+    // Applies a local move to the visible board; the returned move is the one to publish,
+    // together with stateUpdates, which are kept in case the move has to be sent again
+    public Move applyLocal(int type, int r, int c, String player, Map<String, Object> stateUpdates) {
+        changedCount = 0;
+        resend.clear();
+        Move move = new Move(visible.getNextSeq(), type, r, c, player, 0);
+        pending.addLast(new Pending(move, new HashMap<>(stateUpdates), System.nanoTime()));
+        copyChanged(visible.offer(move));
+        return move;
+    }
+
+    // A move from the log, ours or the other player's. Returns the number of visible cells that changed.
+    public int onRemote(Move move) {
+        changedCount = 0;
+        resend.clear();
+        if (move.seq < confirmed.getNextSeq()) return 0;
+        received.put(move.seq, move);
+
+        int before = confirmed.getNextSeq();
+        confirmed.offer(move);
+        boolean conflict = false;
+        for (int seq = before; seq < confirmed.getNextSeq(); seq++) {
+            Move applied = received.remove(seq);
+            if (conflict) continue;
+            Pending mine = pending.peekFirst();
+            if (mine == null) {
+                copyChanged(visible.offer(applied));
+            } else if (sameAction(mine.move, applied)) {
+                pending.pollFirst();
+                if (confirmLatency != null) confirmLatency.record((System.nanoTime() - mine.sentNanos) / 1000);
+            } else {
+                conflict = true;
+            }
+        }
+        if (conflict) rollBack();
+        return changedCount;
+    }
+
+    // Sets rows[i] of the confirmed board to the runs of revealed[i] and flagged[i] (as
+    // BoardCodec.encodeRow writes them), and the exploded cell if it is >= 0. Returns the
+    // number of visible cells that changed; pending moves may have to be sent again.
+    public int repairRows(int[] rows, String[] revealed, String[] flagged, int exploded) {
+        changedCount = 0;
+        resend.clear();
+        Board board = confirmed.getBoard();
+        int[] cells = new int[board.size()];
+        for (int i = 0; i < rows.length; i++) {
+            BoardCodec.setRevealedRow(board, rows[i], revealed[i], cells, 0);
+            BoardCodec.applyFlaggedRow(board, rows[i], flagged[i], cells, 0);
+        }
+        if (exploded >= 0) board.setExploded(board.row(exploded), board.col(exploded));
+        rebuild();
+        return changedCount;
+    }
+
+    private void rollBack() {
+        rollbacks++;
+        rebuild();
+    }
+
+    // The visible board again: the confirmed one with the pending moves that still
+    // make sense on top. Moves whose seq moved go to resend.
+    private void rebuild() {
+        Board shown = visible.getBoard();
+        visible = new MoveLog(confirmed.getBoard().copy(), confirmed.getNextSeq());
+
+        int count = pending.size();
+        for (int i = 0; i < count; i++) {
+            Pending p = pending.pollFirst();
+            Move old = p.move;
+            if (!visible.changes(old.type, old.row, old.col)) continue;
+            Move again = new Move(visible.getNextSeq(), old.type, old.row, old.col, old.player, 0);
+            visible.offer(again);
+            Pending moved = new Pending(again, p.stateUpdates, p.sentNanos);
+            pending.addLast(moved);
+            if (again.seq != old.seq) resend.add(moved);
+        }
+
+        // Rare, so a full compare of the two boards is fine
+        Board now = visible.getBoard();
+        for (int i = 0; i < now.cellCount(); i++) {
+            int r = now.row(i), c = now.col(i);
+            if (shown.isRevealed(r, c) != now.isRevealed(r, c) || shown.isFlagged(r, c) != now.isFlagged(r, c)) {
+                add(i);
+            }
+        }
+    }
+
+    private static boolean sameAction(Move a, Move b) {
+        return a.type == b.type && a.row == b.row && a.col == b.col
+                && (a.player == null ? b.player == null : a.player.equals(b.player));
+    }
+
+    private void copyChanged(int count) {
+        int[] cells = visible.getChanged();
+        for (int i = 0; i < count; i++) add(cells[i]);
+    }
+
+    private void add(int index) {
+        if (changedCount == changed.length) {
+            int[] bigger = new int[changed.length * 2];
+            System.arraycopy(changed, 0, bigger, 0, changedCount);
+            changed = bigger;
+        }
+        changed[changedCount++] = index;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.minesweeper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+// Size of a value as compact JSON, the way the Realtime Database sends and stores it.
+// Works on the Map / List / String / Number / Boolean trees that get written with
+// setValue and updateChildren, and that DataSnapshot.getValue() hands back.
+public final class PayloadSize {
+
+    private PayloadSize() {}
+
+    public static int jsonBytes(Object value) {
+        if (value == null) return 4;
+        if (value instanceof String) return stringBytes((String) value);
+        if (value instanceof Map) {
+            int bytes = 2;
+            int entries = 0;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                bytes += stringBytes(String.valueOf(entry.getKey())) + 1 + jsonBytes(entry.getValue());
+                entries++;
+            }
+            return bytes + Math.max(0, entries - 1);
+        }
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            int bytes = 2 + Math.max(0, list.size() - 1);
+            for (Object item : list) bytes += jsonBytes(item);
+            return bytes;
+        }
+        return String.valueOf(value).length(); // numbers and booleans
+    }
+
+    private static int stringBytes(String s) {
+        int bytes = 2 + s.getBytes(StandardCharsets.UTF_8).length;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == '"' || ch == '\\') bytes++;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,493 @@
+package com.example.minesweeper;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+// Mine probability of every hidden cell, from what the player can see. Flags on the
+// board passed in are taken as known mines, so callers pass a snapshot flagged with
+// proven mines (IncrementalSolver.copyProvenMinesTo), never the player's own flags.
+// The frontier (hidden cells next to opened numbers) is split into components that
+// share no number; each component's solutions are counted by how many mines they use,
+// and the counts are combined with the number of ways to spread the remaining mines
+// over the interior (hidden cells next to no number). Component counts are cached by
+// their constraints, so a reveal only recounts the components it touched.
+//
+// Reading the numbers may use half of the budget (the rest of the board is then ignored)
+// and exact counting runs until three quarters of it. A component that does not finish
+// in time is sampled instead, and one reached after the budget gets the plain mine
+// density; either way the result is marked as not exact.
+// Not thread-safe: keep one engine per background worker and pass it board snapshots.
+public class ProbabilityEngine {
+
+    public static final class Result {
+        public final float[] probabilities; // by Board.index, NaN for opened cells
+        public final float interiorProbability; // NaN when every hidden cell is on the frontier
+        public final boolean exact;
+        public final int components;
+        public final int cacheHits;
+        public final long elapsedMs;
+
+        Result(float[] probabilities, float interiorProbability, boolean exact,
+               int components, int cacheHits, long elapsedMs) {
+            this.probabilities = probabilities;
+            this.interiorProbability = interiorProbability;
+            this.exact = exact;
+            this.components = components;
+            this.cacheHits = cacheHits;
+            this.elapsedMs = elapsedMs;
+        }
+    }
+
+    private static final int CACHE_SIZE = 4096;
+    private static final int CHECK_EVERY = 4096; // search steps between deadline checks
+    private static final int MAX_SAMPLES = 2000;
+
+    private final Map<Key, Counts> cache = new LinkedHashMap<Key, Counts>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Counts> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private final SplittableRandom rng;
+    private int[] frontierId = new int[0]; // by Board.index, -1 off the frontier
+
+    public ProbabilityEngine() {
+        this(BoardGenerator.randomSeed());
+    }
+
+    public ProbabilityEngine(long seed) {
+        rng = new SplittableRandom(seed);
+    }
+
+    public Result compute(Board board, long budgetMs) {
+        long start = System.nanoTime();
+        long walkDeadline = start + budgetMs * 500_000L;
+        long exactDeadline = start + budgetMs * 750_000L;
+        long deadline = start + budgetMs * 1_000_000L;
+        int size = board.size();
+        int n = board.cellCount();
+        if (frontierId.length < n) {
+            frontierId = new int[n];
+            Arrays.fill(frontierId, -1);
+        }
+
+        // Numbers with unknown neighbours, and the frontier cells they touch
+        int clueCount = 0;
+        int[] clueNeed = new int[64];
+        int[][] clueCells = new int[64][];
+        int frontierCount = 0;
+        int[] frontier = new int[64];
+        int[] scratch = new int[8];
+        int words = (size + 63) >>> 6;
+        boolean exact = true;
+        for (int r = 0; r < size; r++) {
+            if (System.nanoTime() > walkDeadline) {
+                // Out of time: the numbers read so far still hold, the rest are ignored
+                exact = false;
+                break;
+            }
+            for (int w = 0; w < words; w++) {
+                for (long bits = board.openClueWord(r, w); bits != 0; bits &= bits - 1) {
+                    int c = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    int need = board.getNeighbors(r, c);
+                    int hidden = 0;
+                    for (int i = Math.max(0, r - 1); i <= Math.min(size - 1, r + 1); i++) {
+                        for (int j = Math.max(0, c - 1); j <= Math.min(size - 1, c + 1); j++) {
+                            if (board.isFlagged(i, j)) need--;
+                            else if (!board.isRevealed(i, j)) scratch[hidden++] = board.index(i, j);
+                        }
+                    }
+                    for (int k = 0; k < hidden; k++) {
+                        if (frontierId[scratch[k]] >= 0) continue;
+                        if (frontierCount == frontier.length) frontier = Arrays.copyOf(frontier, frontierCount * 2);
+                        frontierId[scratch[k]] = frontierCount;
+                        frontier[frontierCount++] = scratch[k];
+                    }
+                    if (clueCount == clueNeed.length) {
+                        clueNeed = Arrays.copyOf(clueNeed, clueCount * 2);
+                        clueCells = Arrays.copyOf(clueCells, clueCount * 2);
+                    }
+                    clueNeed[clueCount] = need;
+                    clueCells[clueCount++] = Arrays.copyOf(scratch, hidden); // row-major, so sorted
+                }
+            }
+        }
+
+        // Numbers that share a cell end up in one component
+        int[] parent = new int[frontierCount];
+        for (int i = 0; i < frontierCount; i++) parent[i] = i;
+        for (int k = 0; k < clueCount; k++) {
+            int root = find(parent, frontierId[clueCells[k][0]]);
+            for (int cell : clueCells[k]) {
+                int other = find(parent, frontierId[cell]);
+                if (other != root) parent[other] = root;
+            }
+        }
+        int[] componentOfRoot = new int[frontierCount];
+        Arrays.fill(componentOfRoot, -1);
+        int componentCount = 0;
+        int[] clueComponent = new int[clueCount];
+        for (int k = 0; k < clueCount; k++) {
+            int root = find(parent, frontierId[clueCells[k][0]]);
+            if (componentOfRoot[root] < 0) componentOfRoot[root] = componentCount++;
+            clueComponent[k] = componentOfRoot[root];
+        }
+        int[] cellsInComponent = new int[componentCount];
+        int[] cluesInComponent = new int[componentCount];
+        for (int i = 0; i < frontierCount; i++) cellsInComponent[componentOfRoot[find(parent, i)]]++;
+        for (int k = 0; k < clueCount; k++) cluesInComponent[clueComponent[k]]++;
+
+        int[][] componentCells = new int[componentCount][];
+        int[][] componentClues = new int[componentCount][];
+        for (int j = 0; j < componentCount; j++) {
+            componentCells[j] = new int[cellsInComponent[j]];
+            componentClues[j] = new int[cluesInComponent[j]];
+            cellsInComponent[j] = 0;
+            cluesInComponent[j] = 0;
+        }
+        for (int i = 0; i < frontierCount; i++) {
+            int j = componentOfRoot[find(parent, i)];
+            componentCells[j][cellsInComponent[j]++] = frontier[i];
+        }
+        for (int k = 0; k < clueCount; k++) {
+            int j = clueComponent[k];
+            componentClues[j][cluesInComponent[j]++] = k;
+        }
+
+        // Count (or look up) every component
+        Counts[] counts = new Counts[componentCount];
+        int cacheHits = 0;
+        for (int j = 0; j < componentCount; j++) {
+            int[] cells = componentCells[j];
+            Arrays.sort(cells);
+            Key key = Key.of(componentClues[j], clueNeed, clueCells);
+            Counts cached = cache.get(key);
+            if (cached != null) {
+                counts[j] = cached;
+                cacheHits++;
+                continue;
+            }
+            if (System.nanoTime() > deadline) {
+                counts[j] = Counts.NONE;
+                exact = false;
+                continue;
+            }
+            counts[j] = count(cells, componentClues[j], clueNeed, clueCells, exactDeadline, false);
+            if (counts[j] != null) {
+                cache.put(key, counts[j]);
+            } else {
+                exact = false;
+                counts[j] = count(cells, componentClues[j], clueNeed, clueCells, deadline, true);
+            }
+        }
+
+        for (int i = 0; i < frontierCount; i++) frontierId[frontier[i]] = -1;
+
+        float[] probabilities = new float[n];
+        Arrays.fill(probabilities, Float.NaN);
+        int known = board.countFlagged();
+        int unknown = n - board.getRevealedSafe() - known;
+        int interior = unknown - frontierCount;
+        float interiorProbability = combine(counts, componentCells, board.getMineCount() - known,
+                interior, unknown, probabilities);
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int cell = board.index(r, c);
+                if (board.isFlagged(r, c)) probabilities[cell] = 1f;
+                else if (!board.isRevealed(r, c) && Float.isNaN(probabilities[cell])) {
+                    probabilities[cell] = interiorProbability;
+                }
+            }
+        }
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+        return new Result(probabilities, interior > 0 ? interiorProbability : Float.NaN, exact,
+                componentCount, cacheHits, elapsedMs);
+    }
+
+    // Weights every component's mine count by the ways the other components and the
+    // interior can hold the rest. Frontier probabilities go into out; returns the
+    // interior probability.
+    //   G(t)    = C(interior, mines - t), ways to place the rest when the frontier holds t
+    //   H_j(t)  = ways for components j.. and the interior when components before j hold t
+    //   pre_j   = mine-count distribution of the components before j
+    private static float combine(Counts[] counts, int[][] componentCells, int mines, int interior,
+                                 int unknown, float[] out) {
+        float density = unknown > 0 ? (float) mines / unknown : 0f;
+        int known = 0;
+        for (Counts component : counts) {
+            if (component.ways.length > 0) known++;
+        }
+        Counts[] parts = new Counts[known];
+        int[][] partCells = new int[known][];
+        int at = 0;
+        for (int j = 0; j < counts.length; j++) {
+            if (counts[j].ways.length > 0) {
+                parts[at] = counts[j];
+                partCells[at++] = componentCells[j];
+            } else {
+                for (int cell : componentCells[j]) out[cell] = density; // nothing found in time
+            }
+        }
+
+        int[] preLo = new int[known + 1];
+        int[] preHi = new int[known + 1];
+        for (int j = 0; j < known; j++) {
+            preLo[j + 1] = preLo[j] + parts[j].minK;
+            preHi[j + 1] = preHi[j] + parts[j].minK + parts[j].ways.length - 1;
+        }
+
+        double[] g = interiorWeights(preLo[known], preHi[known], mines, interior);
+        if (g == null) {
+            // The visible numbers cannot be met with this many mines
+            for (int[] cells : partCells) {
+                for (int cell : cells) out[cell] = density;
+            }
+            return density;
+        }
+
+        double[][] h = new double[known + 1][];
+        h[known] = g;
+        for (int j = known - 1; j >= 0; j--) {
+            double[] next = h[j + 1];
+            double[] ways = parts[j].ways;
+            double[] cur = new double[preHi[j] - preLo[j] + 1];
+            for (int t = 0; t < cur.length; t++) {
+                double sum = 0;
+                for (int k = 0; k < ways.length; k++) sum += ways[k] * next[t + k];
+                cur[t] = sum;
+            }
+            h[j] = normalize(cur);
+        }
+
+        double[] pre = {1};
+        for (int j = 0; j < known; j++) {
+            Counts part = parts[j];
+            double[] next = h[j + 1];
+            double[] weight = new double[part.ways.length];
+            for (int k = 0; k < weight.length; k++) {
+                double sum = 0;
+                for (int a = 0; a < pre.length; a++) sum += pre[a] * next[a + k];
+                weight[k] = sum;
+            }
+
+            double total = 0;
+            for (int k = 0; k < weight.length; k++) total += part.ways[k] * weight[k];
+            int[] cells = partCells[j];
+            for (int i = 0; i < cells.length; i++) {
+                if (total == 0) {
+                    out[cells[i]] = density;
+                    continue;
+                }
+                double sum = 0;
+                for (int k = 0; k < weight.length; k++) {
+                    if (part.cellWays[k] != null) sum += part.cellWays[k][i] * weight[k];
+                }
+                out[cells[i]] = (float) (sum / total);
+            }
+
+            double[] conv = new double[pre.length + part.ways.length - 1];
+            for (int a = 0; a < pre.length; a++) {
+                for (int k = 0; k < part.ways.length; k++) conv[a + k] += pre[a] * part.ways[k];
+            }
+            pre = normalize(conv);
+        }
+
+        if (interior == 0) return Float.NaN;
+        double weighted = 0;
+        double total = 0;
+        for (int t = 0; t < pre.length; t++) {
+            double w = pre[t] * g[t];
+            total += w;
+            weighted += w * (mines - preLo[known] - t);
+        }
+        return total == 0 ? density : (float) (weighted / total / interior);
+    }
+
+    // G(t) for t in [lo, hi], scaled so the largest is 1; null if no t is possible
+    private static double[] interiorWeights(int lo, int hi, int mines, int interior) {
+        double[] log = new double[hi - lo + 1];
+        Arrays.fill(log, Double.NEGATIVE_INFINITY);
+        int xLo = Math.max(0, mines - hi);
+        int xHi = Math.min(interior, mines - lo);
+        if (xLo > xHi) return null;
+        // Only ratios matter: log C(I, x+1) - log C(I, x) = log(I - x) - log(x + 1)
+        double value = 0;
+        double max = 0;
+        for (int x = xLo; x <= xHi; x++) {
+            log[mines - x - lo] = value;
+            max = Math.max(max, value);
+            value += Math.log(interior - x) - Math.log(x + 1);
+        }
+        double[] g = new double[log.length];
+        for (int t = 0; t < g.length; t++) g[t] = Math.exp(log[t] - max);
+        return g;
+    }
+
+    private static double[] normalize(double[] values) {
+        double max = 0;
+        for (double v : values) max = Math.max(max, v);
+        if (max > 0) {
+            for (int i = 0; i < values.length; i++) values[i] /= max;
+        }
+        return values;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    // Walks every mine/safe assignment of the component's cells that meets its numbers.
+    // Exact mode returns null at the deadline. Sample mode restarts a randomized walk
+    // after each solution it finds and keeps the tallies it has at the deadline.
+    private Counts count(int[] cells, int[] clues, int[] clueNeed, int[][] clueCells,
+                         long deadline, boolean sample) {
+        int n = cells.length;
+        int m = clues.length;
+        int[] need = new int[m];
+        int[] initialOpen = new int[m];
+        int[] perCell = new int[n];
+        for (int c = 0; c < m; c++) {
+            need[c] = clueNeed[clues[c]];
+            initialOpen[c] = clueCells[clues[c]].length;
+            for (int cell : clueCells[clues[c]]) perCell[Arrays.binarySearch(cells, cell)]++;
+        }
+        int[][] cellClues = new int[n][];
+        for (int i = 0; i < n; i++) cellClues[i] = new int[perCell[i]];
+        for (int c = 0; c < m; c++) {
+            for (int cell : clueCells[clues[c]]) {
+                int i = Arrays.binarySearch(cells, cell);
+                cellClues[i][--perCell[i]] = c;
+            }
+        }
+
+        int[] open = initialOpen.clone();
+        int[] placed = new int[m];
+        int[] value = new int[n];
+        int[] tries = new int[n];
+        int[] first = new int[n];
+        double[] ways = new double[n + 1];
+        double[][] cellWays = new double[n + 1][];
+        int minK = n + 1;
+        int maxK = -1;
+        int mineTotal = 0;
+        long steps = 0;
+        int samples = 0;
+
+        search:
+        while (true) {
+            int d = 0;
+            tries[0] = 0;
+            if (sample) first[0] = rng.nextInt(2);
+            boolean found = false;
+            while (d >= 0) {
+                if ((++steps & (CHECK_EVERY - 1)) == 0 && System.nanoTime() > deadline) {
+                    if (!sample) return null;
+                    break search;
+                }
+                if (tries[d] > 0) {
+                    assign(cellClues[d], value[d], -1, need, open, placed);
+                    mineTotal -= value[d];
+                }
+                if (tries[d] == 2) {
+                    d--;
+                    continue;
+                }
+                value[d] = tries[d] == 0 ? first[d] : 1 - first[d];
+                tries[d]++;
+                mineTotal += value[d];
+                if (!assign(cellClues[d], value[d], 1, need, open, placed)) continue;
+                if (d < n - 1) {
+                    d++;
+                    tries[d] = 0;
+                    if (sample) first[d] = rng.nextInt(2);
+                    continue;
+                }
+
+                ways[mineTotal]++;
+                if (cellWays[mineTotal] == null) cellWays[mineTotal] = new double[n];
+                for (int i = 0; i < n; i++) {
+                    if (value[i] == 1) cellWays[mineTotal][i]++;
+                }
+                minK = Math.min(minK, mineTotal);
+                maxK = Math.max(maxK, mineTotal);
+                if (sample) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!sample || !found || ++samples == MAX_SAMPLES) break;
+            System.arraycopy(initialOpen, 0, open, 0, m);
+            Arrays.fill(placed, 0);
+            mineTotal = 0;
+        }
+
+        if (maxK < 0) return Counts.NONE;
+        return new Counts(minK, Arrays.copyOfRange(ways, minK, maxK + 1),
+                Arrays.copyOfRange(cellWays, minK, maxK + 1));
+    }
+
+    // Adds (dir 1) or removes (dir -1) a cell's value; true if every number it touches can still be met
+    private static boolean assign(int[] clues, int value, int dir, int[] need, int[] open, int[] placed) {
+        boolean ok = true;
+        for (int c : clues) {
+            open[c] -= dir;
+            placed[c] += dir * value;
+            if (placed[c] > need[c] || placed[c] + open[c] < need[c]) ok = false;
+        }
+        return ok;
+    }
+
+    // Solutions of one component by mine count: ways[k - minK], and per cell how many of them hold a mine there
+    private static final class Counts {
+        static final Counts NONE = new Counts(0, new double[0], new double[0][]);
+
+        final int minK;
+        final double[] ways;
+        final double[][] cellWays;
+
+        Counts(int minK, double[] ways, double[][] cellWays) {
+            this.minK = minK;
+            this.ways = ways;
+            this.cellWays = cellWays;
+        }
+    }
+
+    // A component's numbers with their hidden cells, in board order
+    private static final class Key {
+        private final int[] data;
+        private final int hash;
+
+        private Key(int[] data) {
+            this.data = data;
+            this.hash = Arrays.hashCode(data);
+        }
+
+        static Key of(int[] clues, int[] clueNeed, int[][] clueCells) {
+            int length = 0;
+            for (int k : clues) length += 2 + clueCells[k].length;
+            int[] data = new int[length];
+            int at = 0;
+            for (int k : clues) {
+                data[at++] = clueNeed[k];
+                data[at++] = clueCells[k].length;
+                for (int cell : clueCells[k]) data[at++] = cell;
+            }
+            return new Key(data);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).hash == hash && Arrays.equals(((Key) o).data, data);
+        }
+
+        @Override
+        public int hashCode() { return hash; }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.minesweeper;
+
+// Opens cells without recursion: quiet (empty) cells are filled one row span at a
+// time, and the rows above and below each span are scanned for new seeds. The seed
+// stack and the result buffer are kept between clicks, so a reveal allocates nothing
+// once the buffers have grown to the board's size.
+public class RevealEngine {
+    private final Board board;
+    private final int size;
+    private final RevealResult result = new RevealResult();
+    private int[] stack = new int[64];
+    private int top;
+
+    public RevealEngine(Board board) {
+        this.board = board;
+        this.size = board.size();
+    }
+
+    // Reveals (r, c) and, if it is quiet, the whole connected empty region and its
+    // numbered border. Flagged cells are never opened. Mines are opened only if
+    // (r, c) itself is one; the caller decides what that means.
+    public RevealResult reveal(int r, int c) {
+        result.count = 0;
+        top = 0;
+        if (!isOpenable(r, c)) return result;
+
+        if (!board.isQuiet(r, c)) {
+            open(r, c);
+            return result;
+        }
+
+        push(board.index(r, c));
+        while (top > 0) {
+            int seed = stack[--top];
+            int row = seed / size;
+            int col = seed % size;
+            if (board.isRevealed(row, col)) continue;
+
+            int left = col;
+            while (left > 0 && isOpenable(row, left - 1) && board.isQuiet(row, left - 1)) left--;
+            int right = col;
+            while (right < size - 1 && isOpenable(row, right + 1) && board.isQuiet(row, right + 1)) right++;
+
+            for (int x = left; x <= right; x++) open(row, x);
+            // The cells just past the span are numbers (or already open / flagged)
+            if (left > 0 && isOpenable(row, left - 1)) open(row, left - 1);
+            if (right < size - 1 && isOpenable(row, right + 1)) open(row, right + 1);
+
+            scanRow(row - 1, left - 1, right + 1);
+            scanRow(row + 1, left - 1, right + 1);
+        }
+        return result;
+    }
+
+    public RevealResult getLastResult() { return result; }
+
+    // Opens numbered cells next to the span and pushes one seed per run of quiet cells
+    private void scanRow(int row, int from, int to) {
+        if (row < 0 || row >= size) return;
+        from = Math.max(0, from);
+        to = Math.min(size - 1, to);
+        boolean inRun = false;
+        for (int x = from; x <= to; x++) {
+            if (!isOpenable(row, x)) {
+                inRun = false;
+            } else if (board.isQuiet(row, x)) {
+                if (!inRun) push(board.index(row, x));
+                inRun = true;
+            } else {
+                open(row, x);
+                inRun = false;
+            }
+        }
+    }
+
+    private boolean isOpenable(int r, int c) {
+        return !board.isRevealed(r, c) && !board.isFlagged(r, c);
+    }
+
+    private void open(int r, int c) {
+        if (board.reveal(r, c)) result.add(board.index(r, c));
+    }
+
+    private void push(int index) {
+        if (top == stack.length) {
+            int[] bigger = new int[stack.length * 2];
+            System.arraycopy(stack, 0, bigger, 0, top);
+            stack = bigger;
+        }
+        stack[top++] = index;
+    }
+}
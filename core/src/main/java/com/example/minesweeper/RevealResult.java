@@ -0,0 +1,20 @@
+package com.example.minesweeper;
+
+// The cells opened by one click, as flat board indices (see Board.index).
+// The array is owned by the RevealEngine and reused on the next reveal.
+public class RevealResult {
+    int[] cells = new int[64];
+    int count;
+
+    public int[] getCells() { return cells; }
+    public int getCount() { return count; }
+
+    void add(int index) {
+        if (count == cells.length) {
+            int[] bigger = new int[cells.length * 2];
+            System.arraycopy(cells, 0, bigger, 0, count);
+            cells = bigger;
+        }
+        cells[count++] = index;
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.minesweeper;
+
+// Plays a board the way a careful player would, using only what is visible: opened
+// numbers and the cells it has already proven to be mines (kept as flags). Every pass
+// rescans all opened numbers with the single-cell rule, then the subset rule, then the
+// global mine count. Used to keep only boards that can be finished without guessing.
+public class Solver {
+    private final Board board;
+    private final RevealEngine revealer;
+    private final int size;
+
+    // Scratch neighbour lists (flat indices, row-major so always sorted)
+    private final int[] hiddenA = new int[8];
+    private final int[] hiddenB = new int[8];
+
+    public Solver(Board board) {
+        this.board = board;
+        this.revealer = new RevealEngine(board);
+        this.size = board.size();
+    }
+
+    // Opens (r, c) and deduces until stuck. True if the board was cleared with no guess.
+    // The board is played on: cells get opened and proven mines get flagged.
+    public boolean solveFrom(int r, int c) {
+        if (board.isMine(r, c)) return false;
+        revealer.reveal(r, c);
+
+        while (!board.isCleared()) {
+            if (applySingleCellRule()) continue;
+            if (applySubsetRule()) continue;
+            if (applyMineCountRule()) continue;
+            return false;
+        }
+        return true;
+    }
+
+    // A number whose mines are all found frees its other neighbours;
+    // a number with exactly as many hidden neighbours as missing mines marks them all.
+    private boolean applySingleCellRule() {
+        boolean progress = false;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                if (!isClue(r, c)) continue;
+                int hidden = collectHidden(r, c, hiddenA);
+                if (hidden == 0) continue;
+                int missing = board.getNeighbors(r, c) - countFlags(r, c);
+                if (missing == 0) {
+                    openAll(hiddenA, hidden);
+                    progress = true;
+                } else if (missing == hidden) {
+                    flagAll(hiddenA, hidden);
+                    progress = true;
+                }
+            }
+        }
+        return progress;
+    }
+
+    // If clue A's hidden cells are a subset of clue B's, the cells only B sees hold
+    // exactly missing(B) - missing(A) mines.
+    private boolean applySubsetRule() {
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                if (!isClue(r, c)) continue;
+                int countA = collectHidden(r, c, hiddenA);
+                if (countA == 0) continue;
+                int missingA = board.getNeighbors(r, c) - countFlags(r, c);
+
+                for (int br = Math.max(0, r - 2); br <= Math.min(size - 1, r + 2); br++) {
+                    for (int bc = Math.max(0, c - 2); bc <= Math.min(size - 1, c + 2); bc++) {
+                        if ((br == r && bc == c) || !isClue(br, bc)) continue;
+                        int countB = collectHidden(br, bc, hiddenB);
+                        if (countB <= countA || !isSubset(hiddenA, countA, hiddenB, countB)) continue;
+
+                        int missingB = board.getNeighbors(br, bc) - countFlags(br, bc);
+                        int onlyB = removeAll(hiddenB, countB, hiddenA, countA);
+                        int diffMines = missingB - missingA;
+                        if (diffMines == 0) {
+                            openAll(hiddenB, onlyB);
+                            return true;
+                        }
+                        if (diffMines == onlyB) {
+                            flagAll(hiddenB, onlyB);
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // All mines found: everything else is safe. Hidden cells equal missing mines: all mines.
+    private boolean applyMineCountRule() {
+        int flags = 0;
+        int hidden = 0;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                if (board.isRevealed(r, c)) continue;
+                if (board.isFlagged(r, c)) flags++;
+                else hidden++;
+            }
+        }
+        int missing = board.getMineCount() - flags;
+        if (hidden == 0 || (missing != 0 && missing != hidden)) return false;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                if (board.isRevealed(r, c) || board.isFlagged(r, c)) continue;
+                if (missing == 0) revealer.reveal(r, c);
+                else board.setFlagged(r, c, true);
+            }
+        }
+        return true;
+    }
+
+    private boolean isClue(int r, int c) {
+        return board.isRevealed(r, c) && !board.isMine(r, c) && board.getNeighbors(r, c) > 0;
+    }
+
+    private int collectHidden(int r, int c, int[] out) {
+        int count = 0;
+        for (int i = r - 1; i <= r + 1; i++) {
+            for (int j = c - 1; j <= c + 1; j++) {
+                if (board.isValidPosition(i, j) && !board.isRevealed(i, j) && !board.isFlagged(i, j)) {
+                    out[count++] = board.index(i, j);
+                }
+            }
+        }
+        return count;
+    }
+
+    private int countFlags(int r, int c) {
+        int count = 0;
+        for (int i = r - 1; i <= r + 1; i++) {
+            for (int j = c - 1; j <= c + 1; j++) {
+                if (board.isValidPosition(i, j) && !board.isRevealed(i, j) && board.isFlagged(i, j)) count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isSubset(int[] a, int countA, int[] b, int countB) {
+        int j = 0;
+        for (int i = 0; i < countA; i++) {
+            while (j < countB && b[j] < a[i]) j++;
+            if (j == countB || b[j] != a[i]) return false;
+        }
+        return true;
+    }
+
+    // Compacts b to the cells not in a, returns the new length
+    private static int removeAll(int[] b, int countB, int[] a, int countA) {
+        int kept = 0;
+        int i = 0;
+        for (int j = 0; j < countB; j++) {
+            while (i < countA && a[i] < b[j]) i++;
+            if (i < countA && a[i] == b[j]) continue;
+            b[kept++] = b[j];
+        }
+        return kept;
+    }
+
+    private void openAll(int[] cells, int count) {
+        for (int k = 0; k < count; k++) revealer.reveal(board.row(cells[k]), board.col(cells[k]));
+    }
+
+    private void flagAll(int[] cells, int count) {
+        for (int k = 0; k < count; k++) board.setFlagged(board.row(cells[k]), board.col(cells[k]), true);
+    }
+}
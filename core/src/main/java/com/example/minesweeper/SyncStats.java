@@ -0,0 +1,68 @@
+package com.example.minesweeper;
+
+// Counters for the online game sync, logged when a game closes. A remote move is
+// one log entry applied to the local board; decoded counts every entry parsed from
+// a snapshot, so decoded / moves shows how much of the log each update re-reads.
+// Bytes received are the JSON size of every snapshot the listeners were handed.
+// A desync is a move whose board hash did not match ours; a resync is a repair that
+// brought the hashes back together, in rounds of request and reply whose bytes count
+// both ways. A timeout is a repair given up because the other player stopped answering.
+public final class SyncStats {
+    private int moves;
+    private long entriesDecoded;
+    private long cellsChanged;
+    private int turns;
+    private long bytesReceived;
+    private int hashChecks;
+    private int desyncs;
+    private int resyncs;
+    private int resyncTimeouts;
+    private int resyncRounds;
+    private long resyncBytes;
+    private int rowsRepaired;
+
+    public void onEntryDecoded() { entriesDecoded++; }
+    public void onTurn() { turns++; }
+    public void onBytesReceived(int bytes) { bytesReceived += bytes; }
+
+    public void onHashCheck(boolean matched) {
+        hashChecks++;
+        if (!matched) desyncs++;
+    }
+
+    public void onResyncRound() { resyncRounds++; }
+    public void onResyncBytes(int bytes) { resyncBytes += bytes; }
+    public void onRowsRepaired(int rows) { rowsRepaired += rows; }
+    public void onResynced() { resyncs++; }
+    public void onResyncTimeout() { resyncTimeouts++; }
+
+    public void onMovesApplied(int count, int cells) {
+        moves += count;
+        cellsChanged += cells;
+    }
+
+    public int getMoves() { return moves; }
+    public long getEntriesDecoded() { return entriesDecoded; }
+    public long getCellsChanged() { return cellsChanged; }
+    public int getTurns() { return turns; }
+    public long getBytesReceived() { return bytesReceived; }
+    public int getHashChecks() { return hashChecks; }
+    public int getDesyncs() { return desyncs; }
+    public int getResyncs() { return resyncs; }
+    public int getResyncTimeouts() { return resyncTimeouts; }
+    public int getResyncRounds() { return resyncRounds; }
+    public long getResyncBytes() { return resyncBytes; }
+    public int getRowsRepaired() { return rowsRepaired; }
+
+    public double entriesPerMove() { return moves == 0 ? 0 : (double) entriesDecoded / moves; }
+    public double cellsPerMove() { return moves == 0 ? 0 : (double) cellsChanged / moves; }
+    public double bytesPerTurn() { return turns == 0 ? 0 : (double) bytesReceived / turns; }
+
+    public String summary() {
+        return String.format("%d moves, %.1f entries decoded and %.1f cells updated per move, "
+                + "%d turns, %.0f bytes received per turn, %d hash checks, %d desyncs, "
+                + "%d resyncs (%d rounds, %d rows, %d bytes), %d timed out",
+                moves, entriesPerMove(), cellsPerMove(), turns, bytesPerTurn(), hashChecks, desyncs,
+                resyncs, resyncRounds, rowsRepaired, resyncBytes, resyncTimeouts);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.minesweeper;
+
+// Turn deadlines on the server clock. Both clients take the deadline from the same
+// server timestamp (lastMoveTimestamp) and map it onto their own clock with the offset
+// the database measures, so they agree on it however late the turn change reaches them.
+// All times are epoch milliseconds; "local" is System.currentTimeMillis().
+public final class TurnClock {
+    public static final long TURN_MS = 5000;
+    // The waiting side gives the mover's own timeout this long to arrive before it gives up
+    public static final long GRACE_MS = 1000;
+
+    private long offsetMs;
+    private long deadline = -1;
+
+    private final Histogram skew = new Histogram("clock skew (server - local)", "ms");
+    private final Histogram startLag = new Histogram("turn start seen after", "ms");
+    private final Histogram deadlineError = new Histogram("deadline error", "ms");
+
+    public void setServerOffset(long offsetMs) {
+        this.offsetMs = offsetMs;
+        skew.record(offsetMs);
+    }
+
+    public long serverNow(long localNow) { return localNow + offsetMs; }
+
+    public void startTurn(long serverStart, boolean mine, long localNow) {
+        deadline = serverStart + TURN_MS + (mine ? 0 : GRACE_MS);
+        startLag.record(serverNow(localNow) - serverStart);
+    }
+
+    public boolean isRunning() { return deadline >= 0; }
+
+    // Milliseconds left on the server clock, never negative
+    public long remainingMs(long localNow) {
+        return deadline < 0 ? 0 : Math.max(0, deadline - serverNow(localNow));
+    }
+
+    // The scheduler calls this when it fires the timeout; records how late it was
+    public void onTimeout(long localNow) {
+        if (deadline >= 0) deadlineError.record(serverNow(localNow) - deadline);
+        deadline = -1;
+    }
+
+    public void stop() { deadline = -1; }
+
+    public Histogram getSkew() { return skew; }
+    public Histogram getStartLag() { return startLag; }
+    public Histogram getDeadlineError() { return deadlineError; }
+}
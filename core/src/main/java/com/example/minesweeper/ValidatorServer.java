@@ -0,0 +1,259 @@
+package com.example.minesweeper;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// A MoveValidator behind a TCP port, run as its own process:
+//   java -cp core.jar com.example.minesweeper.ValidatorServer [port] [workers]
+// A client sends JOIN (game id, player, size, mines) once and then INTENT frames; a
+// JOIN whose size or mines differ from the game's first one drops its sender. When
+// the second player of a game joins, the validator deals the board and both get
+// a STATE frame with the first turn; anyone joining later only watches. Every intent,
+// accepted or rejected, comes back to everyone in its game as RESULT frames (see
+// LanFrames). One selector thread does all socket I/O; results come back from the
+// workers through a queue. Prints the validator's latency and queue depth every ten
+// seconds.
+public final class ValidatorServer {
+    public static final int DEFAULT_PORT = 47200;
+    private static final long REPORT_EVERY_MS = 10_000;
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final MoveValidator validator;
+    private final ConcurrentLinkedQueue<MoveValidator.Result> results = new ConcurrentLinkedQueue<>();
+    private final Map<String, List<Connection>> games = new HashMap<>();
+    private volatile boolean closed;
+    private long moves;
+
+    private static final class Connection {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(1024);
+        final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+        String gameId;
+        String player;
+        int size;
+        int mineCount;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    public ValidatorServer(int port, int workers) throws IOException {
+        this.validator = new MoveValidator(workers, result -> {
+            results.add(result);
+            wakeup();
+        });
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int workers = args.length > 1 ? Integer.parseInt(args[1])
+                : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        ValidatorServer server = new ValidatorServer(port, workers);
+        System.out.println("validating on port " + server.getPort() + " with " + workers + " workers");
+        server.run();
+    }
+
+    public int getPort() { return server.socket().getLocalPort(); }
+
+    public MoveValidator getValidator() { return validator; }
+
+    public void close() {
+        closed = true;
+        wakeup();
+    }
+
+    private void wakeup() {
+        selector.wakeup();
+    }
+
+    public void run() throws IOException {
+        long lastReport = System.currentTimeMillis();
+        try {
+            while (!closed) {
+                selector.select(REPORT_EVERY_MS);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) accept();
+                    else {
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isReadable()) read(connection);
+                            if (key.isValid() && key.isWritable()) flush(connection);
+                        } catch (IOException | RuntimeException e) {
+                            // A bad frame (cut short, or with bad values) costs only its sender
+                            drop(connection);
+                        }
+                    }
+                }
+                MoveValidator.Result result;
+                while ((result = results.poll()) != null) {
+                    try {
+                        send(result);
+                    } catch (RuntimeException e) {
+                        // A result that cannot go out ends its game, not the validator
+                        System.out.println("result of " + result.gameId + " not sent: " + e);
+                        List<Connection> players = games.get(result.gameId);
+                        if (players != null) for (Connection player : new ArrayList<>(players)) drop(player);
+                    }
+                }
+
+                long now = System.currentTimeMillis();
+                if (now - lastReport >= REPORT_EVERY_MS) {
+                    lastReport = now;
+                    System.out.println(games.size() + " games, " + moves + " intents, queue depth "
+                            + validator.getQueueDepth() + " (max " + validator.getMaxQueueDepth() + "), "
+                            + validator.getLatency().summary());
+                }
+            }
+        } finally {
+            for (SelectionKey key : selector.keys()) key.channel().close();
+            selector.close();
+            try {
+                validator.shutdown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+    }
+
+    private void read(Connection connection) throws IOException {
+        ByteBuffer in = connection.in;
+        if (connection.channel.read(in) < 0) throw new IOException("closed by client");
+        in.flip();
+        while (in.remaining() >= 4) {
+            int length = in.getInt(in.position());
+            if (length < 1 || length > in.capacity() - 4) throw new IOException("bad frame length " + length);
+            if (in.remaining() < 4 + length) break;
+            ByteBuffer frame = in.slice();
+            frame.position(4).limit(4 + length);
+            in.position(in.position() + 4 + length);
+            onFrame(connection, frame.slice());
+        }
+        in.compact();
+    }
+
+    private void onFrame(Connection connection, ByteBuffer in) {
+        byte type = in.get();
+        if (type == LanFrames.JOIN && connection.gameId == null) {
+            String gameId = LanFrames.getString(in);
+            String name = LanFrames.getString(in);
+            int size = in.getInt();
+            int mineCount = in.getInt();
+            if (!MoveValidator.isValidBoard(size, mineCount)) {
+                throw new IllegalArgumentException("bad board " + size + " / " + mineCount);
+            }
+            List<Connection> players = games.get(gameId);
+            if (players != null && (players.get(0).size != size || players.get(0).mineCount != mineCount)) {
+                throw new IllegalArgumentException("board " + size + " / " + mineCount + " against "
+                        + players.get(0).size + " / " + players.get(0).mineCount + " in " + gameId);
+            }
+            connection.gameId = gameId;
+            connection.player = name;
+            connection.size = size;
+            connection.mineCount = mineCount;
+            if (players == null) games.put(gameId, players = new ArrayList<>());
+            players.add(connection);
+            if (players.size() == 2) {
+                String first = players.get(0).player;
+                validator.createGame(connection.gameId, size, mineCount, first, connection.player);
+                Map<String, Object> state = new HashMap<>();
+                state.put("playerTurn", first);
+                state.put("size", size);
+                state.put("mineCount", mineCount);
+                ByteBuffer frame = new LanFrames.Builder(LanFrames.STATE).putMap(state).build();
+                for (Connection player : players) queue(player, frame.duplicate());
+            }
+        } else if (type == LanFrames.INTENT && connection.gameId != null) {
+            moves++;
+            int moveType = in.get();
+            int r = in.getInt();
+            int c = in.getInt();
+            validator.submit(connection.gameId, connection.player, moveType, r, c);
+        }
+    }
+
+    private void send(MoveValidator.Result result) {
+        List<Connection> players = games.get(result.gameId);
+        if (players == null) return;
+        // queue() may drop a player, and with the last one the game
+        players = new ArrayList<>(players);
+        for (ByteBuffer frame : LanFrames.resultFrames(result)) {
+            for (Connection player : players) {
+                if (player.channel.isOpen()) queue(player, frame.duplicate());
+            }
+        }
+        if (result.outcome == MoveValidator.MINE || result.outcome == MoveValidator.CLEARED) {
+            validator.endGame(result.gameId);
+        }
+    }
+
+    private void queue(Connection connection, ByteBuffer frame) {
+        connection.out.add(frame);
+        try {
+            flush(connection);
+        } catch (IOException e) {
+            drop(connection);
+        }
+    }
+
+    private void flush(Connection connection) throws IOException {
+        ByteBuffer head;
+        while ((head = connection.out.peek()) != null) {
+            connection.channel.write(head);
+            if (head.hasRemaining()) break;
+            connection.out.poll();
+        }
+        SelectionKey key = connection.channel.keyFor(selector);
+        if (key != null && key.isValid()) {
+            key.interestOps(connection.out.isEmpty() ? SelectionKey.OP_READ
+                    : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    // A game is dropped once everyone in it has left
+    private void drop(Connection connection) {
+        try {
+            connection.channel.close();
+        } catch (IOException ignored) {
+        }
+        if (connection.gameId == null) return;
+        List<Connection> players = games.get(connection.gameId);
+        if (players == null) return;
+        players.remove(connection);
+        if (players.isEmpty()) {
+            games.remove(connection.gameId);
+            validator.endGame(connection.gameId);
+        }
+    }
+}
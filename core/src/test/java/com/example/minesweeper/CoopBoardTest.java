@@ -0,0 +1,105 @@
+package com.example.minesweeper;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// The delivery-order fuzz of CoopFuzz at a small size: replicas that got every op, in
+// random order and some twice, agree, and so do fresh replicas fed the ops shuffled
+public class CoopBoardTest {
+    private static final int SIZE = 12;
+    private static final int REPLAYS = 4;
+
+    @Test
+    public void replicasConvergeInAnyOrder() {
+        for (int replicas = 2; replicas <= 3; replicas++) {
+            for (int trial = 0; trial < 200; trial++) {
+                assertTrue(replicas + " replicas, trial " + trial, trial(trial, replicas, 60));
+            }
+        }
+    }
+
+    private static boolean trial(int trial, int replicas, int opsPerTrial) {
+        SplittableRandom rng = new SplittableRandom(trial);
+        Board mines = BoardGenerator.generate(trial, SIZE, BoardGenerator.defaultMineCount(SIZE));
+        CoopBoard[] players = new CoopBoard[replicas];
+        for (int p = 0; p < replicas; p++) players[p] = new CoopBoard(mines.copy(), p, replicas);
+
+        List<CoopOp> inFlight = new ArrayList<>();
+        List<Integer> targets = new ArrayList<>();
+        List<CoopOp> all = new ArrayList<>();
+        int made = 0;
+        while (made < opsPerTrial || !inFlight.isEmpty()) {
+            if (made < opsPerTrial && (inFlight.isEmpty() || rng.nextInt(3) == 0)) {
+                int p = rng.nextInt(replicas);
+                CoopOp op = act(players[p], rng);
+                made++;
+                if (op == null) continue;
+                all.add(op);
+                for (int q = 0; q < replicas; q++) {
+                    if (q == p) continue;
+                    inFlight.add(op);
+                    targets.add(q);
+                }
+                continue;
+            }
+            int i = rng.nextInt(inFlight.size());
+            players[targets.get(i)].merge(inFlight.get(i));
+            if (rng.nextInt(5) != 0) { // otherwise it stays in flight for a second delivery
+                int last = inFlight.size() - 1;
+                inFlight.set(i, inFlight.get(last));
+                targets.set(i, targets.get(last));
+                inFlight.remove(last);
+                targets.remove(last);
+            }
+        }
+
+        boolean same = true;
+        for (int p = 1; p < replicas; p++) same &= agree(players[0], players[p]);
+        for (int replay = 0; replay < REPLAYS && !all.isEmpty(); replay++) {
+            CoopBoard fresh = new CoopBoard(mines.copy(), replicas - 1, replicas);
+            List<CoopOp> order = new ArrayList<>(all);
+            for (int i = 0; i < all.size() / 4; i++) order.add(all.get(rng.nextInt(all.size())));
+            for (int i = order.size() - 1; i > 0; i--) {
+                int j = rng.nextInt(i + 1);
+                CoopOp t = order.get(i);
+                order.set(i, order.get(j));
+                order.set(j, t);
+            }
+            for (CoopOp op : order) fresh.merge(op);
+            same &= agree(players[0], fresh);
+        }
+        return same;
+    }
+
+    // Mostly reveals of hidden cells, some flag toggles, and now and then a mine
+    private static CoopOp act(CoopBoard player, SplittableRandom rng) {
+        Board board = player.getBoard();
+        for (int attempt = 0; attempt < 20; attempt++) {
+            int r = rng.nextInt(SIZE), c = rng.nextInt(SIZE);
+            int roll = rng.nextInt(10);
+            if (roll < 4) {
+                CoopOp op = player.flag(r, c);
+                if (op != null) return op;
+            } else if (!board.isMine(r, c) || roll == 9) {
+                CoopOp op = player.reveal(r, c);
+                if (op != null) return op;
+            }
+        }
+        return null;
+    }
+
+    private static boolean agree(CoopBoard a, CoopBoard b) {
+        if (!a.getBoard().sameState(b.getBoard())) return false;
+        for (int r = 0; r < SIZE; r++) {
+            for (int c = 0; c < SIZE; c++) {
+                if (a.isFlagSet(r, c) != b.isFlagSet(r, c)) return false;
+            }
+        }
+        return true;
+    }
+}
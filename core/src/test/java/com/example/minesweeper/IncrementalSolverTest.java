@@ -0,0 +1,33 @@
+package com.example.minesweeper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+// IncrementalSolver against the full-rescan Solver on random boards: the same verdict,
+// and the same cells opened where both get stuck
+public class IncrementalSolverTest {
+
+    @Test
+    public void agreesWithFullRescan() {
+        int cleared = 0;
+        for (long seed = 1; seed <= 3000; seed++) {
+            int size = 8 + (int) (seed % 9);
+            int start = size / 2;
+            Board rescan = new Board(size);
+            BoardGenerator.placeMinesSafeAt(rescan, seed, BoardGenerator.defaultMineCount(size), start, start);
+            Board incremental = rescan.copy();
+
+            boolean expected = new Solver(rescan).solveFrom(start, start);
+            assertEquals("seed " + seed, expected, new IncrementalSolver(incremental).solveFrom(start, start));
+            for (int i = 0; i < rescan.cellCount(); i++) {
+                int r = rescan.row(i), c = rescan.col(i);
+                assertEquals("seed " + seed + " cell " + i, rescan.isRevealed(r, c), incremental.isRevealed(r, c));
+            }
+            if (expected) cleared++;
+        }
+        // Both outcomes are covered
+        assertTrue(cleared > 0 && cleared < 3000);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.minesweeper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// A frame with a bad length or an unreadable payload ends the link and is reported
+// to subscribeClosed, on either side; strings and maps too big for a frame are refused
+public class LanTransportTest {
+
+    @Test
+    public void hostReportsNegativeLength() throws Exception {
+        ByteBuffer frame = ByteBuffer.allocate(8).putInt(-4).putInt(0);
+        frame.flip();
+        assertHostClosedBy(frame);
+    }
+
+    @Test
+    public void hostReportsOversizedLength() throws Exception {
+        ByteBuffer frame = ByteBuffer.allocate(8).putInt(LanFrames.MAX_FRAME).putInt(0);
+        frame.flip();
+        assertHostClosedBy(frame);
+    }
+
+    @Test
+    public void hostReportsBadString() throws Exception {
+        ByteBuffer frame = ByteBuffer.allocate(7).putInt(3).put(LanFrames.CHAT).putShort((short) -2);
+        frame.flip();
+        assertHostClosedBy(frame);
+    }
+
+    @Test
+    public void guestReportsLostHost() throws Exception {
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress("127.0.0.1", 0));
+            BlockingQueue<Exception> closed = new ArrayBlockingQueue<>(1);
+            LanTransport guest = LanTransport.join((InetSocketAddress) server.getLocalAddress(), Runnable::run);
+            guest.subscribeClosed(closed::add);
+            server.accept().close();
+            assertNotNull(closed.poll(5, TimeUnit.SECONDS));
+            guest.close();
+        }
+    }
+
+    @Test
+    public void builderRefusesOversizedValues() {
+        char[] text = new char[Short.MAX_VALUE + 1];
+        Arrays.fill(text, 'a');
+        try {
+            new LanFrames.Builder(LanFrames.CHAT).putString(new String(text));
+            fail("string over the limit");
+        } catch (IllegalArgumentException expected) {
+        }
+        Map<String, Object> big = new HashMap<>();
+        for (int i = 0; i < 4000; i++) big.put("key" + i, "value" + i);
+        try {
+            new LanFrames.Builder(LanFrames.STATE).putMap(big).build();
+            fail("frame over the limit");
+        } catch (IllegalArgumentException expected) {
+        }
+        ByteBuffer ok = new LanFrames.Builder(LanFrames.CHAT).putString("a").putString(null).build();
+        ok.position(5);
+        assertEquals("a", LanFrames.getString(ok));
+        assertEquals(null, LanFrames.getString(ok));
+    }
+
+    private static void assertHostClosedBy(ByteBuffer frame) throws Exception {
+        LanTransport host = LanTransport.host(0, Runnable::run);
+        BlockingQueue<Exception> closed = new ArrayBlockingQueue<>(1);
+        host.subscribeClosed(closed::add);
+        try (SocketChannel socket = SocketChannel.open(new InetSocketAddress("127.0.0.1", host.getPort()))) {
+            while (frame.hasRemaining()) socket.write(frame);
+            Exception cause = closed.poll(5, TimeUnit.SECONDS);
+            assertNotNull(cause);
+            assertTrue(cause.toString(), cause instanceof IOException || cause instanceof IllegalArgumentException);
+        } finally {
+            host.close();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.minesweeper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+// Quick match against a LoopbackMatchStore with a short delay: two players get one room,
+// and a player who drops off while queued leaves no ticket for the next one to take
+public class MatchmakerTest {
+
+    private final ScheduledExecutorService main = Executors.newSingleThreadScheduledExecutor();
+    private final LoopbackMatchStore store = new LoopbackMatchStore(main, 1000, 500, 1);
+    private final List<String> rooms = new ArrayList<>();
+
+    @After
+    public void stop() {
+        main.shutdownNow();
+    }
+
+    @Test
+    public void twoPlayersShareARoom() throws Exception {
+        on(() -> quickMatch(store.client(main), "player1"));
+        waitFor(() -> queued().size() == 1);
+        on(() -> quickMatch(store.client(main), "player2"));
+        waitFor(() -> rooms.size() == 2);
+        on(() -> {
+            assertEquals(rooms.get(0).substring("player1 ".length()), rooms.get(1).substring("player2 ".length()));
+            return null;
+        });
+        waitFor(() -> queued().isEmpty());
+    }
+
+    @Test
+    public void droppedPlayerLeavesNoTicket() throws Exception {
+        MatchStore gone = on(() -> store.client(main));
+        on(() -> quickMatch(gone, "gone"));
+        waitFor(() -> queued().size() == 1);
+        on(() -> {
+            store.disconnect(gone);
+            return null;
+        });
+        assertTrue(queued().isEmpty());
+
+        on(() -> quickMatch(store.client(main), "late"));
+        waitFor(() -> queued().size() == 1);
+        Thread.sleep(300);
+        on(() -> {
+            assertTrue(rooms.isEmpty());
+            Object player = queued().values().iterator().next().get("player");
+            assertEquals("late", player);
+            return null;
+        });
+    }
+
+    private Void quickMatch(MatchStore client, String name) {
+        new Matchmaker(client, name, new Random(name.hashCode())).quickMatch(new Matchmaker.Listener() {
+            @Override
+            public void onRoom(String roomId, boolean host) {
+                rooms.add(name + " " + roomId);
+            }
+
+            @Override
+            public void onFailed(String reason) {
+                throw new AssertionError(name + ": " + reason);
+            }
+        });
+        return null;
+    }
+
+    private Map<String, Map<String, Object>> queued() {
+        return store.getNodes(Matchmaker.QUEUE);
+    }
+
+    private <T> T on(Callable<T> task) throws Exception {
+        return main.submit(task).get();
+    }
+
+    private void waitFor(Callable<Boolean> condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!on(condition)) {
+            assertTrue("timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.minesweeper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+// The desync drill of DesyncDrill in small, on a LoopbackHub without delay whose deliveries
+// wait in a queue until run(): a planted desync is repaired, a repair whose message was
+// lost times out and the next move repairs it, and bad row data is refused
+public class MerkleSyncTest {
+    private static final int SIZE = 16;
+    private static final long SEED = 5;
+
+    private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+    private final SplittableRandom rng = new SplittableRandom(3);
+    private final long[] now = {1_700_000_000_000L};
+    private LoopbackHub hub;
+    private Client one;
+    private Client two;
+
+    private final class Client {
+        final String name;
+        final OptimisticMoveLog moves;
+        final GameTransport transport;
+        final MerkleSync merkle;
+        final SyncStats stats = new SyncStats();
+
+        Client(String name) {
+            this.name = name;
+            this.moves = new OptimisticMoveLog(BoardGenerator.generate(SEED, SIZE,
+                    BoardGenerator.defaultMineCount(SIZE)), null);
+            this.transport = hub.client(queue::add);
+            this.merkle = new MerkleSync(name, transport, moves, stats, () -> now[0]);
+            transport.subscribeMoves(move -> {
+                moves.onRemote(move);
+                for (OptimisticMoveLog.Pending again : moves.getResend()) {
+                    transport.publishMove(again.move, again.stateUpdates);
+                }
+                merkle.onConfirmed(move);
+            });
+            transport.subscribeSync(message -> {
+                if (merkle.onSync(message) == 0) return;
+                for (OptimisticMoveLog.Pending again : moves.getResend()) {
+                    transport.publishMove(again.move, again.stateUpdates);
+                }
+            });
+        }
+
+        void tap() {
+            Board board = moves.getBoard();
+            int r, c;
+            do {
+                r = rng.nextInt(SIZE);
+                c = rng.nextInt(SIZE);
+            } while (board.isMine(r, c) || !moves.changes(Move.REVEAL, r, c));
+            Move move = moves.applyLocal(Move.REVEAL, r, c, name, new HashMap<>());
+            transport.publishMove(merkle.stamp(move), new HashMap<>());
+            run();
+        }
+
+        // A hidden safe cell opened on this client only
+        void corrupt() {
+            Board confirmed = moves.getConfirmedBoard();
+            int r, c;
+            do {
+                r = rng.nextInt(SIZE);
+                c = rng.nextInt(SIZE);
+            } while (confirmed.isMine(r, c) || confirmed.isRevealed(r, c) || confirmed.isFlagged(r, c));
+            confirmed.reveal(r, c);
+            moves.getBoard().reveal(r, c);
+        }
+    }
+
+    @Before
+    public void start() {
+        hub = new LoopbackHub();
+        one = new Client("player1");
+        two = new Client("player2");
+        one.tap();
+        two.tap();
+        assertTogether();
+    }
+
+    @Test
+    public void plantedDesyncIsRepaired() {
+        two.corrupt();
+        one.tap();
+        assertEquals(1, two.stats.getDesyncs());
+        assertEquals(1, two.stats.getResyncs());
+        assertFalse(two.merkle.isRepairing());
+        assertTogether();
+    }
+
+    @Test
+    public void lostMessageTimesOut() {
+        hub.setSyncLoss(1);
+        two.corrupt();
+        one.tap();
+        assertTrue(two.merkle.isRepairing());
+        assertTrue(hub.getSyncDropped() > 0);
+
+        now[0] += MerkleSync.REPAIR_TIMEOUT_MS - 1;
+        assertFalse(two.merkle.expire());
+        assertTrue(two.merkle.isRepairing());
+        now[0] += 1;
+        assertTrue(two.merkle.expire());
+        assertFalse(two.merkle.isRepairing());
+        assertEquals(1, two.stats.getResyncTimeouts());
+
+        hub.setSyncLoss(0);
+        one.tap();
+        assertEquals(1, two.stats.getResyncs());
+        assertTogether();
+    }
+
+    @Test
+    public void badRowDataEndsTheRepair() {
+        String[][] bad = {
+                {"v0", "-3"}, {"v0", "zz"}, {"v0", "3.0.2"}, {"f0", "g.1"}, {"v0", "1."}, {"x", null}};
+        for (String[] field : bad) {
+            hub.setSyncLoss(1);
+            two.corrupt();
+            one.tap();
+            assertTrue(two.merkle.isRepairing());
+            Board before = two.moves.getConfirmedBoard().copy();
+
+            Map<String, Object> rows = new HashMap<>();
+            rows.put("kind", "rowdata");
+            rows.put("from", "player1");
+            rows.put("to", "player2");
+            rows.put("seq", (long) two.moves.getConfirmedSeq());
+            rows.put("root", "1");
+            rows.put("ids", "0");
+            if (field[1] != null) rows.put(field[0], field[1]);
+            else rows.put(field[0], (long) SIZE * SIZE);
+            assertEquals(String.join("=", field[0], field[1]), 0, two.merkle.onSync(rows));
+            assertFalse(two.merkle.isRepairing());
+            assertTrue(two.moves.getConfirmedBoard().sameState(before));
+
+            hub.setSyncLoss(0);
+            one.tap();
+            assertTogether();
+        }
+    }
+
+    private void run() {
+        while (!queue.isEmpty()) queue.poll().run();
+    }
+
+    private void assertTogether() {
+        assertEquals(hub.moveCount(), one.moves.getConfirmedSeq());
+        assertEquals(hub.moveCount(), two.moves.getConfirmedSeq());
+        assertTrue(one.moves.getConfirmedBoard().sameState(two.moves.getConfirmedBoard()));
+        assertTrue(one.moves.getBoard().sameState(one.moves.getConfirmedBoard()));
+        assertTrue(two.moves.getBoard().sameState(two.moves.getConfirmedBoard()));
+    }
+}
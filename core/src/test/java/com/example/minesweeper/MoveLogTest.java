@@ -0,0 +1,73 @@
+package com.example.minesweeper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+// The convergence check of MoveLogBenchmark at small sizes: a log delivered shuffled
+// and with duplicates lands on the same board as the log in order
+public class MoveLogTest {
+
+    @Test
+    public void shuffledDuplicatedLogConverges() {
+        for (int size : new int[]{10, 30}) {
+            for (long seed = 1; seed <= 40; seed++) {
+                List<Move> moves = play(seed, size);
+                MoveLog inOrder = new MoveLog(BoardGenerator.generate(seed, size, BoardGenerator.defaultMineCount(size)));
+                for (Move move : moves) inOrder.offer(move);
+
+                List<Move> delivery = new ArrayList<>(moves);
+                delivery.addAll(moves);
+                Collections.shuffle(delivery, new Random(seed));
+                MoveLog other = new MoveLog(BoardGenerator.generate(seed, size, BoardGenerator.defaultMineCount(size)));
+                for (Move move : delivery) other.offer(move);
+
+                assertEquals("size " + size + " seed " + seed, moves.size(), other.getNextSeq());
+                assertTrue("size " + size + " seed " + seed, other.getBoard().sameState(inOrder.getBoard()));
+            }
+        }
+    }
+
+    @Test
+    public void entriesSurviveTheirMapForm() {
+        for (Move move : play(7, 30)) {
+            Move back = Move.fromMap(move.toMap(move.timestamp));
+            assertEquals(move.seq, back.seq);
+            assertEquals(move.type, back.type);
+            assertEquals(move.row, back.row);
+            assertEquals(move.col, back.col);
+            assertEquals(move.player, back.player);
+        }
+    }
+
+    // Mostly safe reveals, some flags, now and then the final mine
+    private static List<Move> play(long seed, int size) {
+        MoveLog writer = new MoveLog(BoardGenerator.generate(seed, size, BoardGenerator.defaultMineCount(size)));
+        Board board = writer.getBoard();
+        SplittableRandom rng = new SplittableRandom(seed * 31 + size);
+        List<Move> moves = new ArrayList<>();
+        boolean exploded = false;
+        while (!exploded && !board.isCleared()) {
+            int r = rng.nextInt(size), c = rng.nextInt(size);
+            if (board.isRevealed(r, c)) continue;
+            int type = rng.nextInt(5) == 0 ? Move.FLAG : Move.REVEAL;
+            if (type == Move.REVEAL && board.isFlagged(r, c)) continue;
+            if (type == Move.REVEAL && board.isMine(r, c)) {
+                if (rng.nextInt(50) != 0) continue;
+                exploded = true;
+            }
+            Move move = new Move(moves.size(), type, r, c, moves.size() % 2 == 0 ? "player1" : "player2",
+                    1_700_000_000_000L + moves.size());
+            writer.offer(move);
+            moves.add(move);
+        }
+        return moves;
+    }
+}
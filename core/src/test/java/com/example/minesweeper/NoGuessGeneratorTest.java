@@ -0,0 +1,27 @@
+package com.example.minesweeper;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+// The time budget holds on the largest board, where a single candidate takes longer
+// to play out than the whole budget
+public class NoGuessGeneratorTest {
+    private static final long BUDGET_MS = 500;
+
+    @Test
+    public void largeBoardStaysNearTheBudget() {
+        int size = MoveValidator.MAX_SIZE;
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            NoGuessGenerator.Result result = NoGuessGenerator.find(size, BoardGenerator.defaultMineCount(size),
+                    size / 2, size / 2, 7, BUDGET_MS, pool);
+            assertTrue(result.elapsedMs + " ms", result.elapsedMs < BUDGET_MS * 2);
+            assertTrue(result.tried >= 1);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
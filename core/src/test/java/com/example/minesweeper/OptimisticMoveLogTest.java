@@ -0,0 +1,53 @@
+package com.example.minesweeper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// A local move that loses its seq to the other player's is shown again on top of it and
+// sent again under the next seq, with the state updates it was first published with
+public class OptimisticMoveLogTest {
+    private static final int SIZE = 10;
+
+    @Test
+    public void rolledBackMoveKeepsItsStateUpdates() {
+        Board board = BoardGenerator.generate(1, SIZE, BoardGenerator.defaultMineCount(SIZE));
+        OptimisticMoveLog moves = new OptimisticMoveLog(board, null);
+        int[] mine = safeCell(board, 0);
+        int[] theirs = safeCell(board, board.index(mine[0], mine[1]) + 1);
+
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("playerTurn", "player2");
+        updates.put("player1_misses", 0);
+        Move sent = moves.applyLocal(Move.FLAG, mine[0], mine[1], "player1", updates);
+        assertEquals(0, sent.seq);
+
+        moves.onRemote(new Move(0, Move.FLAG, theirs[0], theirs[1], "player2", 1));
+        assertEquals(1, moves.getRollbacks());
+        List<OptimisticMoveLog.Pending> resend = moves.getResend();
+        assertEquals(1, resend.size());
+        Move again = resend.get(0).move;
+        assertEquals(1, again.seq);
+        assertEquals(mine[0], again.row);
+        assertEquals(mine[1], again.col);
+        assertEquals(updates, resend.get(0).stateUpdates);
+        assertTrue(moves.getBoard().isFlagged(mine[0], mine[1]));
+        assertTrue(moves.getBoard().isFlagged(theirs[0], theirs[1]));
+
+        moves.onRemote(new Move(1, again.type, again.row, again.col, again.player, 2));
+        assertEquals(0, moves.getPendingCount());
+        assertTrue(moves.getBoard().sameState(moves.getConfirmedBoard()));
+    }
+
+    private static int[] safeCell(Board board, int from) {
+        for (int i = from; i < board.cellCount(); i++) {
+            if (!board.isMine(board.row(i), board.col(i))) return new int[]{board.row(i), board.col(i)};
+        }
+        throw new IllegalStateException("no safe cell");
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.minesweeper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// ProbabilityEngine against brute force on small boards: every placement of the mines
+// over the hidden cells that fits the opened numbers is counted, and a cell's chance is
+// the share of placements with a mine on it. On every other board the cells certain to
+// be mines are flagged first, as the offline controller passes proven mines.
+public class ProbabilityEngineTest {
+    private static final int BOARDS = 400;
+    private static final int MAX_HIDDEN = 26;
+    private static final double TOLERANCE = 1e-5;
+
+    @Test
+    public void matchesBruteForce() {
+        ProbabilityEngine engine = new ProbabilityEngine(1);
+        double worst = 0;
+        int checked = 0;
+        for (int b = 0; b < BOARDS; b++) {
+            SplittableRandom rng = new SplittableRandom(b);
+            int size = 5 + rng.nextInt(3);
+            int start = rng.nextInt(size);
+            Board board = new Board(size);
+            BoardGenerator.placeMinesSafeAt(board, b, 4 + rng.nextInt(4), start, start);
+            RevealEngine revealer = new RevealEngine(board);
+            revealer.reveal(start, start);
+            while (board.cellCount() - board.getRevealedSafe() > MAX_HIDDEN) {
+                int r = rng.nextInt(size), c = rng.nextInt(size);
+                if (!board.isMine(r, c) && !board.isRevealed(r, c)) revealer.reveal(r, c);
+            }
+            if (board.isCleared()) continue;
+
+            double[] expected = enumerate(board);
+            if (b % 2 == 1) {
+                for (int i = 0; i < expected.length; i++) {
+                    if (expected[i] == 1) board.setFlagged(board.row(i), board.col(i), true);
+                }
+            }
+            ProbabilityEngine.Result result = engine.compute(board, 10_000);
+            checked++;
+            assertTrue("board " + b, result.exact);
+            for (int i = 0; i < expected.length; i++) {
+                if (Double.isNaN(expected[i]) || board.isFlagged(board.row(i), board.col(i))) continue;
+                double error = Math.abs(result.probabilities[i] - expected[i]);
+                worst = Math.max(worst, error);
+                assertEquals("board " + b + " cell " + i, expected[i], result.probabilities[i], TOLERANCE);
+            }
+        }
+        assertTrue(checked > BOARDS / 2 && worst < TOLERANCE);
+    }
+
+    // Mine probability of every hidden cell by Board.index, NaN for opened cells
+    private static double[] enumerate(Board board) {
+        int size = board.size();
+        int n = board.cellCount();
+        int[] hidden = new int[n];
+        int hiddenCount = 0;
+        for (int i = 0; i < n; i++) if (!board.isRevealed(board.row(i), board.col(i))) hidden[hiddenCount++] = i;
+
+        // The opened numbers next to each hidden cell
+        int[] need = new int[n];
+        int[][] clues = new int[hiddenCount][];
+        for (int h = 0; h < hiddenCount; h++) {
+            int r = board.row(hidden[h]), c = board.col(hidden[h]);
+            int[] around = new int[8];
+            int count = 0;
+            for (int i = Math.max(0, r - 1); i <= Math.min(size - 1, r + 1); i++) {
+                for (int j = Math.max(0, c - 1); j <= Math.min(size - 1, c + 1); j++) {
+                    if (board.isRevealed(i, j)) around[count++] = board.index(i, j);
+                }
+            }
+            clues[h] = Arrays.copyOf(around, count);
+        }
+        for (int i = 0; i < n; i++) {
+            if (board.isRevealed(board.row(i), board.col(i))) need[i] = board.getNeighbors(board.row(i), board.col(i));
+        }
+
+        long[] withMine = new long[hiddenCount];
+        long[] total = new long[1];
+        place(0, board.getMineCount(), hidden, hiddenCount, clues, need, new int[n], new boolean[hiddenCount],
+                withMine, total);
+
+        double[] p = new double[n];
+        Arrays.fill(p, Double.NaN);
+        for (int h = 0; h < hiddenCount; h++) p[hidden[h]] = (double) withMine[h] / total[0];
+        return p;
+    }
+
+    private static void place(int h, int minesLeft, int[] hidden, int hiddenCount, int[][] clues, int[] need,
+                              int[] placed, boolean[] mine, long[] withMine, long[] total) {
+        if (minesLeft > hiddenCount - h) return;
+        if (h == hiddenCount) {
+            for (int i = 0; i < need.length; i++) if (placed[i] != need[i]) return;
+            total[0]++;
+            for (int k = 0; k < hiddenCount; k++) if (mine[k]) withMine[k]++;
+            return;
+        }
+        place(h + 1, minesLeft, hidden, hiddenCount, clues, need, placed, mine, withMine, total);
+        if (minesLeft == 0) return;
+        boolean fits = true;
+        for (int clue : clues[h]) fits &= placed[clue] < need[clue];
+        if (!fits) return;
+        for (int clue : clues[h]) placed[clue]++;
+        mine[h] = true;
+        place(h + 1, minesLeft - 1, hidden, hiddenCount, clues, need, placed, mine, withMine, total);
+        mine[h] = false;
+        for (int clue : clues[h]) placed[clue]--;
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.minesweeper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+
+// A bad frame drops its sender and leaves the validator serving everyone else; a result
+// too big for one frame arrives in pages, and an intent that is neither a reveal nor a
+// flag is rejected, and the board is the one the first player of a game asked for
+public class ValidatorServerTest {
+
+    private ValidatorServer server;
+    private Thread thread;
+
+    @Before
+    public void start() throws IOException {
+        server = new ValidatorServer(0, 1);
+        thread = new Thread(() -> {
+            try {
+                server.run();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+    }
+
+    @After
+    public void stop() throws InterruptedException {
+        server.close();
+        thread.join(5000);
+    }
+
+    @Test
+    public void negativeLengthDropsTheSender() throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(8).putInt(-4).putInt(0);
+        frame.flip();
+        assertDropped(frame);
+        assertStillServes("g1");
+    }
+
+    @Test
+    public void truncatedJoinDropsTheSender() throws IOException {
+        ByteBuffer join = new LanFrames.Builder(LanFrames.JOIN).putString("g2").build();
+        assertDropped(join);
+        assertStillServes("g2");
+    }
+
+    @Test
+    public void oversizedBoardDropsTheSender() throws IOException {
+        ByteBuffer join = new LanFrames.Builder(LanFrames.JOIN).putString("g3").putString("player1")
+                .putInt(1_000_000).putInt(10).build();
+        assertDropped(join);
+        ByteBuffer noSafeCell = new LanFrames.Builder(LanFrames.JOIN).putString("g3").putString("player1")
+                .putInt(10).putInt(100).build();
+        assertDropped(noSafeCell);
+        assertStillServes("g3");
+    }
+
+    @Test
+    public void bigFloodArrivesInPages() throws IOException {
+        // One mine on 200x200: the first reveal opens every other cell unless it lands on
+        // or next to the mine, so a few games are enough
+        MoveValidator.Result result = null;
+        int frames = 0;
+        for (int game = 0; game < 5 && (result == null || result.outcome != MoveValidator.CLEARED); game++) {
+            SocketChannel[] sockets = {connect(), connect()};
+            try {
+                ByteBuffer[] inputs = {ByteBuffer.allocate(LanFrames.MAX_FRAME), ByteBuffer.allocate(LanFrames.MAX_FRAME)};
+                join(sockets, "flood" + game, 200, 1);
+                for (int p = 0; p < 2; p++) assertEquals(LanFrames.STATE, readFrame(sockets[p], inputs[p]).get());
+                ByteBuffer intent = new LanFrames.Builder(LanFrames.INTENT).putByte((byte) Move.REVEAL)
+                        .putInt(100).putInt(100).build();
+                while (intent.hasRemaining()) sockets[0].write(intent);
+
+                LanFrames.ResultPages pages = new LanFrames.ResultPages();
+                frames = 0;
+                do {
+                    ByteBuffer frame = readFrame(sockets[1], inputs[1]);
+                    assertEquals(LanFrames.RESULT, frame.get());
+                    frames++;
+                    result = pages.add(frame);
+                } while (result == null);
+            } finally {
+                for (SocketChannel socket : sockets) socket.close();
+            }
+        }
+        assertEquals(MoveValidator.CLEARED, result.outcome);
+        assertEquals(200 * 200 - 1, result.cells.length);
+        assertEquals(result.cells.length, result.clues.length);
+        assertTrue(result.cells.length * 5 > LanFrames.MAX_FRAME);
+        assertEquals((result.cells.length + LanFrames.RESULT_PAGE - 1) / LanFrames.RESULT_PAGE, frames);
+        assertStillServes("g4");
+    }
+
+    @Test
+    public void mismatchedJoinDropsTheSender() throws IOException {
+        SocketChannel first = connect();
+        SocketChannel second = connect();
+        try {
+            join(new SocketChannel[]{first}, "boards", 10, 10);
+            assertDropped(new LanFrames.Builder(LanFrames.JOIN).putString("boards").putString("player2")
+                    .putInt(12).putInt(10).build());
+            assertDropped(new LanFrames.Builder(LanFrames.JOIN).putString("boards").putString("player2")
+                    .putInt(10).putInt(20).build());
+            ByteBuffer join = new LanFrames.Builder(LanFrames.JOIN).putString("boards").putString("player2")
+                    .putInt(10).putInt(10).build();
+            while (join.hasRemaining()) second.write(join);
+            for (SocketChannel socket : new SocketChannel[]{first, second}) {
+                ByteBuffer frame = readFrame(socket, ByteBuffer.allocate(1024));
+                assertEquals(LanFrames.STATE, frame.get());
+                Map<String, Object> state = LanFrames.getMap(frame);
+                assertEquals(10, state.get("size"));
+                assertEquals(10, state.get("mineCount"));
+            }
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+
+    @Test
+    public void unknownIntentTypeIsRejected() throws IOException {
+        SocketChannel[] sockets = {connect(), connect()};
+        try {
+            ByteBuffer[] inputs = {ByteBuffer.allocate(1024), ByteBuffer.allocate(1024)};
+            join(sockets, "types", 10, 90);
+            for (int p = 0; p < 2; p++) assertEquals(LanFrames.STATE, readFrame(sockets[p], inputs[p]).get());
+            for (byte type : new byte[]{2, -1, 100}) {
+                ByteBuffer intent = new LanFrames.Builder(LanFrames.INTENT).putByte(type).putInt(0).putInt(0).build();
+                while (intent.hasRemaining()) sockets[0].write(intent);
+                ByteBuffer frame = readFrame(sockets[1], inputs[1]);
+                assertEquals(LanFrames.RESULT, frame.get());
+                MoveValidator.Result result = new LanFrames.ResultPages().add(frame);
+                assertEquals(MoveValidator.REJECTED, result.outcome);
+                assertEquals(0, result.cells.length);
+                assertEquals("player1", result.nextTurn);
+            }
+        } finally {
+            for (SocketChannel socket : sockets) socket.close();
+        }
+    }
+
+    private void join(SocketChannel[] sockets, String gameId, int size, int mineCount) throws IOException {
+        for (int p = 0; p < sockets.length; p++) {
+            ByteBuffer join = new LanFrames.Builder(LanFrames.JOIN).putString(gameId)
+                    .putString("player" + (p + 1)).putInt(size).putInt(mineCount).build();
+            while (join.hasRemaining()) sockets[p].write(join);
+        }
+    }
+
+    // Blocks until one whole frame is in; returns it positioned at the type byte
+    private static ByteBuffer readFrame(SocketChannel socket, ByteBuffer in) throws IOException {
+        while (true) {
+            in.flip();
+            if (in.remaining() >= 4 && in.remaining() >= 4 + in.getInt(in.position())) {
+                byte[] frame = new byte[in.getInt()];
+                in.get(frame);
+                in.compact();
+                return ByteBuffer.wrap(frame);
+            }
+            in.compact();
+            if (socket.read(in) < 0) throw new IOException("dropped");
+        }
+    }
+
+    private void assertDropped(ByteBuffer frame) throws IOException {
+        try (SocketChannel socket = connect()) {
+            while (frame.hasRemaining()) socket.write(frame);
+            assertEquals(-1, socket.read(ByteBuffer.allocate(64)));
+        }
+    }
+
+    private void assertStillServes(String gameId) throws IOException {
+        SocketChannel[] sockets = {connect(), connect()};
+        try {
+            join(sockets, gameId, 10, 10);
+            for (SocketChannel socket : sockets) {
+                ByteBuffer in = ByteBuffer.allocate(1024);
+                while (in.position() < 5) {
+                    if (socket.read(in) < 0) throw new IOException("dropped");
+                }
+                assertEquals(LanFrames.STATE, in.get(4));
+            }
+        } finally {
+            for (SocketChannel socket : sockets) socket.close();
+        }
+    }
+
+    private SocketChannel connect() throws IOException {
+        SocketChannel socket = SocketChannel.open(new InetSocketAddress("127.0.0.1", server.getPort()));
+        socket.socket().setSoTimeout(5000);
+        return socket;
+    }
+}